@@ -16,10 +16,20 @@
 package edu.columbia.rdf.matcalc.bio;
 
 import edu.columbia.rdf.matcalc.BasicModuleLoader;
+import edu.columbia.rdf.matcalc.bio.toolbox.cbs.CbsModule;
 import edu.columbia.rdf.matcalc.bio.toolbox.external.ucsc.BedGraphIOModule;
 import edu.columbia.rdf.matcalc.bio.toolbox.external.ucsc.BedIOModule;
+import edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.MarkerMatrixModule;
+import edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.SegIOModule;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.PermutationTestModule;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea.GseaModule;
 import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.io.GctIOModule;
 import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.io.ResIOModule;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.leadingedge.LeadingEdgeModule;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.ora.OraModule;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.ssgsea.SsgseaModule;
+import edu.columbia.rdf.matcalc.bio.toolbox.genes.GeneCopyNumberModule;
+import edu.columbia.rdf.matcalc.bio.toolbox.recurrence.RecurrenceModule;
 
 public class BioModuleLoader extends BasicModuleLoader {
   public BioModuleLoader() {
@@ -28,5 +38,15 @@ public class BioModuleLoader extends BasicModuleLoader {
     addModule(BedIOModule.class);
     addModule(BedGraphIOModule.class);
     addModule(FastaReaderModule.class);
+    addModule(SegIOModule.class);
+    addModule(MarkerMatrixModule.class);
+    addModule(CbsModule.class);
+    addModule(RecurrenceModule.class);
+    addModule(GeneCopyNumberModule.class);
+    addModule(GseaModule.class);
+    addModule(LeadingEdgeModule.class);
+    addModule(OraModule.class);
+    addModule(SsgseaModule.class);
+    addModule(PermutationTestModule.class);
   }
 }
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio;
+
+import org.jebtk.math.matrix.CellType;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.Matrix;
+
+/**
+ * Read only matrix view over data held elsewhere, such as segments or gene
+ * copy numbers, so that large results can be shown without first copying them
+ * into a new matrix. The first columns of the view are text and the remainder
+ * are numbers. Copying the view creates a normal, writable matrix so that
+ * edits to the copy never reach the underlying data.
+ *
+ * @author Antony Holmes
+ *
+ */
+public abstract class MatrixView extends Matrix {
+  private static final long serialVersionUID = 1L;
+
+  private final int mTextCols;
+
+  /**
+   * Instantiates a new matrix view.
+   *
+   * @param rows     the number of rows.
+   * @param cols     the number of columns.
+   * @param textCols the number of leading text columns.
+   */
+  public MatrixView(int rows, int cols, int textCols) {
+    super(rows, cols);
+
+    mTextCols = textCols;
+  }
+
+  @Override
+  public Matrix copy() {
+    DataFrame ret = DataFrame.createDataFrame(getRows(), getCols());
+
+    for (int i = 0; i < getRows(); ++i) {
+      for (int j = 0; j < getCols(); ++j) {
+        if (j < mTextCols) {
+          ret.set(i, j, getText(i, j));
+        } else {
+          ret.set(i, j, getValue(i, j));
+        }
+      }
+    }
+
+    return ret;
+  }
+
+  @Override
+  public CellType getCellType(int row, int column) {
+    return column < mTextCols ? CellType.TEXT : CellType.NUMBER;
+  }
+
+  @Override
+  public Object get(int row, int column) {
+    if (column < mTextCols) {
+      return getText(row, column);
+    } else {
+      return getValue(row, column);
+    }
+  }
+}
@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+import org.jebtk.modern.dialog.MessageDialogType;
+import org.jebtk.modern.dialog.ModernMessageDialog;
+import org.jebtk.modern.window.ModernWindow;
+
+/**
+ * Runs a long task in the background whilst showing a progress monitor that
+ * lets the user follow and cancel it. Subclasses do their work in
+ * doInBackground(), reporting progress from 0 to 100 with setProgress(), and
+ * update the user interface in finished(), which is only called on the event
+ * dispatch thread if the task completed without being cancelled. If the task
+ * fails, the error is shown to the user instead.
+ * 
+ * Parallel work should be run with {@link #run(int, TaskSource)} or
+ * {@link #invokeAll(List)}, which share the {@link ForkJoinService} pool so
+ * that several runs at once do not each start a thread per CPU.
+ *
+ * @author Antony Holmes
+ */
+public abstract class ProgressWorker extends SwingWorker<Void, Void> {
+
+  /**
+   * Creates the tasks run by a worker and receives their results in order.
+   *
+   * @param <T> the result type of the tasks.
+   */
+  public interface TaskSource<T> {
+
+    /**
+     * Create a task. Tasks are created in order, on the worker thread, just
+     * before they are needed.
+     *
+     * @param i the index of the task.
+     * @return the task or null if there is nothing to do for this index.
+     * @throws Exception if the task cannot be created.
+     */
+    ForkJoinTask<T> create(int i) throws Exception;
+
+    /**
+     * Called on the worker thread with the result of each task, in the order
+     * the tasks were created.
+     *
+     * @param i      the index of the task.
+     * @param result the result of the task.
+     * @throws Exception if the result cannot be used.
+     */
+    void finished(int i, T result) throws Exception;
+  }
+
+  /**
+   * How often the progress monitor is refreshed in milliseconds.
+   */
+  private static final int PROGRESS_DELAY = 250;
+
+  private final ModernWindow mParent;
+  private final ProgressMonitor mMonitor;
+  private final Timer mTimer;
+
+  /**
+   * Instantiates a new progress worker.
+   *
+   * @param parent  the window the progress monitor and any errors are shown
+   *                over.
+   * @param message the message to show in the progress monitor.
+   */
+  public ProgressWorker(ModernWindow parent, String message) {
+    mParent = parent;
+
+    mMonitor = new ProgressMonitor(parent, message, null, 0, 100);
+    mMonitor.setProgress(0);
+
+    mTimer = new Timer(PROGRESS_DELAY, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        if (mMonitor.isCanceled()) {
+          cancel(true);
+        } else {
+          mMonitor.setProgress(getProgress());
+        }
+      }
+    });
+
+    mTimer.start();
+  }
+
+  /**
+   * Run tasks on the shared pool, reporting progress from 0 to 100.
+   *
+   * @see #run(int, TaskSource, int, int)
+   */
+  protected <T> boolean run(int n, TaskSource<T> source) throws Exception {
+    return run(n, source, 0, 100);
+  }
+
+  /**
+   * Run tasks on the shared pool. Only a few more tasks than there are
+   * threads are created at once, so results do not pile up faster than they
+   * are used, and their results are passed back in order. Tasks that have not
+   * started are cancelled if the user cancels or a task fails.
+   *
+   * @param n      the number of tasks.
+   * @param source creates the tasks and receives their results.
+   * @param start  the progress once no tasks have finished.
+   * @param end    the progress once all tasks have finished.
+   * @return true if every task finished, false if the user cancelled.
+   * @throws Exception if a task failed.
+   */
+  protected <T> boolean run(int n, TaskSource<T> source, int start, int end) throws Exception {
+    ForkJoinPool pool = ForkJoinService.getInstance().getPool();
+
+    int window = 2 * pool.getParallelism();
+
+    Deque<ForkJoinTask<T>> tasks = new ArrayDeque<ForkJoinTask<T>>(window);
+    Deque<Integer> indices = new ArrayDeque<Integer>(window);
+
+    int done = 0;
+
+    try {
+      for (int i = 0; i < n; ++i) {
+        if (tasks.size() == window) {
+          if (isCancelled()) {
+            return false;
+          }
+
+          source.finished(indices.removeFirst(), tasks.removeFirst().join());
+
+          setProgress(start + (int) ((long) (end - start) * ++done / n));
+        }
+
+        ForkJoinTask<T> task = source.create(i);
+
+        if (task == null) {
+          ++done;
+          continue;
+        }
+
+        pool.execute(task);
+
+        tasks.add(task);
+        indices.add(i);
+      }
+
+      while (!tasks.isEmpty()) {
+        if (isCancelled()) {
+          return false;
+        }
+
+        source.finished(indices.removeFirst(), tasks.removeFirst().join());
+
+        setProgress(start + (int) ((long) (end - start) * ++done / n));
+      }
+    } finally {
+      for (ForkJoinTask<T> task : tasks) {
+        task.cancel(false);
+      }
+    }
+
+    return !isCancelled();
+  }
+
+  /**
+   * Run tasks that have already been created on the shared pool, reporting
+   * progress from 0 to 100.
+   *
+   * @see #invokeAll(List, int, int)
+   */
+  protected <T> List<T> invokeAll(List<? extends ForkJoinTask<T>> tasks) throws Exception {
+    return invokeAll(tasks, 0, 100);
+  }
+
+  /**
+   * Run tasks that have already been created on the shared pool.
+   *
+   * @param tasks the tasks.
+   * @param start the progress once no tasks have finished.
+   * @param end   the progress once all tasks have finished.
+   * @return the results in task order, or null if the user cancelled.
+   * @throws Exception if a task failed.
+   */
+  protected <T> List<T> invokeAll(final List<? extends ForkJoinTask<T>> tasks, int start, int end)
+      throws Exception {
+    final List<T> ret = new ArrayList<T>(tasks.size());
+
+    boolean finished = run(tasks.size(), new TaskSource<T>() {
+      @Override
+      public ForkJoinTask<T> create(int i) {
+        return tasks.get(i);
+      }
+
+      @Override
+      public void finished(int i, T result) {
+        ret.add(result);
+      }
+    }, start, end);
+
+    return finished ? ret : null;
+  }
+
+  @Override
+  protected final void done() {
+    mTimer.stop();
+    mMonitor.close();
+
+    if (isCancelled()) {
+      return;
+    }
+
+    try {
+      get();
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+
+      return;
+    } catch (ExecutionException e) {
+      e.printStackTrace();
+
+      Throwable cause = e.getCause() != null ? e.getCause() : e;
+
+      String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+
+      ModernMessageDialog.createDialog(mParent, MessageDialogType.WARNING, "An error occurred.", message);
+
+      return;
+    }
+
+    finished();
+  }
+
+  /**
+   * Called on the event dispatch thread once the task has successfully
+   * finished.
+   */
+  protected abstract void finished();
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.cbs;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.SplittableRandom;
+
+/**
+ * Circular binary segmentation (Olshen et al. 2004) of the log ratios of one
+ * sample on one chromosome. Each interval is searched for the arc whose mean
+ * differs most from the rest of the interval. The arc is accepted if its
+ * statistic is rarely matched by random permutations of the interval, in
+ * which case the pieces are segmented recursively.
+ * 
+ * The statistic of an arc (i, j] of an interval of length n is
+ * |C(j) - C(i)| * sqrt(n / (k * (n - k))), where k = j - i and C is the
+ * cumulative sum of the values less their mean. Since the variance of an
+ * interval is unchanged by permuting it, it does not need to be estimated. To
+ * avoid testing every arc, the cumulative sums are divided into blocks and
+ * only pairs of blocks whose upper bound can beat the best arc found so far
+ * are searched exhaustively.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class Cbs {
+  public static final int DEFAULT_PERMUTATIONS = 1000;
+
+  public static final double DEFAULT_ALPHA = 0.01;
+
+  /**
+   * The smallest number of markers a segment may have.
+   */
+  public static final int DEFAULT_MIN_WIDTH = 2;
+
+  /**
+   * The default seed. The same seed always gives the same segments.
+   */
+  public static final int DEFAULT_SEED = 25642;
+
+  private final int mPermutations;
+  private final double mAlpha;
+  private final int mMinWidth;
+
+  public Cbs() {
+    this(DEFAULT_PERMUTATIONS, DEFAULT_ALPHA, DEFAULT_MIN_WIDTH);
+  }
+
+  /**
+   * Instantiates a new segmenter.
+   *
+   * @param permutations the number of permutations used to test each change
+   *                     point.
+   * @param alpha        the significance level for accepting a change point.
+   * @param minWidth     the smallest number of markers in a segment.
+   */
+  public Cbs(int permutations, double alpha, int minWidth) {
+    mPermutations = permutations;
+    mAlpha = alpha;
+    mMinWidth = Math.max(1, minWidth);
+  }
+
+  /**
+   * Segment a series of values.
+   *
+   * @param x      the values, ordered by position.
+   * @param random the source of permutations.
+   * @return the indices at which each segment after the first starts, in
+   *         ascending order.
+   */
+  public int[] segment(double[] x, SplittableRandom random) {
+    int[] breaks = new int[16];
+    int nb = 0;
+
+    // Reused for each interval and permutation
+    double[] y = new double[x.length];
+    double[] c = new double[x.length + 1];
+    int[] arc = new int[2];
+
+    Deque<int[]> intervals = new ArrayDeque<int[]>();
+
+    intervals.push(new int[] { 0, x.length });
+
+    while (!intervals.isEmpty()) {
+      int[] interval = intervals.pop();
+
+      int s = interval[0];
+      int n = interval[1] - s;
+
+      if (n < 2 * mMinWidth) {
+        continue;
+      }
+
+      System.arraycopy(x, s, y, 0, n);
+
+      cumSum(y, n, c);
+
+      double t = maxT(c, n, 0, Double.POSITIVE_INFINITY, arc);
+
+      if (t == 0 || !isSignificant(y, n, c, t, random)) {
+        continue;
+      }
+
+      int i = arc[0];
+      int j = arc[1];
+
+      if (nb + 2 > breaks.length) {
+        breaks = Arrays.copyOf(breaks, breaks.length * 2);
+      }
+
+      if (i > 0) {
+        breaks[nb++] = s + i;
+        intervals.push(new int[] { s, s + i });
+      }
+
+      if (j < n) {
+        breaks[nb++] = s + j;
+        intervals.push(new int[] { s + j, s + n });
+      }
+
+      intervals.push(new int[] { s + i, s + j });
+    }
+
+    breaks = Arrays.copyOf(breaks, nb);
+
+    Arrays.sort(breaks);
+
+    return breaks;
+  }
+
+  /**
+   * Test whether an arc statistic is significant by counting how many
+   * permutations of the interval produce an arc at least as extreme. Stops as
+   * soon as the count is too high for the arc to be accepted.
+   *
+   * @param y the interval, which will be shuffled.
+   * @param n the length of the interval.
+   * @param c buffer for the cumulative sums.
+   * @param t the statistic of the best arc.
+   * @return true if the arc is significant.
+   */
+  private boolean isSignificant(double[] y, int n, double[] c, double t, SplittableRandom random) {
+    int maxExceed = (int) (mAlpha * (mPermutations + 1)) - 1;
+
+    if (maxExceed < 0) {
+      return false;
+    }
+
+    int exceed = 0;
+
+    for (int p = 0; p < mPermutations; ++p) {
+      shuffle(y, n, random);
+
+      cumSum(y, n, c);
+
+      if (maxT(c, n, t, t, null) >= t) {
+        if (++exceed > maxExceed) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Find the arc with the largest statistic.
+   *
+   * @param c      the centered cumulative sums.
+   * @param n      the number of values.
+   * @param floor  block pairs whose bound does not exceed this are skipped.
+   * @param target the search stops as soon as an arc reaches this statistic.
+   * @param arc    if not null, set to the start and end of the best arc.
+   * @return the largest statistic found, or zero if there is no valid arc.
+   */
+  private double maxT(double[] c, int n, double floor, double target, int[] arc) {
+    double best = 0;
+    int bestI = 0;
+    int bestJ = 0;
+
+    // Seed with the arc between the lowest and highest cumulative sums as this
+    // is usually close to the best and lets most blocks be skipped
+    int lo = 0;
+    int hi = 0;
+
+    for (int k = 1; k <= n; ++k) {
+      if (c[k] < c[lo]) {
+        lo = k;
+      }
+
+      if (c[k] > c[hi]) {
+        hi = k;
+      }
+    }
+
+    int i = Math.min(lo, hi);
+    int j = Math.max(lo, hi);
+
+    if (isValid(i, j, n)) {
+      best = t(c, n, i, j);
+      bestI = i;
+      bestJ = j;
+    }
+
+    if (best >= target) {
+      return best;
+    }
+
+    // Blocks are searched at two resolutions. Coarse blocks of about sqrt(n)
+    // values skip most distant pairs cheaply whilst fine blocks limit the
+    // exhaustive search of nearby pairs, whose short arcs are rarely skipped.
+    int fine = Math.max(mMinWidth, (int) Math.sqrt(Math.sqrt(n)));
+    int ratio = Math.max(1, (int) Math.sqrt(n) / fine);
+    int coarse = fine * ratio;
+
+    int fineBlocks = n / fine + 1;
+    int coarseBlocks = n / coarse + 1;
+
+    double[] fineMin = new double[fineBlocks];
+    double[] fineMax = new double[fineBlocks];
+
+    for (int b = 0; b < fineBlocks; ++b) {
+      int b1 = b * fine;
+      int b2 = Math.min(n, b1 + fine - 1);
+
+      fineMin[b] = c[b1];
+      fineMax[b] = c[b1];
+
+      for (int k = b1 + 1; k <= b2; ++k) {
+        fineMin[b] = Math.min(fineMin[b], c[k]);
+        fineMax[b] = Math.max(fineMax[b], c[k]);
+      }
+    }
+
+    double[] coarseMin = new double[coarseBlocks];
+    double[] coarseMax = new double[coarseBlocks];
+
+    for (int b = 0; b < coarseBlocks; ++b) {
+      int b1 = b * ratio;
+      int b2 = Math.min(fineBlocks - 1, b1 + ratio - 1);
+
+      coarseMin[b] = fineMin[b1];
+      coarseMax[b] = fineMax[b1];
+
+      for (int k = b1 + 1; k <= b2; ++k) {
+        coarseMin[b] = Math.min(coarseMin[b], fineMin[k]);
+        coarseMax[b] = Math.max(coarseMax[b], fineMax[k]);
+      }
+    }
+
+    for (int p = 0; p < coarseBlocks; ++p) {
+      for (int q = p; q < coarseBlocks; ++q) {
+        if (bound(coarseMin, coarseMax, p, q, coarse, n) <= Math.max(best, floor)) {
+          continue;
+        }
+
+        int f2 = Math.min(fineBlocks - 1, p * ratio + ratio - 1);
+        int g2 = Math.min(fineBlocks - 1, q * ratio + ratio - 1);
+
+        for (int f = p * ratio; f <= f2; ++f) {
+          for (int g = Math.max(f, q * ratio); g <= g2; ++g) {
+            if (bound(fineMin, fineMax, f, g, fine, n) <= Math.max(best, floor)) {
+              continue;
+            }
+
+            int i2 = Math.min(n, f * fine + fine - 1);
+            int j2 = Math.min(n, g * fine + fine - 1);
+
+            for (i = f * fine; i <= i2; ++i) {
+              for (j = Math.max(g * fine, i + mMinWidth); j <= j2; ++j) {
+                if (!isValid(i, j, n)) {
+                  continue;
+                }
+
+                double t = t(c, n, i, j);
+
+                if (t > best) {
+                  best = t;
+                  bestI = i;
+                  bestJ = j;
+
+                  if (best >= target) {
+                    return best;
+                  }
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+
+    if (arc != null) {
+      arc[0] = bestI;
+      arc[1] = bestJ;
+    }
+
+    return best;
+  }
+
+  /**
+   * Returns an upper bound on the statistic of any arc starting in block p and
+   * ending in block q.
+   */
+  private double bound(double[] min, double[] max, int p, int q, int size, int n) {
+    int p1 = p * size;
+    int p2 = Math.min(n, p1 + size - 1);
+    int q1 = q * size;
+    int q2 = Math.min(n, q1 + size - 1);
+
+    int kMin = Math.max(mMinWidth, q1 - p2);
+    int kMax = Math.min(n - mMinWidth, q2 - p1);
+
+    if (kMin > kMax) {
+      return 0;
+    }
+
+    // The scale factor is largest at the extremes of the arc lengths
+    return Math.max(max[q] - min[p], max[p] - min[q]) * Math.max(scale(n, kMin), scale(n, kMax));
+  }
+
+  /**
+   * Returns true if an arc and the pieces either side of it are all at least
+   * the minimum width.
+   */
+  private boolean isValid(int i, int j, int n) {
+    int k = j - i;
+
+    return k >= mMinWidth && k <= n - mMinWidth && (i == 0 || i >= mMinWidth) && (j == n || n - j >= mMinWidth);
+  }
+
+  private static double t(double[] c, int n, int i, int j) {
+    return Math.abs(c[j] - c[i]) * scale(n, j - i);
+  }
+
+  private static double scale(int n, int k) {
+    return Math.sqrt((double) n / ((double) k * (n - k)));
+  }
+
+  /**
+   * Calculate the cumulative sums of values less their mean.
+   */
+  private static void cumSum(double[] y, int n, double[] c) {
+    double sum = 0;
+
+    for (int k = 0; k < n; ++k) {
+      sum += y[k];
+    }
+
+    double mean = sum / n;
+
+    c[0] = 0;
+
+    for (int k = 0; k < n; ++k) {
+      c[k + 1] = c[k] + y[k] - mean;
+    }
+  }
+
+  /**
+   * Fisher-Yates shuffle of the first n values.
+   */
+  private static void shuffle(double[] y, int n, SplittableRandom random) {
+    for (int k = n - 1; k > 0; --k) {
+      int r = random.nextInt(k + 1);
+
+      double tmp = y[k];
+      y[k] = y[r];
+      y[r] = tmp;
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.cbs;
+
+import java.awt.Dimension;
+import java.text.ParseException;
+
+import javax.swing.Box;
+
+import org.jebtk.modern.ModernWidget;
+import org.jebtk.modern.UI;
+import org.jebtk.modern.dialog.ModernDialogTaskWindow;
+import org.jebtk.modern.panel.HBox;
+import org.jebtk.modern.panel.VBox;
+import org.jebtk.modern.spinner.ModernCompactSpinner;
+import org.jebtk.modern.text.ModernAutoSizeLabel;
+import org.jebtk.modern.text.ModernClipboardNumericalTextField;
+import org.jebtk.modern.text.ModernNumericalTextField;
+import org.jebtk.modern.text.ModernTextBorderPanel;
+import org.jebtk.modern.window.ModernWindow;
+import org.jebtk.modern.window.WindowWidgetFocusEvents;
+
+/**
+ * Segmentation options.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class CbsDialog extends ModernDialogTaskWindow {
+  private static final long serialVersionUID = 1L;
+
+  private ModernCompactSpinner mTextPermutations = new ModernCompactSpinner(100, 100000,
+      Cbs.DEFAULT_PERMUTATIONS);
+
+  private ModernNumericalTextField mAlphaField = new ModernClipboardNumericalTextField(Cbs.DEFAULT_ALPHA);
+
+  private ModernCompactSpinner mTextMinWidth = new ModernCompactSpinner(1, 10, Cbs.DEFAULT_MIN_WIDTH);
+
+  private ModernCompactSpinner mTextSeed = new ModernCompactSpinner(0, Integer.MAX_VALUE, Cbs.DEFAULT_SEED);
+
+  public CbsDialog(ModernWindow parent) {
+    super(parent);
+
+    setTitle("Segment");
+
+    createUi();
+
+    setup();
+  }
+
+  private void setup() {
+    addWindowListener(new WindowWidgetFocusEvents(mOkButton));
+
+    setSize(new Dimension(480, 320));
+
+    UI.centerWindowToScreen(this);
+  }
+
+  private final void createUi() {
+    Box box;
+
+    Box content = VBox.create();
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Permutations", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mTextPermutations);
+    content.add(box);
+
+    content.add(UI.createVGap(5));
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Alpha", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(new ModernTextBorderPanel(mAlphaField, 100));
+    content.add(box);
+
+    content.add(UI.createVGap(5));
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Min markers", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mTextMinWidth);
+    content.add(box);
+
+    content.add(UI.createVGap(5));
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Seed", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mTextSeed);
+    content.add(box);
+
+    setContent(content);
+  }
+
+  public int getPermutations() throws ParseException {
+    return mTextPermutations.getIntValue();
+  }
+
+  public double getAlpha() throws ParseException {
+    return mAlphaField.getDouble();
+  }
+
+  public int getMinWidth() throws ParseException {
+    return mTextMinWidth.getIntValue();
+  }
+
+  /**
+   * Returns the seed of the permutations. The same seed always gives the
+   * same segments.
+   *
+   * @return the seed.
+   */
+  public int getSeed() throws ParseException {
+    return mTextSeed.getIntValue();
+  }
+}
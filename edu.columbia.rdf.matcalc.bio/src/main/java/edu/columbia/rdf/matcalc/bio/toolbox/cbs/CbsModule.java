@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.cbs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.AssetService;
+import org.jebtk.modern.button.ModernButton;
+import org.jebtk.modern.dialog.ModernDialogStatus;
+import org.jebtk.modern.event.ModernClickEvent;
+import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.ribbon.RibbonLargeButton;
+import org.jebtk.modern.tooltip.ModernToolTip;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.toolbox.Module;
+
+/**
+ * Segments marker level log ratios using circular binary segmentation so that
+ * segments can be made without an external CBS run. The current matrix should
+ * have a row per marker with chromosome and position columns followed by a
+ * column of log ratios for each sample. The segments are in the same format
+ * as those used by Fill Gaps.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class CbsModule extends Module implements ModernClickListener {
+
+  private ModernButton mSegmentButton = new RibbonLargeButton("Segment",
+      AssetService.getInstance().loadIcon("fill_gaps", 32), AssetService.getInstance().loadIcon("fill_gaps", 24));
+
+  private MainMatCalcWindow mWindow;
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.NameProperty#getName()
+   */
+  @Override
+  public String getName() {
+    return "Segment";
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.columbia.rdf.apps.matcalc.modules.Module#init(edu.columbia.rdf.apps.
+   * matcalc.MainMatCalcWindow)
+   */
+  @Override
+  public void init(MainMatCalcWindow window) {
+    mWindow = window;
+
+    mSegmentButton.setToolTip(new ModernToolTip("Segment", "Segment marker log ratios using CBS."));
+    mSegmentButton.setClickMessage("Segment");
+    mWindow.getRibbon().getToolbar("Bioinformatics").getSection("Fill Gaps").add(mSegmentButton);
+
+    mSegmentButton.addClickListener(this);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.ui.modern.event.ModernClickListener#clicked(org.abh.lib.ui.
+   * modern .event.ModernClickEvent)
+   */
+  @Override
+  public final void clicked(ModernClickEvent e) {
+    try {
+      segment(Genome.HG18);
+    } catch (Exception e1) {
+      e1.printStackTrace();
+    }
+  }
+
+  private void segment(Genome genome) throws Exception {
+    DataFrame m = mWindow.getCurrentMatrix();
+
+    if (m == null) {
+      showLoadMatrixError(mWindow);
+
+      return;
+    }
+
+    Map<String, Integer> colMap = findColumns(mWindow, m, "chr", "pos|start");
+
+    if (colMap == null) {
+      return;
+    }
+
+    CbsDialog dialog = new CbsDialog(mWindow);
+
+    dialog.setVisible(true);
+
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
+    }
+
+    int chrCol = colMap.get("chr");
+    int positionCol = colMap.get("pos|start");
+
+    // The samples follow the marker columns
+    List<Integer> sampleCols = new ArrayList<Integer>();
+
+    for (int c = Math.max(chrCol, positionCol) + 1; c < m.getCols(); ++c) {
+      sampleCols.add(c);
+    }
+
+    Cbs cbs = new Cbs(dialog.getPermutations(), dialog.getAlpha(), dialog.getMinWidth());
+
+    new CbsWorker(mWindow, genome, m, chrCol, positionCol, sampleCols, cbs, dialog.getSeed()).execute();
+  }
+}
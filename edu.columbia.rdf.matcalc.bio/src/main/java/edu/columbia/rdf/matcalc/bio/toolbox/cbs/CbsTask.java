@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.cbs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveTask;
+
+import org.jebtk.bioinformatics.genomic.Chromosome;
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.Segment;
+
+/**
+ * Segments one sample on one chromosome. Markers without a value are
+ * ignored.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class CbsTask extends RecursiveTask<List<Segment>> {
+  private static final long serialVersionUID = 1L;
+
+  private final Cbs mCbs;
+  private final DataFrame mM;
+  private final int mCol;
+  private final String mName;
+  private final Chromosome mChr;
+  private final int[] mRows;
+  private final int[] mPositions;
+  private final SplittableRandom mRandom;
+
+  /**
+   * Instantiates a new segmentation task.
+   *
+   * @param cbs       the segmenter.
+   * @param m         the marker matrix.
+   * @param col       the column of the sample.
+   * @param name      the sample name.
+   * @param chr       the chromosome.
+   * @param rows      the rows of the markers on the chromosome ordered by
+   *                  position.
+   * @param positions the positions of the markers.
+   * @param random    the source of permutations, which should not be shared
+   *                  with other tasks.
+   */
+  public CbsTask(Cbs cbs, DataFrame m, int col, String name, Chromosome chr, int[] rows, int[] positions,
+      SplittableRandom random) {
+    mCbs = cbs;
+    mM = m;
+    mCol = col;
+    mName = name;
+    mChr = chr;
+    mRows = rows;
+    mPositions = positions;
+    mRandom = random;
+  }
+
+  @Override
+  protected List<Segment> compute() {
+    double[] x = new double[mRows.length];
+    int[] positions = new int[mRows.length];
+
+    int n = 0;
+
+    for (int i = 0; i < mRows.length; ++i) {
+      double v = mM.getValue(mRows[i], mCol);
+
+      if (!Double.isNaN(v)) {
+        x[n] = v;
+        positions[n] = mPositions[i];
+        ++n;
+      }
+    }
+
+    List<Segment> ret = new ArrayList<Segment>();
+
+    if (n == 0) {
+      return ret;
+    }
+
+    x = Arrays.copyOf(x, n);
+
+    int[] breaks = mCbs.segment(x, mRandom);
+
+    int s = 0;
+
+    for (int b = 0; b <= breaks.length; ++b) {
+      int e = b < breaks.length ? breaks[b] : n;
+
+      double sum = 0;
+
+      for (int i = s; i < e; ++i) {
+        sum += x[i];
+      }
+
+      Segment segment = new Segment();
+
+      segment.name = mName;
+      segment.chr = mChr;
+      segment.start = positions[s];
+      segment.end = positions[e - 1];
+      segment.markers = e - s;
+      segment.copyNumberMean = sum / (e - s);
+
+      ret.add(segment);
+
+      s = e;
+    }
+
+    return ret;
+  }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.cbs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import org.jebtk.bioinformatics.genomic.Chromosome;
+import org.jebtk.bioinformatics.genomic.ChromosomeService;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+import edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.Segment;
+import edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.SegmentTable;
+
+/**
+ * Segments each sample and chromosome of a marker matrix as a separate task on
+ * a fork join pool. Each task is given its own random generator split from the
+ * seed, so the segments do not depend on the number of threads.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class CbsWorker extends ProgressWorker {
+  private final MainMatCalcWindow mWindow;
+  private final Genome mGenome;
+  private final DataFrame mM;
+  private final int mChrCol;
+  private final int mPositionCol;
+  private final List<Integer> mSampleCols;
+  private final Cbs mCbs;
+  private final long mSeed;
+
+  private DataFrame mSegmentsM;
+
+  /**
+   * Instantiates a new segmentation worker.
+   *
+   * @param window      the window to add the segments to.
+   * @param genome      the genome the markers belong to.
+   * @param m           the marker matrix.
+   * @param chrCol      the column of the marker chromosomes.
+   * @param positionCol the column of the marker positions.
+   * @param sampleCols  the columns of the samples.
+   * @param cbs         the segmenter.
+   * @param seed        the seed of the permutations.
+   */
+  public CbsWorker(MainMatCalcWindow window, Genome genome, DataFrame m, int chrCol, int positionCol,
+      List<Integer> sampleCols, Cbs cbs, long seed) {
+    super(window, "Segmenting...");
+
+    mWindow = window;
+    mGenome = genome;
+    mM = m;
+    mChrCol = chrCol;
+    mPositionCol = positionCol;
+    mSampleCols = sampleCols;
+    mCbs = cbs;
+    mSeed = seed;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    int rows = mM.getRows();
+
+    // Group the markers by chromosome
+
+    Chromosome[] rowChrs = new Chromosome[rows];
+
+    Map<Chromosome, Integer> counts = new TreeMap<Chromosome, Integer>();
+
+    for (int r = 0; r < rows; ++r) {
+      rowChrs[r] = ChromosomeService.getInstance().chr(mGenome, mM.getText(r, mChrCol));
+
+      Integer count = counts.get(rowChrs[r]);
+
+      counts.put(rowChrs[r], count != null ? count + 1 : 1);
+    }
+
+    // Pack the position and row of each marker into a long so that the rows
+    // can be ordered by position with a primitive sort
+
+    Map<Chromosome, long[]> keys = new TreeMap<Chromosome, long[]>();
+
+    for (Chromosome chr : counts.keySet()) {
+      keys.put(chr, new long[counts.get(chr)]);
+      counts.put(chr, 0);
+    }
+
+    for (int r = 0; r < rows; ++r) {
+      int i = counts.get(rowChrs[r]);
+
+      keys.get(rowChrs[r])[i] = ((long) mM.getValue(r, mPositionCol) << 32) | r;
+
+      counts.put(rowChrs[r], i + 1);
+    }
+
+    List<Chromosome> chrs = new ArrayList<Chromosome>(keys.keySet());
+
+    int[][] chrRows = new int[chrs.size()][];
+    int[][] chrPositions = new int[chrs.size()][];
+
+    for (int c = 0; c < chrs.size(); ++c) {
+      long[] k = keys.get(chrs.get(c));
+
+      Arrays.sort(k);
+
+      chrRows[c] = new int[k.length];
+      chrPositions[c] = new int[k.length];
+
+      for (int i = 0; i < k.length; ++i) {
+        chrRows[c][i] = (int) k[i];
+        chrPositions[c][i] = (int) (k[i] >>> 32);
+      }
+    }
+
+    // Split the generators up front, in a fixed order, so that each task
+    // always gets the same stream however the pool schedules them
+    SplittableRandom random = new SplittableRandom(mSeed);
+
+    final List<CbsTask> tasks = new ArrayList<CbsTask>();
+
+    for (int col : mSampleCols) {
+      String name = mM.getColumnName(col);
+
+      for (int c = 0; c < chrs.size(); ++c) {
+        tasks.add(new CbsTask(mCbs, mM, col, name, chrs.get(c), chrRows[c], chrPositions[c], random.split()));
+      }
+    }
+
+    final SegmentTable table = new SegmentTable();
+
+    // Add the segments as each task finishes so they are not all held twice
+    boolean finished = run(tasks.size(), new TaskSource<List<Segment>>() {
+      @Override
+      public CbsTask create(int i) {
+        return tasks.get(i);
+      }
+
+      @Override
+      public void finished(int i, List<Segment> segments) {
+        table.addAll(segments);
+      }
+    });
+
+    if (!finished) {
+      return null;
+    }
+
+    mSegmentsM = table.toDataFrame();
+
+    return null;
+  }
+
+  @Override
+  protected void finished() {
+    mWindow.history().addToHistory("CBS Segments", mSegmentsM);
+  }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.jebtk.bioinformatics.gapsearch.BinaryGapSearch;
+import org.jebtk.bioinformatics.gapsearch.BinarySearch;
+import org.jebtk.bioinformatics.gapsearch.GappedSearchFeatures;
+import org.jebtk.bioinformatics.genomic.Chromosome;
+import org.jebtk.bioinformatics.genomic.GenomicRegion;
+import org.jebtk.bioinformatics.genomic.Human;
+
+/**
+ * Fills the gaps between the segments of one sample on one chromosome so that
+ * every marker in the reference is covered by exactly one segment. Each call
+ * only reads the marker search so samples and chromosomes can be processed
+ * independently of each other.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class FillGaps {
+
+  private FillGaps() {
+    // Do nothing
+  }
+
+  /**
+   * Group the segments of one sample by chromosome.
+   *
+   * @param segments the segments.
+   * @return the segments keyed by chromosome.
+   */
+  public static Map<Chromosome, List<Segment>> groupByChr(List<Segment> segments) {
+    Map<Chromosome, List<Segment>> ret = new TreeMap<Chromosome, List<Segment>>();
+
+    for (Segment segment : segments) {
+      List<Segment> list = ret.get(segment.chr);
+
+      if (list == null) {
+        list = new ArrayList<Segment>();
+        ret.put(segment.chr, list);
+      }
+
+      list.add(segment);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Create one task per chromosome to fill the gaps of a sample. Chromosomes
+   * without segments are included so that they can be filled entirely.
+   *
+   * @param name      the sample name.
+   * @param chrMap    the segments of the sample keyed by chromosome, may be
+   *                  null if the sample has no segments.
+   * @param gapSearch the marker search.
+   * @param meanZero  the copy number mean to give to filler segments.
+   * @return the tasks in chromosome order.
+   */
+  public static List<FillGapsTask> createTasks(String name, Map<Chromosome, List<Segment>> chrMap,
+      BinarySearch<GenomicRegion> gapSearch, double meanZero) {
+    Set<Chromosome> chrs = new TreeSet<Chromosome>();
+
+    for (Chromosome chr : Human.CHROMOSOMES) {
+      chrs.add(chr);
+    }
+
+    if (chrMap != null) {
+      chrs.addAll(chrMap.keySet());
+    }
+
+    List<FillGapsTask> ret = new ArrayList<FillGapsTask>(chrs.size());
+
+    for (Chromosome chr : chrs) {
+      // Make sure the search is fully built before it is shared
+      // between threads.
+      gapSearch.getBins(chr);
+
+      ret.add(new FillGapsTask(name, chr, chrMap != null ? chrMap.get(chr) : null, gapSearch, meanZero));
+    }
+
+    return ret;
+  }
+
+  /**
+   * Fill the gaps for the segments of a sample on a chromosome.
+   *
+   * @param name      the sample name.
+   * @param chr       the chromosome.
+   * @param segments  the segments of the sample on the chromosome. May be null
+   *                  or empty if the sample has no segments on this chromosome.
+   *                  The segments are not modified.
+   * @param gapSearch the marker search.
+   * @param meanZero  the copy number mean to give to filler segments.
+   * @return the segments at each stage of the fill.
+   */
+  public static FillGapsResult fill(String name, Chromosome chr, List<Segment> segments,
+      BinarySearch<GenomicRegion> gapSearch, double meanZero) {
+    FillGapsResult ret = new FillGapsResult();
+
+    if (segments == null || segments.isEmpty()) {
+      // Empty chr that needs filling
+
+      if (gapSearch.containsChr(chr)) {
+        ret.filled.add(createSegment(name, chr, gapSearch, 0, gapSearch.size(chr) - 1, meanZero));
+      }
+
+      return ret;
+    }
+
+    // Update to closest snp probes, working on copies so that the closest
+    // markers can be reported after the overlapping segments are merged
+
+    for (Segment s : segments) {
+      Segment segment = new Segment(s);
+
+      List<GappedSearchFeatures<GenomicRegion>> features = gapSearch.getFeatures(chr, segment.start, segment.end);
+
+      // update so the segment begins and ends on a probe
+      segment.start = features.get(0).getPosition();
+      segment.end = features.get(features.size() - 1).getPosition();
+      segment.markers = features.size();
+
+      ret.closest.add(segment);
+    }
+
+    // Sort by position
+    Collections.sort(ret.closest);
+
+    // If a segment runs into another, merge the two as one
+
+    Segment segment1 = null;
+
+    for (Segment s : ret.closest) {
+      if (segment1 != null && segment1.end >= s.start) {
+        // merge 2 into 1
+        segment1.end = Math.max(segment1.end, s.end);
+
+        int i1 = BinaryGapSearch.getStartIndex(gapSearch.getBins(chr), segment1.start);
+        int i2 = BinaryGapSearch.getStartIndex(gapSearch.getBins(chr), segment1.end);
+
+        segment1.markers = i2 - i1 + 1;
+      } else {
+        segment1 = new Segment(s);
+
+        ret.merged.add(segment1);
+      }
+    }
+
+    //
+    // Fill in the blanks
+    //
+
+    Segment segment = ret.merged.get(0);
+
+    // Since the segments are ordered, add a new segment from the
+    // chr start to this segment start
+
+    int index = BinaryGapSearch.getStartIndex(gapSearch.getBins(chr), segment.start);
+
+    if (index > 0) {
+      ret.filled.add(createSegment(name, chr, gapSearch, 0, index - 1, meanZero));
+    }
+
+    ret.filled.add(segment);
+
+    // Fill in the blanks for these segments by taking each segment and
+    // getting its rank, then calculate the difference in rank between it
+    // and the previous segment. If the difference is greater than one,
+    // add a blank.
+
+    for (int i = 1; i < ret.merged.size(); ++i) {
+      segment = ret.merged.get(i);
+
+      index = BinaryGapSearch.getStartIndex(gapSearch.getBins(chr), segment.start);
+
+      int previousIndex = BinarySearch.getEndIndex(gapSearch.getBins(chr), ret.merged.get(i - 1).end);
+
+      if (index - previousIndex > 1) {
+        // Since there is a gap of more than one rank, we need
+        // to make a segment to fit in between the two segments
+        ret.filled.add(createSegment(name, chr, gapSearch, previousIndex + 1, index - 1, meanZero));
+      }
+
+      ret.filled.add(segment);
+    }
+
+    // Now deal with the end segment
+
+    segment = ret.merged.get(ret.merged.size() - 1);
+
+    index = BinarySearch.getStartIndex(gapSearch.getBins(chr), segment.end);
+
+    int nextIndex = gapSearch.getBins(chr).size() - 1;
+
+    if (index < nextIndex) {
+      // If the index is not the last marker, fill the gap to
+      // the end of the chromosome. We start at the next index.
+      ret.filled.add(createSegment(name, chr, gapSearch, index + 1, nextIndex, meanZero));
+    }
+
+    return ret;
+  }
+
+  /**
+   * Create a segment spanning a range of markers.
+   *
+   * @param name      the sample name.
+   * @param chr       the chromosome.
+   * @param gapSearch the marker search.
+   * @param i1        the index of the first marker.
+   * @param i2        the index of the last marker (inclusive).
+   * @param mean      the copy number mean.
+   * @return the segment.
+   */
+  private static Segment createSegment(String name, Chromosome chr, BinarySearch<GenomicRegion> gapSearch, int i1,
+      int i2, double mean) {
+    Segment segment = new Segment();
+    segment.name = name;
+    segment.chr = chr;
+    segment.start = gapSearch.getFeaturesAt(chr, i1).getPosition();
+    segment.end = gapSearch.getFeaturesAt(chr, i2).getPosition();
+    segment.markers = i2 - i1 + 1;
+    segment.copyNumberMean = mean;
+
+    return segment;
+  }
+}
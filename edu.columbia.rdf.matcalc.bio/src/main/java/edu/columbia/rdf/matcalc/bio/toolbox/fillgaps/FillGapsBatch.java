@@ -0,0 +1,322 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jebtk.bioinformatics.gapsearch.BinarySearch;
+import org.jebtk.bioinformatics.genomic.Chromosome;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.bioinformatics.genomic.GenomicRegion;
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.Io;
+import org.jebtk.core.io.PathUtils;
+import org.jebtk.core.text.Join;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.columbia.rdf.matcalc.bio.ForkJoinService;
+
+/**
+ * Fills the gaps of a SEG file without a user interface so that it can be run
+ * from the command line on a server. Segments are streamed in one sample at a
+ * time and the filled segments are written out as soon as each sample is
+ * finished, e.g.
+ * 
+ * java edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.FillGapsBatch --markers
+ * snp6.bed.gz --in cohort.seg --out cohort.filled.seg
+ *
+ * @author Antony Holmes
+ *
+ */
+public class FillGapsBatch {
+  private static final Logger LOG = LoggerFactory.getLogger(FillGapsBatch.class);
+
+  private FillGapsBatch() {
+    // Do nothing
+  }
+
+  public static void main(String[] args) {
+    Map<String, String> options = new HashMap<String, String>();
+
+    for (int i = 0; i < args.length; ++i) {
+      String arg = args[i];
+
+      if (arg.equals("-h") || arg.equals("--help")) {
+        usage();
+
+        return;
+      }
+
+      // Every option takes a value
+      if (!arg.startsWith("--") || i == args.length - 1) {
+        usage();
+
+        System.exit(1);
+      }
+
+      options.put(arg.substring(2), args[++i]);
+    }
+
+    if (!run(options)) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Validate the command line options and fill the gaps of the SEG file. If
+   * the options are not valid, the usage is printed.
+   *
+   * @param options the options keyed by their long name without the leading
+   *                dashes.
+   * @return true if the gaps were filled, false otherwise.
+   */
+  public static boolean run(Map<String, String> options) {
+    if (!options.containsKey("markers") || !options.containsKey("in") || !options.containsKey("out")) {
+      usage();
+
+      return false;
+    }
+
+    Genome genome = options.containsKey("genome") ? parseGenome(options.get("genome")) : Genome.HG18;
+
+    if (genome == null) {
+      System.err.println("Unknown genome " + options.get("genome") + ".");
+
+      usage();
+
+      return false;
+    }
+
+    double meanZero = FillGapsModule.SEGMENT_MEAN_ZERO;
+
+    if (options.containsKey("mean-zero")) {
+      try {
+        meanZero = Double.parseDouble(options.get("mean-zero"));
+      } catch (NumberFormatException e) {
+        System.err.println("--mean-zero must be a number.");
+
+        usage();
+
+        return false;
+      }
+    }
+
+    Path samplesFile = options.containsKey("samples") ? PathUtils.getPath(options.get("samples")) : null;
+
+    try {
+      fill(genome,
+          PathUtils.getPath(options.get("markers")),
+          samplesFile,
+          meanZero,
+          PathUtils.getPath(options.get("in")),
+          PathUtils.getPath(options.get("out")));
+    } catch (IOException e) {
+      LOG.error("Could not fill gaps: {}", e.getMessage());
+
+      e.printStackTrace();
+
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the genome with a given assembly name.
+   *
+   * @param name the assembly, e.g. hg19.
+   * @return the genome or null if the assembly is not supported.
+   */
+  public static Genome parseGenome(String name) {
+    if (name.equalsIgnoreCase("hg18")) {
+      return Genome.HG18;
+    } else if (name.equalsIgnoreCase("hg19")) {
+      return Genome.HG19;
+    } else {
+      return null;
+    }
+  }
+
+  private static void usage() {
+    System.err.println("Usage: FillGapsBatch --markers <bed> --in <seg> --out <seg> [options]");
+    System.err.println();
+    System.err.println("  --markers <bed>      marker BED file, e.g. snp6.bed.gz.");
+    System.err.println("  --in <seg>           SEG file to fill.");
+    System.err.println("  --out <seg>          file to write the filled segments to.");
+    System.err.println("  --genome <name>      hg18 or hg19 (default hg18).");
+    System.err.println("  --samples <file>     samples to fill, one per line (default all).");
+    System.err.println("  --mean-zero <value>  copy number mean of filler segments (default "
+        + FillGapsModule.SEGMENT_MEAN_ZERO + ").");
+  }
+
+  /**
+   * Fill the gaps of the segments in a SEG file.
+   *
+   * @param genome      the genome the chromosomes belong to.
+   * @param markersFile the marker BED file.
+   * @param samplesFile a file listing the samples to fill, one per line. If
+   *                    null, all of the samples in the SEG file are filled.
+   * @param meanZero    the copy number mean to give to filler segments.
+   * @param in          the SEG file to fill.
+   * @param out         the file to write the filled segments to.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void fill(Genome genome, Path markersFile, Path samplesFile, double meanZero, Path in, Path out)
+      throws IOException {
+    LOG.info("Loading markers from {}...", markersFile);
+
+    BinarySearch<GenomicRegion> gapSearch = MarkerService.getInstance().getSearch(genome, markersFile);
+
+    Set<String> samples = samplesFile != null ? readSamples(samplesFile) : null;
+
+    // Samples that have already been written so we can detect samples
+    // whose segments are not on consecutive lines
+    Set<String> used = new HashSet<String>();
+
+    ForkJoinPool pool = ForkJoinService.getInstance().getPool();
+
+    SegReader reader = new SegReader(in, genome);
+
+    BufferedWriter writer = FileUtils.newBufferedWriter(out);
+
+    try {
+      writer.write(Join.onTab().values("segment", "chromosome", "start", "end", "num.markers", "seg.mean").toString());
+      writer.newLine();
+
+      List<Segment> segments;
+
+      while ((segments = reader.nextSample()) != null) {
+        String name = segments.get(0).name;
+
+        if (samples != null && !samples.contains(name)) {
+          continue;
+        }
+
+        if (used.contains(name)) {
+          throw new IOException("The segments of " + name + " are not on consecutive lines in " + in + ".");
+        }
+
+        used.add(name);
+
+        LOG.info("Filling gaps in {}...", name);
+
+        write(fill(name, FillGaps.groupByChr(segments), gapSearch, meanZero, pool), writer);
+      }
+
+      // Samples without any segments are filled entirely
+
+      if (samples != null) {
+        for (String name : samples) {
+          if (!used.contains(name)) {
+            write(fill(name, null, gapSearch, meanZero, pool), writer);
+          }
+        }
+      }
+    } finally {
+      writer.close();
+      reader.close();
+    }
+  }
+
+  /**
+   * Fill the gaps of one sample, processing each chromosome in parallel.
+   *
+   * @param name      the sample name.
+   * @param chrMap    the segments of the sample keyed by chromosome.
+   * @param gapSearch the marker search.
+   * @param meanZero  the copy number mean to give to filler segments.
+   * @param pool      the pool to run the chromosomes on.
+   * @return the running tasks in chromosome order.
+   */
+  private static List<FillGapsTask> fill(String name, Map<Chromosome, List<Segment>> chrMap,
+      BinarySearch<GenomicRegion> gapSearch, double meanZero, ForkJoinPool pool) {
+    List<FillGapsTask> tasks = FillGaps.createTasks(name, chrMap, gapSearch, meanZero);
+
+    for (FillGapsTask task : tasks) {
+      pool.execute(task);
+    }
+
+    return tasks;
+  }
+
+  /**
+   * Write the filled segments of a sample as each chromosome finishes.
+   *
+   * @param tasks  the running tasks of the sample.
+   * @param writer the writer.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static void write(List<FillGapsTask> tasks, BufferedWriter writer) throws IOException {
+    for (FillGapsTask task : tasks) {
+      for (Segment s : task.join().filled) {
+        writer.write(Join.onTab().values(s.name, s.chr, s.start, s.end, s.markers, s.copyNumberMean).toString());
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * Read the sample names from a file with one sample per line.
+   *
+   * @param file the file.
+   * @return the sample names.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static Set<String> readSamples(Path file) throws IOException {
+    Set<String> ret = new TreeSet<String>();
+
+    BufferedReader reader = FileUtils.newBufferedReader(file);
+
+    String line;
+
+    try {
+      while ((line = reader.readLine()) != null) {
+        if (Io.isEmptyLine(line)) {
+          continue;
+        }
+
+        ret.add(line.trim());
+      }
+    } finally {
+      reader.close();
+    }
+
+    return ret;
+  }
+}
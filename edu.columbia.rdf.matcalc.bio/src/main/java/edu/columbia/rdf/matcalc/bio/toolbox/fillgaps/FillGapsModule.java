@@ -30,25 +30,19 @@ package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
-import org.jebtk.bioinformatics.ext.ucsc.Bed;
 import org.jebtk.bioinformatics.ext.ucsc.UCSCTrack;
-import org.jebtk.bioinformatics.gapsearch.BinaryGapSearch;
 import org.jebtk.bioinformatics.gapsearch.BinarySearch;
-import org.jebtk.bioinformatics.gapsearch.GappedSearchFeatures;
 import org.jebtk.bioinformatics.genomic.Chromosome;
 import org.jebtk.bioinformatics.genomic.ChromosomeService;
 import org.jebtk.bioinformatics.genomic.Genome;
 import org.jebtk.bioinformatics.genomic.GenomicElement;
 import org.jebtk.bioinformatics.genomic.GenomicRegion;
-import org.jebtk.bioinformatics.genomic.GenomicType;
-import org.jebtk.bioinformatics.genomic.Human;
 import org.jebtk.core.cli.ArgParser;
 import org.jebtk.core.cli.Args;
 import org.jebtk.core.io.FileUtils;
@@ -61,6 +55,8 @@ import org.jebtk.modern.dialog.ModernDialogStatus;
 import org.jebtk.modern.dialog.ModernMessageDialog;
 import org.jebtk.modern.event.ModernClickEvent;
 import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.io.FileDialog;
+import org.jebtk.modern.io.RecentFilesService;
 import org.jebtk.modern.ribbon.RibbonLargeButton;
 import org.jebtk.modern.tooltip.ModernToolTip;
 import org.slf4j.Logger;
@@ -70,9 +66,11 @@ import edu.columbia.rdf.matcalc.MainMatCalcWindow;
 import edu.columbia.rdf.matcalc.toolbox.Module;
 
 /**
- * Merges designated segments together using the merge column. Consecutive rows
- * with the same merge id will be merged together. Coordinates and copy number
- * will be adjusted but genes, cytobands etc are not.
+ * Fills the gaps between the segments of a SEG file so that every marker is
+ * covered by exactly one segment of each sample. Overlapping segments are
+ * removed first and the gaps are then filled with segments of the filler
+ * mean. Passing --in runs the module without the window, see
+ * {@link FillGapsBatch}.
  *
  * @author Antony Holmes
  *
@@ -86,14 +84,28 @@ public class FillGapsModule extends Module implements ModernClickListener {
   private ModernButton mFillGapsButton = new RibbonLargeButton("Fill Gaps",
       AssetService.getInstance().loadIcon("fill_gaps", 32), AssetService.getInstance().loadIcon("fill_gaps", 24));
 
+  /**
+   * Fills the gaps of a SEG file without loading it into a matrix first.
+   */
+  private ModernButton mFillFileButton = new RibbonLargeButton("Fill SEG File",
+      AssetService.getInstance().loadIcon("fill_gaps", 32), AssetService.getInstance().loadIcon("fill_gaps", 24));
+
   private static final Path RES_FOLDER = PathUtils.getPath("res/modules/annotation");
 
   public static final double SEGMENT_MEAN_ZERO = 0.0001;
 
   private static final Args ARGS = new Args();
 
+  private static final String[] BATCH_OPTIONS = { "markers", "samples", "mean-zero", "genome", "in", "out" };
+
   static {
     ARGS.add('s', "switch-tab");
+    ARGS.add('m', "markers", true);
+    ARGS.add('l', "samples", true);
+    ARGS.add('z', "mean-zero", true);
+    ARGS.add('i', "in", true);
+    ARGS.add('o', "out", true);
+    ARGS.add('g', "genome", true);
   }
 
   /**
@@ -122,11 +134,41 @@ public class FillGapsModule extends Module implements ModernClickListener {
 
   @Override
   public void run(ArgParser ap) {
+    if (ap.contains("in")) {
+      // Headless batch mode, so there is no window
+      runBatch(ap);
+
+      return;
+    }
+
     if (ap.contains("switch-tab")) {
       mWindow.getRibbon().changeTab("Annotation");
     }
   }
 
+  /**
+   * Fill the gaps of a SEG file without creating a window, e.g.
+   * 
+   * --markers snp6.bed.gz --genome hg18 --samples samples.txt --in cohort.seg
+   * --out cohort.filled.seg
+   * 
+   * The same options can be given to {@link FillGapsBatch#main(String[])} to
+   * run without starting the application.
+   * 
+   * @param ap the command line arguments.
+   */
+  private static void runBatch(ArgParser ap) {
+    Map<String, String> options = new TreeMap<String, String>();
+
+    for (String name : BATCH_OPTIONS) {
+      if (ap.contains(name)) {
+        options.put(name, ap.getArg(name));
+      }
+    }
+
+    FillGapsBatch.run(options);
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -138,7 +180,7 @@ public class FillGapsModule extends Module implements ModernClickListener {
     mWindow = window;
 
     try {
-      load();
+      load(mBedFileMap, mDescriptionMap);
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -150,9 +192,23 @@ public class FillGapsModule extends Module implements ModernClickListener {
 
     mFillGapsButton.addClickListener(this);
 
+    mFillFileButton.setToolTip(new ModernToolTip("Fill SEG File", "Fill gaps in a SEG file using reference."));
+    mFillFileButton.setClickMessage("Fill SEG File");
+    mWindow.getRibbon().getToolbar("Bioinformatics").getSection("Fill Gaps").add(mFillFileButton);
+
+    mFillFileButton.addClickListener(this);
   }
 
-  private void load() throws IOException {
+  /**
+   * Find the marker BED files available in the resources folder.
+   * 
+   * @param bedFileMap     the map to add the BED files to keyed by track name.
+   * @param descriptionMap the map to add the track attributes to keyed by track
+   *                       name.
+   * @throws IOException
+   */
+  public static void load(Map<String, Path> bedFileMap, Map<String, Map<String, String>> descriptionMap)
+      throws IOException {
     if (!FileUtils.exists(RES_FOLDER)) {
       return;
     }
@@ -168,10 +224,10 @@ public class FillGapsModule extends Module implements ModernClickListener {
           e.printStackTrace();
         }
 
-        mBedFileMap.put(name, file);
+        bedFileMap.put(name, file);
 
         try {
-          mDescriptionMap.put(name, UCSCTrack.getTrackAttributes(file));
+          descriptionMap.put(name, UCSCTrack.getTrackAttributes(file));
         } catch (IOException e) {
           e.printStackTrace();
         }
@@ -193,6 +249,12 @@ public class FillGapsModule extends Module implements ModernClickListener {
       } catch (Exception e1) {
         e1.printStackTrace();
       }
+    } else if (e.getSource().equals(mFillFileButton)) {
+      try {
+        annotateFile(Genome.HG18);
+      } catch (Exception e1) {
+        e1.printStackTrace();
+      }
     }
   }
 
@@ -224,10 +286,6 @@ public class FillGapsModule extends Module implements ModernClickListener {
       return;
     }
 
-    UCSCTrack track = Bed.parseTrack(GenomicType.REGION, mBedFileMap.get(dialog.getAnnotation()));
-
-    BinarySearch<GenomicRegion> gapSearch = getBinarySearch(track.getElements());
-
     List<String> samples = dialog.getSamples();
 
     double meanZero = dialog.getMeanZero();
@@ -266,259 +324,51 @@ public class FillGapsModule extends Module implements ModernClickListener {
       addSegment(segment, segments);
     }
 
-    // now we have some segments, update to closest snp probes
-
-    for (String name : segments.keySet()) {
-      for (Chromosome chr : segments.get(name).keySet()) {
-        for (Segment segment : segments.get(name).get(chr)) {
-          List<GappedSearchFeatures<GenomicRegion>> features = gapSearch.getFeatures(chr, segment.start, segment.end);
-
-          // update so the segment begins and ends on a probe
-          segment.start = features.get(0).getPosition();
-          segment.end = features.get(features.size() - 1).getPosition();
-          segment.markers = features.size();
-        }
-      }
-    }
-
-    // Sort by position
-
-    for (String name : segments.keySet()) {
-      for (Chromosome chr : segments.get(name).keySet()) {
-        Collections.sort(segments.get(name).get(chr));
-      }
-    }
-
-    mWindow.history().addToHistory("Closest Markers", segmentsToMatrix(segments));
-
-    // regions that happen to start and end close to each other may end
-    // up overlapping since we extend regions in both directions to map
-    // to probes. Thus in adjacent segments s1 and s2, s1's end may be
-    // extended past s2's start and s2's start may be extended in the 5'
-    // beyond s1's end. To correct for this, set overlapping ends to the
-    // start of the next segment
-
-    /*
-     * for (String name : segments.keySet()) { for (Chromosome chr :
-     * segments.get(name).keySet()) { for (int i = 0; i <
-     * segments.get(name).get(chr).size() - 1; ++i) { Segment segment1 =
-     * segments.get(name).get(chr).get(i); Segment segment2 =
-     * segments.get(name).get(chr).get(i + 1);
-     * 
-     * if (segment1.end >= segment2.start) { int index =
-     * BinaryGapSearch.getStartIndex(gapSearch.getFeatures(chr), segment2.start);
-     * 
-     * System.err.println("hum " + segment1.end + " " + segment2.start + " " + chr);
-     * 
-     * 
-     * System.err.println("new end " + segment1.end + " " +
-     * (gapSearch.getFeaturesAt(chr, index - 1).getPosition()));
-     * 
-     * segment1.end = gapSearch.getFeaturesAt(chr, index - 1).getPosition();
-     * 
-     * // loss of a marker --segment1.markers; } } } }
-     */
-
-    // If a segment runs into another, merge the two as one
-
-    for (String name : segments.keySet()) {
-      for (Chromosome chr : segments.get(name).keySet()) {
-        boolean merged = true;
-
-        while (merged) {
-          merged = false;
-
-          int remove = -1;
-
-          for (int i = 0; i < segments.get(name).get(chr).size() - 1; ++i) {
-            Segment segment1 = segments.get(name).get(chr).get(i);
-            Segment segment2 = segments.get(name).get(chr).get(i + 1);
-
-            // merge 1 into 2
-            if (segment1.end >= segment2.start) {
-              segment1.end = Math.max(segment1.end, segment2.end);
-
-              int i1 = BinaryGapSearch.getStartIndex(gapSearch.getBins(chr), segment1.start);
-              int i2 = BinaryGapSearch.getStartIndex(gapSearch.getBins(chr), segment1.end);
-
-              segment1.markers = i2 - i1 + 1;
-
-              System.err.println("hum " + segment1.start + " " + segment1.end + " " + segment2.start + " "
-                  + segment2.end + " " + chr + " " + i1 + " " + i2);
-
-              remove = i + 1;
-
-              merged = true;
-
-              break;
-            }
-          }
-
-          // Remove offending segments
-          if (remove != -1) {
-            segments.get(name).get(chr).remove(remove);
-          }
-        }
-      }
-    }
-
-    mWindow.history().addToHistory("Remove Overlaps", segmentsToMatrix(segments));
-
-    //
-    // Fill in the blanks
-    //
-
-    Map<String, Map<Chromosome, List<Segment>>> newSegments = new TreeMap<String, Map<Chromosome, List<Segment>>>();
-
-    Segment segment;
-    Segment previousSegment;
-
-    Segment newSegment;
-    int index;
-    int previousIndex;
-    int nextIndex;
-
-    // Since the segments are ordered, add a new segment from the
-    // chr start to this segment start
-
-    for (String name : segments.keySet()) {
-      for (Chromosome chr : segments.get(name).keySet()) {
-        segment = segments.get(name).get(chr).get(0);
-
-        index = BinaryGapSearch.getStartIndex(gapSearch.getBins(chr), segment.start);
-
-        // System.err.println("huh " + segment.name + " " + chr + " " +
-        // segment.start +
-        // " " + index);
-
-        if (index > 0) {
-          previousIndex = index - 1;
-
-          newSegment = new Segment();
-          newSegment.name = name;
-          newSegment.chr = chr;
-          newSegment.start = gapSearch.getFeaturesAt(chr, 0).getPosition();
-          newSegment.end = gapSearch.getFeaturesAt(chr, previousIndex).getPosition();
-          newSegment.markers = previousIndex + 1;
-          newSegment.copyNumberMean = meanZero;
-
-          addSegment(newSegment, newSegments);
-        }
+    // Samples are independent so fill them in the background
+    new FillGapsWorker(mWindow, genome, mBedFileMap.get(dialog.getAnnotation()), segments, samples, meanZero).execute();
+  }
 
-        // Add the first segment
+  /**
+   * Fill the gaps of a SEG file, streaming the segments one sample at a time
+   * so that the whole cohort never needs to be loaded.
+   * 
+   * @throws Exception
+   */
+  private void annotateFile(Genome genome) throws Exception {
+    Path file = FileDialog.open(mWindow).filter(new SegGuiFileFilter())
+        .getFile(RecentFilesService.getInstance().getPwd());
 
-        addSegment(segment, newSegments);
-      }
+    if (file == null) {
+      return;
     }
 
-    // Fill in the blanks for these segments by taking each segment and
-    // getting its rank, then calculate the difference in rank between it
-    // and the previous segment. If the difference is greater than one,
-    // add a blank.
-
-    for (String name : segments.keySet()) {
-      for (Chromosome chr : segments.get(name).keySet()) {
-        for (int i = 1; i < segments.get(name).get(chr).size(); ++i) {
-          segment = segments.get(name).get(chr).get(i);
-
-          index = BinaryGapSearch.getStartIndex(gapSearch.getBins(chr), segment.start);
-
-          System.err.println("i " + index + " " + segment.start);
-
-          previousSegment = segments.get(name).get(chr).get(i - 1);
-
-          previousIndex = BinarySearch.getEndIndex(gapSearch.getBins(chr), previousSegment.end);
-
-          System.err.println("pi " + previousIndex + " " + previousSegment.end);
-
-          if (index - previousIndex > 1) {
-            // Since there is a gap of more than one rank, we need
-            // to make a segment to fit in between the two segments
-            --index;
-            ++previousIndex;
-
-            newSegment = new Segment();
-            newSegment.name = name;
-            newSegment.chr = chr;
-            newSegment.start = gapSearch.getFeaturesAt(chr, previousIndex).getPosition();
-            newSegment.end = gapSearch.getFeaturesAt(chr, index).getPosition();
-            newSegment.markers = index - previousIndex + 1;
-            newSegment.copyNumberMean = meanZero;
+    FillGapsDialog dialog = new FillGapsDialog(mWindow, mBedFileMap, mDescriptionMap);
 
-            addSegment(newSegment, newSegments);
-          }
+    dialog.setVisible(true);
 
-          addSegment(segment, newSegments);
-        }
-      }
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
     }
 
-    // Now deal with the end segments
-
-    // Since the segments are ordered, add a new segment from the
-    // chr start to this segment start
-
-    for (String name : segments.keySet()) {
-      for (Chromosome chr : segments.get(name).keySet()) {
-        segment = segments.get(name).get(chr).get(segments.get(name).get(chr).size() - 1);
-
-        index = BinarySearch.getStartIndex(gapSearch.getBins(segment.chr), segment.end);
-
-        nextIndex = gapSearch.getBins(segment.chr).size() - 1; // gapSearch.size(chr)
-                                                               // - 1;
-
-        if (index < nextIndex) {
-          // System.err.println(chr + " " + index + " " + nextIndex);
-
-          // If the index is not the last marker, fill the gap to
-          // the end of the chromosome
-
-          // We start at the next index.
-          ++index;
+    List<String> samples = dialog.getSamples();
 
-          newSegment = new Segment();
-          newSegment.name = name;
-          newSegment.chr = chr;
-          newSegment.start = gapSearch.getFeaturesAt(chr, index).getPosition();
-          newSegment.end = gapSearch.getFeaturesAt(chr, nextIndex).getPosition();
-          newSegment.markers = nextIndex - index + 1;
-          newSegment.copyNumberMean = meanZero;
+    if (samples == null) {
+      ModernMessageDialog.createDialog(mWindow, "You must load some samples", MessageDialogType.WARNING);
 
-          addSegment(newSegment, newSegments);
-        }
-      }
+      return;
     }
 
-    //
-    // Now deal with segments with chromosomes missing
-    //
-
-    for (String name : samples) {
-      for (Chromosome chr : Human.CHROMOSOMES) {
-        if (!newSegments.containsKey(name) || !newSegments.get(name).containsKey(chr)) {
-          // Empty chr that needs filling
-
-          if (!gapSearch.containsChr(chr)) {
-            continue;
-          }
-
-          newSegment = new Segment();
-          newSegment.name = name;
-          newSegment.chr = chr;
-          newSegment.start = gapSearch.getFeaturesAt(chr, 0).getPosition();
-          newSegment.end = gapSearch.getFeaturesAt(chr, gapSearch.size(chr) - 1).getPosition();
-          newSegment.markers = gapSearch.size(chr);
-          newSegment.copyNumberMean = meanZero;
+    new FillGapsWorker(mWindow, genome, mBedFileMap.get(dialog.getAnnotation()), file, samples, dialog.getMeanZero())
+        .execute();
+  }
 
-          addSegment(newSegment, newSegments);
-        }
-      }
+  public static void addSegments(final List<Segment> list, Map<String, Map<Chromosome, List<Segment>>> segments) {
+    for (Segment segment : list) {
+      addSegment(segment, segments);
     }
-
-    mWindow.history().addToHistory("Fill Gaps", segmentsToMatrix(newSegments));
   }
 
-  private static void addSegment(final Segment segment, Map<String, Map<Chromosome, List<Segment>>> segments) {
+  public static void addSegment(final Segment segment, Map<String, Map<Chromosome, List<Segment>>> segments) {
     if (!segments.containsKey(segment.name)) {
       segments.put(segment.name, new TreeMap<Chromosome, List<Segment>>());
     }
@@ -530,43 +380,8 @@ public class FillGapsModule extends Module implements ModernClickListener {
     segments.get(segment.name).get(segment.chr).add(segment);
   }
 
-  private static DataFrame segmentsToMatrix(Map<String, Map<Chromosome, List<Segment>>> segments) {
-
-    int n = 0;
-
-    for (String name : segments.keySet()) {
-      for (Chromosome chr : segments.get(name).keySet()) {
-        n += segments.get(name).get(chr).size();
-      }
-    }
-
-    DataFrame ret = DataFrame.createDataFrame(n, 6);
-
-    ret.setColumnName(0, "segment");
-    ret.setColumnName(1, "chromosome");
-    ret.setColumnName(2, "start");
-    ret.setColumnName(3, "end");
-    ret.setColumnName(4, "num.markers");
-    ret.setColumnName(5, "seg.mean");
-
-    int r = 0;
-
-    for (String name : segments.keySet()) {
-      for (Chromosome chr : segments.get(name).keySet()) {
-        for (Segment s : segments.get(name).get(chr)) {
-          ret.set(r, 0, s.name);
-          ret.set(r, 1, s.chr.toString());
-          ret.set(r, 2, s.start);
-          ret.set(r, 3, s.end);
-          ret.set(r, 4, s.markers);
-          ret.set(r, 5, s.copyNumberMean);
-
-          ++r;
-        }
-      }
-    }
-
-    return ret;
+  public static DataFrame segmentsToMatrix(Map<String, Map<Chromosome, List<Segment>>> segments) {
+    return SegmentTable.create(segments).toDataFrame();
   }
 
   public static BinarySearch<GenomicRegion> getBinarySearch(List<GenomicElement> regions) {
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import org.jebtk.bioinformatics.gapsearch.BinarySearch;
+import org.jebtk.bioinformatics.genomic.Chromosome;
+import org.jebtk.bioinformatics.genomic.GenomicRegion;
+
+/**
+ * Fills the gaps of one sample on one chromosome so that samples and
+ * chromosomes can be processed in parallel on a fork join pool.
+ */
+public class FillGapsTask extends RecursiveTask<FillGapsResult> {
+  private static final long serialVersionUID = 1L;
+
+  private final String mName;
+  private final Chromosome mChr;
+  private final List<Segment> mSegments;
+  private final BinarySearch<GenomicRegion> mGapSearch;
+  private final double mMeanZero;
+
+  /**
+   * Instantiates a new fill gaps task.
+   *
+   * @param name      the sample name.
+   * @param chr       the chromosome.
+   * @param segments  the segments of the sample on the chromosome, may be null.
+   * @param gapSearch the marker search.
+   * @param meanZero  the copy number mean to give to filler segments.
+   */
+  public FillGapsTask(String name, Chromosome chr, List<Segment> segments, BinarySearch<GenomicRegion> gapSearch,
+      double meanZero) {
+    mName = name;
+    mChr = chr;
+    mSegments = segments;
+    mGapSearch = gapSearch;
+    mMeanZero = meanZero;
+  }
+
+  @Override
+  protected FillGapsResult compute() {
+    return FillGaps.fill(mName, mChr, mSegments, mGapSearch, mMeanZero);
+  }
+}
@@ -0,0 +1,268 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jebtk.bioinformatics.gapsearch.BinarySearch;
+import org.jebtk.bioinformatics.genomic.Chromosome;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.bioinformatics.genomic.GenomicRegion;
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+
+/**
+ * Fills the gaps of each sample in the background. Each sample and chromosome
+ * is processed as a separate task on a fork join pool whilst a progress
+ * monitor lets the user follow and cancel the run. Segments can either come
+ * from the current matrix or be streamed from a SEG file. The results are
+ * added to the window history once all tasks have finished.
+ * 
+ * Whilst the input is streamed, the closest, merged and filled segments of the
+ * whole cohort are kept because all three are shown as matrices in the
+ * history. They are held in column oriented {@link SegmentTable}s, which cost
+ * a few dozen bytes per segment, so even SNP6 cohorts fit comfortably. Cohorts
+ * too large for that should be filled with {@link FillGapsBatch}, which writes
+ * each sample to disk as soon as it is finished.
+ */
+public class FillGapsWorker extends ProgressWorker {
+  private final MainMatCalcWindow mWindow;
+  private final Genome mGenome;
+  private final Path mBedFile;
+  private final Map<String, Map<Chromosome, List<Segment>>> mSegments;
+  private final Path mSegFile;
+  private final Collection<String> mSamples;
+  private final double mMeanZero;
+
+  private DataFrame mClosestM;
+  private DataFrame mMergedM;
+  private DataFrame mFilledM;
+
+  /**
+   * Instantiates a new fill gaps worker for segments that are already in
+   * memory.
+   *
+   * @param window   the window to add the results to.
+   * @param genome   the genome the markers belong to.
+   * @param bedFile  the marker BED file.
+   * @param segments the segments organized by sample and chromosome.
+   * @param samples  the samples to fill.
+   * @param meanZero the copy number mean to give to filler segments.
+   */
+  public FillGapsWorker(MainMatCalcWindow window, Genome genome, Path bedFile,
+      Map<String, Map<Chromosome, List<Segment>>> segments, Collection<String> samples, double meanZero) {
+    this(window, genome, bedFile, segments, null, samples, meanZero);
+  }
+
+  /**
+   * Instantiates a new fill gaps worker that streams the segments from a SEG
+   * file.
+   *
+   * @param window   the window to add the results to.
+   * @param genome   the genome the markers belong to.
+   * @param bedFile  the marker BED file.
+   * @param segFile  the SEG file.
+   * @param samples  the samples to fill.
+   * @param meanZero the copy number mean to give to filler segments.
+   */
+  public FillGapsWorker(MainMatCalcWindow window, Genome genome, Path bedFile, Path segFile,
+      Collection<String> samples, double meanZero) {
+    this(window, genome, bedFile, null, segFile, samples, meanZero);
+  }
+
+  private FillGapsWorker(MainMatCalcWindow window, Genome genome, Path bedFile,
+      Map<String, Map<Chromosome, List<Segment>>> segments, Path segFile, Collection<String> samples,
+      double meanZero) {
+    super(window, "Filling gaps...");
+
+    mWindow = window;
+    mGenome = genome;
+    mBedFile = bedFile;
+    mSegments = segments;
+    mSegFile = segFile;
+    mSamples = new TreeSet<String>(samples);
+    mMeanZero = meanZero;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    BinarySearch<GenomicRegion> gapSearch = MarkerService.getInstance().getSearch(mGenome, mBedFile);
+
+    SegmentTable closest = new SegmentTable();
+    SegmentTable merged = new SegmentTable();
+    SegmentTable filled = new SegmentTable();
+
+    boolean finished;
+
+    if (mSegFile != null) {
+      finished = fillFile(gapSearch, closest, merged, filled);
+    } else {
+      finished = fillSegments(gapSearch, closest, merged, filled);
+    }
+
+    if (!finished) {
+      return null;
+    }
+
+    mClosestM = closest.toDataFrame();
+    mMergedM = merged.toDataFrame();
+    mFilledM = filled.toDataFrame();
+
+    return null;
+  }
+
+  /**
+   * Fill the gaps of segments that are already in memory.
+   *
+   * @return true if every sample was filled, false if the user cancelled.
+   */
+  private boolean fillSegments(BinarySearch<GenomicRegion> gapSearch, final SegmentTable closest,
+      final SegmentTable merged, final SegmentTable filled) throws Exception {
+    final List<FillGapsTask> tasks = new ArrayList<FillGapsTask>();
+
+    for (String name : mSamples) {
+      tasks.addAll(FillGaps.createTasks(name, mSegments.get(name), gapSearch, mMeanZero));
+    }
+
+    // The tasks are ordered by sample and chromosome so the results can be
+    // appended directly
+    return run(tasks.size(), new TaskSource<FillGapsResult>() {
+      @Override
+      public FillGapsTask create(int i) {
+        return tasks.get(i);
+      }
+
+      @Override
+      public void finished(int i, FillGapsResult result) {
+        add(result, closest, merged, filled);
+      }
+    });
+  }
+
+  /**
+   * Fill the gaps of a SEG file, streaming it one sample at a time so that
+   * only the segments of the current sample are held in memory.
+   *
+   * @return true if every sample was filled, false if the user cancelled.
+   */
+  private boolean fillFile(BinarySearch<GenomicRegion> gapSearch, SegmentTable closest, SegmentTable merged,
+      SegmentTable filled) throws Exception {
+    Set<String> remaining = new TreeSet<String>(mSamples);
+
+    // Samples that have already been filled so we can detect samples whose
+    // segments are not on consecutive lines
+    Set<String> used = new HashSet<String>();
+
+    int done = 0;
+
+    SegReader reader = new SegReader(mSegFile, mGenome);
+
+    try {
+      List<Segment> segments;
+
+      while ((segments = reader.nextSample()) != null) {
+        String name = segments.get(0).name;
+
+        if (used.contains(name)) {
+          throw new IOException("The segments of " + name + " are not on consecutive lines in " + mSegFile + ".");
+        }
+
+        used.add(name);
+
+        // Skip samples that were not requested
+        if (!remaining.remove(name)) {
+          continue;
+        }
+
+        if (!fillSample(name, FillGaps.groupByChr(segments), gapSearch, done++, closest, merged, filled)) {
+          return false;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    // Samples without any segments are filled entirely
+
+    for (String name : remaining) {
+      if (!fillSample(name, null, gapSearch, done++, closest, merged, filled)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Fill the chromosomes of one sample in parallel.
+   *
+   * @param done the number of samples already filled, used for the progress.
+   * @return true if the sample was filled, false if the user cancelled.
+   */
+  private boolean fillSample(String name, Map<Chromosome, List<Segment>> chrMap,
+      BinarySearch<GenomicRegion> gapSearch, int done, SegmentTable closest, SegmentTable merged,
+      SegmentTable filled) throws Exception {
+    List<FillGapsTask> tasks = FillGaps.createTasks(name, chrMap, gapSearch, mMeanZero);
+
+    List<FillGapsResult> results = invokeAll(tasks, 100 * done / mSamples.size(),
+        100 * (done + 1) / mSamples.size());
+
+    if (results == null) {
+      return false;
+    }
+
+    for (FillGapsResult result : results) {
+      add(result, closest, merged, filled);
+    }
+
+    return true;
+  }
+
+  private static void add(FillGapsResult result, SegmentTable closest, SegmentTable merged, SegmentTable filled) {
+    closest.addAll(result.closest);
+    merged.addAll(result.merged);
+    filled.addAll(result.filled);
+  }
+
+  @Override
+  protected void finished() {
+    mWindow.history().addToHistory("Closest Markers", mClosestM);
+    mWindow.history().addToHistory("Remove Overlaps", mMergedM);
+    mWindow.history().addToHistory("Fill Gaps", mFilledM);
+  }
+}
@@ -0,0 +1,373 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.bioinformatics.gapsearch.BinarySearch;
+import org.jebtk.bioinformatics.gapsearch.GappedSearchFeatures;
+import org.jebtk.bioinformatics.genomic.Chromosome;
+import org.jebtk.bioinformatics.genomic.GenomicRegion;
+import org.jebtk.bioinformatics.genomic.Human;
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.DataFrame;
+
+/**
+ * Marker by sample copy number matrix. Values are stored as floats in a
+ * memory mapped temporary file, one column per sample, so that matrices far
+ * larger than the heap (e.g. 1.8M SNP6 markers by thousands of samples) can be
+ * built. The file is split into chunks of whole columns so that each chunk
+ * can be mapped separately. Columns can be written concurrently from
+ * different threads.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class MarkerMatrix implements Closeable {
+
+  /**
+   * The maximum size of a mapped chunk in bytes.
+   */
+  private static final long MAX_CHUNK_BYTES = Integer.MAX_VALUE;
+
+  /**
+   * The number of rows to transpose at once when writing the matrix.
+   */
+  private static final int WRITE_BLOCK_ROWS = 4096;
+
+  private final List<Chromosome> mChrs;
+  private final Map<Chromosome, Integer> mChrMap = new HashMap<Chromosome, Integer>();
+
+  /**
+   * The row of the first marker of each chromosome. The last entry is the
+   * total number of markers.
+   */
+  private final int[] mOffsets;
+
+  private final int[] mPositions;
+
+  private final List<String> mSamples;
+
+  private final int mRows;
+
+  private final int mColsPerChunk;
+
+  private final FloatBuffer[] mChunks;
+
+  private final FileChannel mChannel;
+
+  /**
+   * Instantiates a new marker matrix.
+   *
+   * @param chrs      the chromosomes in row order.
+   * @param offsets   the row of the first marker of each chromosome plus the
+   *                  total number of markers.
+   * @param positions the position of each marker.
+   * @param samples   the sample names in column order.
+   * @throws IOException if the backing file cannot be created.
+   */
+  public MarkerMatrix(List<Chromosome> chrs, int[] offsets, int[] positions, List<String> samples)
+      throws IOException {
+    mChrs = chrs;
+    mOffsets = offsets;
+    mPositions = positions;
+    mSamples = samples;
+    mRows = positions.length;
+
+    for (int i = 0; i < chrs.size(); ++i) {
+      mChrMap.put(chrs.get(i), i);
+    }
+
+    long colBytes = Math.max(1, (long) mRows * 4);
+
+    mColsPerChunk = (int) Math.max(1, MAX_CHUNK_BYTES / colBytes);
+
+    int chunks = (samples.size() + mColsPerChunk - 1) / mColsPerChunk;
+
+    Path file = Files.createTempFile("marker_matrix", ".bin");
+
+    mChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.DELETE_ON_CLOSE);
+
+    mChunks = new FloatBuffer[chunks];
+
+    for (int i = 0; i < chunks; ++i) {
+      int cols = Math.min(mColsPerChunk, samples.size() - i * mColsPerChunk);
+
+      mChunks[i] = mChannel.map(FileChannel.MapMode.READ_WRITE, i * mColsPerChunk * colBytes, cols * colBytes)
+          .asFloatBuffer();
+    }
+  }
+
+  /**
+   * Create an empty matrix with a row for each marker of the chromosomes in a
+   * marker search.
+   *
+   * @param gapSearch the marker search.
+   * @param samples   the sample names.
+   * @return the matrix.
+   * @throws IOException if the backing file cannot be created.
+   */
+  public static MarkerMatrix create(BinarySearch<GenomicRegion> gapSearch, List<String> samples) throws IOException {
+    List<Chromosome> chrs = new ArrayList<Chromosome>();
+
+    for (Chromosome chr : Human.CHROMOSOMES) {
+      if (gapSearch.containsChr(chr)) {
+        chrs.add(chr);
+      }
+    }
+
+    int[] offsets = new int[chrs.size() + 1];
+
+    for (int i = 0; i < chrs.size(); ++i) {
+      offsets[i + 1] = offsets[i] + gapSearch.size(chrs.get(i));
+    }
+
+    int[] positions = new int[offsets[chrs.size()]];
+
+    for (int i = 0; i < chrs.size(); ++i) {
+      List<GappedSearchFeatures<GenomicRegion>> bins = gapSearch.getBins(chrs.get(i));
+
+      for (int j = 0; j < bins.size(); ++j) {
+        positions[offsets[i] + j] = bins.get(j).getPosition();
+      }
+    }
+
+    return new MarkerMatrix(chrs, offsets, positions, samples);
+  }
+
+  public int getRows() {
+    return mRows;
+  }
+
+  public int getCols() {
+    return mSamples.size();
+  }
+
+  /**
+   * Expand segments into a column with a value for each marker. Markers not
+   * covered by any segment are set to NaN.
+   *
+   * @param segments  the segments of a sample.
+   * @param gapSearch the marker search the matrix was created from.
+   * @return the column.
+   */
+  public float[] expand(List<Segment> segments, BinarySearch<GenomicRegion> gapSearch) {
+    float[] ret = new float[mRows];
+
+    Arrays.fill(ret, Float.NaN);
+
+    for (Segment segment : segments) {
+      Integer c = mChrMap.get(segment.chr);
+
+      if (c == null) {
+        continue;
+      }
+
+      List<GappedSearchFeatures<GenomicRegion>> bins = gapSearch.getBins(segment.chr);
+
+      int i1 = Math.max(0, BinarySearch.getStartIndex(bins, segment.start));
+      int i2 = Math.min(bins.size() - 1, BinarySearch.getEndIndex(bins, segment.end));
+
+      if (i2 >= i1) {
+        Arrays.fill(ret, mOffsets[c] + i1, mOffsets[c] + i2 + 1, (float) segment.copyNumberMean);
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Set the values of a column.
+   *
+   * @param col    the column.
+   * @param values the values, one per marker.
+   */
+  public void setColumn(int col, float[] values) {
+    FloatBuffer buffer = column(col);
+
+    buffer.put(values, 0, mRows);
+  }
+
+  /**
+   * Copy part of a column.
+   *
+   * @param col    the column.
+   * @param row    the first row to copy.
+   * @param values the array to copy the values into.
+   * @param n      the number of rows to copy.
+   */
+  public void getColumn(int col, int row, float[] values, int n) {
+    FloatBuffer buffer = column(col);
+
+    buffer.position(buffer.position() + row);
+    buffer.get(values, 0, n);
+  }
+
+  /**
+   * Returns a buffer positioned at the start of a column. Each call returns a
+   * new buffer so that threads do not share positions.
+   */
+  private FloatBuffer column(int col) {
+    FloatBuffer buffer = mChunks[col / mColsPerChunk].duplicate();
+
+    buffer.position((col % mColsPerChunk) * mRows);
+
+    return buffer;
+  }
+
+  /**
+   * Returns the label of a row in the form chr:position.
+   *
+   * @param row the row.
+   * @return the label.
+   */
+  public String getRowName(int row) {
+    int c = Arrays.binarySearch(mOffsets, row);
+
+    // Find the chromosome whose block contains the row, skipping over
+    // chromosomes without markers
+    if (c < 0) {
+      c = -c - 2;
+    } else {
+      while (c < mChrs.size() - 1 && mOffsets[c + 1] == row) {
+        ++c;
+      }
+    }
+
+    return mChrs.get(c) + ":" + mPositions[row];
+  }
+
+  /**
+   * Copy the matrix into a data frame. Only suitable for matrices that fit in
+   * memory.
+   *
+   * @return the data frame.
+   */
+  public DataFrame toDataFrame() {
+    DataFrame ret = DataFrame.createNumericalMatrix(mRows, getCols());
+
+    String[] names = new String[mRows];
+
+    for (int i = 0; i < mRows; ++i) {
+      names[i] = getRowName(i);
+    }
+
+    ret.getIndex().setAnnotation("Marker", names);
+
+    float[] values = new float[mRows];
+
+    for (int c = 0; c < getCols(); ++c) {
+      ret.setColumnName(c, mSamples.get(c));
+
+      getColumn(c, 0, values, mRows);
+
+      for (int r = 0; r < mRows; ++r) {
+        ret.set(r, c, values[r]);
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Write the matrix as a GCT file. Rows are transposed in blocks so that
+   * each column is read sequentially.
+   *
+   * @param file the file.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void writeGct(Path file) throws IOException {
+    int cols = getCols();
+
+    float[][] block = new float[cols][WRITE_BLOCK_ROWS];
+
+    BufferedWriter writer = FileUtils.newBufferedWriter(file);
+
+    try {
+      writer.write("#1.2");
+      writer.newLine();
+      writer.write(mRows + TextUtils.TAB_DELIMITER + cols);
+      writer.newLine();
+
+      writer.write("Name");
+      writer.write(TextUtils.TAB_DELIMITER);
+      writer.write("Description");
+
+      for (String sample : mSamples) {
+        writer.write(TextUtils.TAB_DELIMITER);
+        writer.write(sample);
+      }
+
+      writer.newLine();
+
+      for (int row = 0; row < mRows; row += WRITE_BLOCK_ROWS) {
+        int n = Math.min(WRITE_BLOCK_ROWS, mRows - row);
+
+        for (int c = 0; c < cols; ++c) {
+          getColumn(c, row, block[c], n);
+        }
+
+        for (int i = 0; i < n; ++i) {
+          String name = getRowName(row + i);
+
+          writer.write(name);
+          writer.write(TextUtils.TAB_DELIMITER);
+          writer.write(name);
+
+          for (int c = 0; c < cols; ++c) {
+            writer.write(TextUtils.TAB_DELIMITER);
+            writer.write(Float.toString(block[c][i]));
+          }
+
+          writer.newLine();
+        }
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    mChannel.close();
+  }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jebtk.bioinformatics.genomic.ChromosomeService;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.AssetService;
+import org.jebtk.modern.button.ModernButton;
+import org.jebtk.modern.dialog.ModernDialogStatus;
+import org.jebtk.modern.event.ModernClickEvent;
+import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.ribbon.RibbonLargeButton;
+import org.jebtk.modern.tooltip.ModernToolTip;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.toolbox.Module;
+
+/**
+ * Expands the segments in the current matrix into a marker by sample copy
+ * number matrix with a row for every marker.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class MarkerMatrixModule extends Module implements ModernClickListener {
+
+  private ModernButton mMatrixButton = new RibbonLargeButton("Marker Matrix",
+      AssetService.getInstance().loadIcon("fill_gaps", 32), AssetService.getInstance().loadIcon("fill_gaps", 24));
+
+  private MainMatCalcWindow mWindow;
+
+  private Map<String, Path> mBedFileMap = new TreeMap<String, Path>();
+
+  private Map<String, Map<String, String>> mDescriptionMap = new TreeMap<String, Map<String, String>>();
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.NameProperty#getName()
+   */
+  @Override
+  public String getName() {
+    return "Marker Matrix";
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.columbia.rdf.apps.matcalc.modules.Module#init(edu.columbia.rdf.apps.
+   * matcalc.MainMatCalcWindow)
+   */
+  @Override
+  public void init(MainMatCalcWindow window) {
+    mWindow = window;
+
+    try {
+      FillGapsModule.load(mBedFileMap, mDescriptionMap);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+
+    mMatrixButton.setToolTip(new ModernToolTip("Marker Matrix", "Create a marker by sample copy number matrix."));
+    mMatrixButton.setClickMessage("Marker Matrix");
+    mWindow.getRibbon().getToolbar("Bioinformatics").getSection("Fill Gaps").add(mMatrixButton);
+
+    mMatrixButton.addClickListener(this);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.ui.modern.event.ModernClickListener#clicked(org.abh.lib.ui.
+   * modern .event.ModernClickEvent)
+   */
+  @Override
+  public final void clicked(ModernClickEvent e) {
+    try {
+      createMatrix(Genome.HG18);
+    } catch (Exception e1) {
+      e1.printStackTrace();
+    }
+  }
+
+  private void createMatrix(Genome genome) throws Exception {
+    DataFrame m = mWindow.getCurrentMatrix();
+
+    if (m == null) {
+      showLoadMatrixError(mWindow);
+
+      return;
+    }
+
+    Map<String, Integer> colMap = findColumns(mWindow, m, "chr", "start", "end", "segment", "mean");
+
+    if (colMap == null) {
+      return;
+    }
+
+    MarkerMatrixDialog dialog = new MarkerMatrixDialog(mWindow, mBedFileMap, mDescriptionMap);
+
+    dialog.setVisible(true);
+
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
+    }
+
+    // Samples become columns in the order they appear
+    Map<String, List<Segment>> segments = new LinkedHashMap<String, List<Segment>>();
+
+    for (int r = 0; r < m.getRows(); ++r) {
+      Segment segment = new Segment();
+
+      segment.name = m.getText(r, colMap.get("segment"));
+      segment.chr = ChromosomeService.getInstance().chr(genome, m.getText(r, colMap.get("chr")));
+      segment.start = (int) m.getValue(r, colMap.get("start"));
+      segment.end = (int) m.getValue(r, colMap.get("end"));
+      segment.copyNumberMean = m.getValue(r, colMap.get("mean"));
+
+      if (!segments.containsKey(segment.name)) {
+        segments.put(segment.name, new ArrayList<Segment>());
+      }
+
+      segments.get(segment.name).add(segment);
+    }
+
+    new MarkerMatrixWorker(mWindow, genome, mBedFileMap.get(dialog.getAnnotation()), segments).execute();
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.bioinformatics.gapsearch.BinarySearch;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.bioinformatics.genomic.GenomicRegion;
+import org.jebtk.bioinformatics.ui.external.genepattern.GctGuiFileFilter;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.io.FileDialog;
+import org.jebtk.modern.io.RecentFilesService;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+
+/**
+ * Builds a marker by sample matrix in the background. Each sample is expanded
+ * into its own column on a fork join pool. Matrices small enough to view are
+ * added to the window history, larger ones are written straight to a GCT
+ * file.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class MarkerMatrixWorker extends ProgressWorker {
+
+  /**
+   * The largest matrix, in cells, that is loaded into the window.
+   */
+  public static final long MAX_VIEW_CELLS = 10000000;
+
+  private final MainMatCalcWindow mWindow;
+  private final Genome mGenome;
+  private final Path mBedFile;
+  private final Map<String, List<Segment>> mSegments;
+
+  private MarkerMatrix mMatrix;
+  private DataFrame mMatrixM;
+
+  /**
+   * Instantiates a new marker matrix worker.
+   *
+   * @param window   the window to add the matrix to.
+   * @param genome   the genome the markers belong to.
+   * @param bedFile  the marker BED file.
+   * @param segments the segments of each sample in column order.
+   */
+  public MarkerMatrixWorker(MainMatCalcWindow window, Genome genome, Path bedFile,
+      Map<String, List<Segment>> segments) {
+    super(window, "Creating marker matrix...");
+
+    mWindow = window;
+    mGenome = genome;
+    mBedFile = bedFile;
+    mSegments = segments;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    BinarySearch<GenomicRegion> gapSearch = MarkerService.getInstance().getSearch(mGenome, mBedFile);
+
+    List<String> samples = new ArrayList<String>(mSegments.keySet());
+
+    MarkerMatrix matrix = MarkerMatrix.create(gapSearch, samples);
+
+    // Set once the matrix is handed on so that its backing file is released
+    // if the user cancels or anything fails
+    boolean keep = false;
+
+    try {
+      List<MarkerMatrixTask> tasks = new ArrayList<MarkerMatrixTask>();
+
+      for (int i = 0; i < samples.size(); ++i) {
+        tasks.add(new MarkerMatrixTask(matrix, i, mSegments.get(samples.get(i)), gapSearch));
+      }
+
+      if (invokeAll(tasks) == null) {
+        return null;
+      }
+
+      if ((long) matrix.getRows() * matrix.getCols() <= MAX_VIEW_CELLS) {
+        mMatrixM = matrix.toDataFrame();
+      } else {
+        mMatrix = matrix;
+        keep = true;
+      }
+    } finally {
+      if (!keep) {
+        matrix.close();
+      }
+    }
+
+    return null;
+  }
+
+  @Override
+  protected void finished() {
+    if (mMatrixM != null) {
+      mWindow.history().addToHistory("Marker Matrix", mMatrixM);
+
+      return;
+    }
+
+    // Too large to view so write it out instead
+
+    Path file = null;
+
+    try {
+      file = saveFile();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+
+    if (file == null) {
+      close();
+
+      return;
+    }
+
+    new MarkerMatrixExportWorker(mWindow, mMatrix, file).execute();
+  }
+
+  private Path saveFile() throws IOException {
+    return FileDialog.saveFile(mWindow, RecentFilesService.getInstance().getPwd(), new GctGuiFileFilter());
+  }
+
+  private void close() {
+    try {
+      mMatrix.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,320 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jebtk.bioinformatics.ext.ucsc.Bed;
+import org.jebtk.bioinformatics.gapsearch.BinarySearch;
+import org.jebtk.bioinformatics.genomic.Chromosome;
+import org.jebtk.bioinformatics.genomic.ChromosomeService;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.bioinformatics.genomic.GenomicElement;
+import org.jebtk.bioinformatics.genomic.GenomicRegion;
+import org.jebtk.bioinformatics.genomic.GenomicType;
+import org.jebtk.core.io.PathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.columbia.rdf.matcalc.bio.CacheUtils;
+
+/**
+ * Caches the marker searches built from marker BED files so that large marker
+ * sets, such as SNP6, are only parsed once. Searches are keyed by genome, file
+ * and modification time and the least recently used searches are evicted. The
+ * marker positions can also be persisted in a binary index in the user's cache
+ * directory, which is memory mapped on later runs so that the BED file does
+ * not need to be parsed as text again. The search itself is still rebuilt one
+ * region per marker.
+ *
+ * @author Antony Holmes
+ */
+public class MarkerService {
+
+  private static class MarkerServiceLoader {
+    private static final MarkerService INSTANCE = new MarkerService();
+  }
+
+  public static MarkerService getInstance() {
+    return MarkerServiceLoader.INSTANCE;
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(MarkerService.class);
+
+  /**
+   * The maximum number of searches to keep in memory.
+   */
+  private static final int MAX_ENTRIES = 3;
+
+  private static final String INDEX_EXT = ".markers.bin";
+
+  /**
+   * Where marker indexes are written so that resource folders, which may be
+   * read only or shared, are never modified.
+   */
+  private static final Path CACHE_DIR = CacheUtils.CACHE_DIR.resolve("markers");
+
+  private static final int INDEX_MAGIC = 0x4d4b5253;
+
+  private static final int INDEX_VERSION = 1;
+
+  /**
+   * Least recently used cache. The searches are soft referenced so they can
+   * also be reclaimed if memory becomes tight.
+   */
+  private final Map<String, SoftReference<BinarySearch<GenomicRegion>>> mCache =
+      new LinkedHashMap<String, SoftReference<BinarySearch<GenomicRegion>>>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Entry<String, SoftReference<BinarySearch<GenomicRegion>>> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  private boolean mPersist = true;
+
+  private MarkerService() {
+    // Do nothing
+  }
+
+  /**
+   * Set whether marker positions should be persisted in a binary index in the
+   * user's cache directory for faster loading on later runs.
+   *
+   * @param persist true to persist the marker positions.
+   */
+  public synchronized void setPersist(boolean persist) {
+    mPersist = persist;
+  }
+
+  /**
+   * Returns the marker search for a BED file, loading it if it is not cached.
+   *
+   * @param genome the genome the markers belong to.
+   * @param file   the marker BED file.
+   * @return the marker search.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public synchronized BinarySearch<GenomicRegion> getSearch(Genome genome, Path file) throws IOException {
+    long modified = Files.getLastModifiedTime(file).toMillis();
+
+    String key = genome.getName() + ":" + genome.getAssembly() + ":" + file.toAbsolutePath() + ":" + modified;
+
+    SoftReference<BinarySearch<GenomicRegion>> ref = mCache.get(key);
+
+    BinarySearch<GenomicRegion> search = ref != null ? ref.get() : null;
+
+    if (search == null) {
+      search = load(genome, file, modified);
+
+      mCache.put(key, new SoftReference<BinarySearch<GenomicRegion>>(search));
+    }
+
+    return search;
+  }
+
+  /**
+   * Clear the in memory cache.
+   */
+  public synchronized void clear() {
+    mCache.clear();
+  }
+
+  private BinarySearch<GenomicRegion> load(Genome genome, Path file, long modified) throws IOException {
+    Path indexFile = getIndexFile(file);
+
+    if (mPersist && Files.exists(indexFile)) {
+      try {
+        BinarySearch<GenomicRegion> search = readIndex(genome, indexFile, modified, Files.size(file));
+
+        if (search != null) {
+          return search;
+        }
+      } catch (RuntimeException e) {
+        // A truncated or corrupt index runs off the end of the buffer or
+        // reads nonsense sizes, so parse the BED file again and let the
+        // index be rewritten.
+        LOG.warn("Ignoring corrupt marker index {}: {}", indexFile, e.toString());
+      }
+    }
+
+    LOG.info("Parsing markers from {}...", file);
+
+    List<GenomicElement> markers = Bed.parseTrack(GenomicType.REGION, file).getElements();
+
+    if (mPersist) {
+      try {
+        Files.createDirectories(CACHE_DIR);
+
+        writeIndex(markers, indexFile, modified, Files.size(file));
+      } catch (IOException e) {
+        // The index is only an optimization so carry on without it, for
+        // example if the cache directory cannot be created.
+        LOG.warn("Could not write marker index {}: {}", indexFile, e.getMessage());
+      }
+    }
+
+    return FillGapsModule.getBinarySearch(markers);
+  }
+
+  /**
+   * Returns the index file of a BED file. The hash of the absolute path is
+   * part of the name so that BED files with the same name in different folders
+   * do not share an index.
+   */
+  private static Path getIndexFile(Path file) {
+    String hash = Integer.toHexString(file.toAbsolutePath().toString().hashCode());
+
+    return CACHE_DIR.resolve(PathUtils.getName(file) + "." + hash + INDEX_EXT);
+  }
+
+  /**
+   * Write the marker positions grouped by chromosome. Each chromosome is
+   * written as its name, the number of markers and then the starts followed by
+   * the ends.
+   */
+  private static void writeIndex(List<GenomicElement> markers, Path indexFile, long modified, long size)
+      throws IOException {
+    Map<Chromosome, List<GenomicElement>> chrMap = new LinkedHashMap<Chromosome, List<GenomicElement>>();
+
+    for (GenomicElement marker : markers) {
+      List<GenomicElement> list = chrMap.get(marker.getChr());
+
+      if (list == null) {
+        list = new ArrayList<GenomicElement>();
+        chrMap.put(marker.getChr(), list);
+      }
+
+      list.add(marker);
+    }
+
+    // Write to a temp file first so that a partial index is never read
+    Path tmp = indexFile.resolveSibling(PathUtils.getName(indexFile) + ".tmp");
+
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+
+      try {
+        out.writeInt(INDEX_MAGIC);
+        out.writeInt(INDEX_VERSION);
+        out.writeLong(modified);
+        out.writeLong(size);
+        out.writeInt(chrMap.size());
+
+        for (Entry<Chromosome, List<GenomicElement>> e : chrMap.entrySet()) {
+          byte[] name = e.getKey().toString().getBytes(StandardCharsets.UTF_8);
+
+          out.writeInt(name.length);
+          out.write(name);
+          out.writeInt(e.getValue().size());
+
+          for (GenomicElement marker : e.getValue()) {
+            out.writeInt(marker.getStart());
+          }
+
+          for (GenomicElement marker : e.getValue()) {
+            out.writeInt(marker.getEnd());
+          }
+        }
+      } finally {
+        out.close();
+      }
+
+      Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      // Only left behind if the write or move failed
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Rebuild a marker search from a memory mapped index. This only avoids
+   * parsing the BED text; a region is still created for every marker.
+   *
+   * @return the search or null if the index is out of date.
+   */
+  private static BinarySearch<GenomicRegion> readIndex(Genome genome, Path indexFile, long modified, long size)
+      throws IOException {
+    FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+
+    try {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      if (buffer.getInt() != INDEX_MAGIC || buffer.getInt() != INDEX_VERSION || buffer.getLong() != modified
+          || buffer.getLong() != size) {
+        return null;
+      }
+
+      BinarySearch<GenomicRegion> search = new BinarySearch<GenomicRegion>();
+
+      int chrs = buffer.getInt();
+
+      for (int c = 0; c < chrs; ++c) {
+        byte[] name = new byte[buffer.getInt()];
+        buffer.get(name);
+
+        Chromosome chr = ChromosomeService.getInstance().chr(genome, new String(name, StandardCharsets.UTF_8));
+
+        int n = buffer.getInt();
+
+        // Starts and ends are stored as consecutive blocks
+        ByteBuffer ends = buffer.duplicate();
+        ends.position(buffer.position() + n * 4);
+
+        for (int i = 0; i < n; ++i) {
+          GenomicRegion region = new GenomicRegion(chr, buffer.getInt(), ends.getInt());
+
+          search.add(region, region);
+        }
+
+        buffer.position(ends.position());
+      }
+
+      return search;
+    } finally {
+      channel.close();
+    }
+  }
+}
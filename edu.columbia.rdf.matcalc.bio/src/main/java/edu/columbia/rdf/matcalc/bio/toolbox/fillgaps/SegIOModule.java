@@ -0,0 +1,74 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+import org.jebtk.bioinformatics.genomic.GenomeService;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.io.GuiFileExtFilter;
+
+import edu.columbia.rdf.matcalc.FileType;
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.toolbox.core.io.IOModule;
+
+/**
+ * Allow users to open copy number SEG files. The file is streamed into a
+ * column oriented segment table rather than being parsed as a generic matrix.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class SegIOModule extends IOModule {
+  private static final GuiFileExtFilter FILTER = new SegGuiFileFilter();
+
+  public SegIOModule() {
+    registerFileOpenType(FILTER);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.NameProperty#getName()
+   */
+  @Override
+  public String getName() {
+    return "SEG IO";
+  }
+
+  @Override
+  public DataFrame read(final MainMatCalcWindow window, final Path file, FileType type, int headers, int rowAnnotations,
+      String delimiter, Collection<String> skipLines) throws IOException {
+    SegmentTable table = new SegmentTable();
+
+    SegReader reader = new SegReader(file, GenomeService.getInstance().guessGenome(file));
+
+    try {
+      List<Segment> segments;
+
+      while ((segments = reader.nextSample()) != null) {
+        table.addAll(segments);
+      }
+    } finally {
+      reader.close();
+    }
+
+    return table.toDataFrame();
+  }
+}
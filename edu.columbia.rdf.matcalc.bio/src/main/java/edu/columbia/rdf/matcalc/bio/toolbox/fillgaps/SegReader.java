@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.jebtk.bioinformatics.genomic.ChromosomeService;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.Io;
+import org.jebtk.core.text.TextUtils;
+
+/**
+ * Streams the segments of a SEG file one sample at a time so that only the
+ * segments of the current sample need to be held in memory. The segments of
+ * each sample must be on consecutive lines, as is the case for files produced
+ * by CBS.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class SegReader implements Closeable {
+
+  /**
+   * Patterns for detecting the standard SEG columns from the header. The order
+   * matches the columns indices stored by the reader.
+   */
+  private static final Pattern[] COLUMN_PATTERNS = { Pattern.compile("^(id|sample|segment)"),
+      Pattern.compile("chr"), Pattern.compile("start"), Pattern.compile("end"), Pattern.compile("mark|probe"),
+      Pattern.compile("mean") };
+
+  private static final String[] COLUMN_NAMES = { "sample", "chromosome", "start", "end", "markers", "mean" };
+
+  private final BufferedReader mReader;
+  private final Genome mGenome;
+
+  private final int mSampleCol;
+  private final int mChrCol;
+  private final int mStartCol;
+  private final int mEndCol;
+  private final int mMarkersCol;
+  private final int mMeanCol;
+
+  /**
+   * The first segment of the next sample, read whilst looking for the end of
+   * the current sample.
+   */
+  private Segment mNext = null;
+
+  /**
+   * Instantiates a new SEG reader and detects the columns from the header.
+   *
+   * @param file   the SEG file.
+   * @param genome the genome the chromosomes belong to.
+   * @throws IOException if the file cannot be read, is empty or a required
+   *                     column is missing.
+   */
+  public SegReader(Path file, Genome genome) throws IOException {
+    mGenome = genome;
+    mReader = FileUtils.newBufferedReader(file);
+
+    String header = mReader.readLine();
+
+    if (header == null) {
+      close();
+
+      throw new IOException(file + " is empty.");
+    }
+
+    int[] cols = findColumns(TextUtils.tabSplit(header));
+
+    mSampleCol = cols[0];
+    mChrCol = cols[1];
+    mStartCol = cols[2];
+    mEndCol = cols[3];
+    mMarkersCol = cols[4];
+    mMeanCol = cols[5];
+
+    for (int i = 0; i < cols.length; ++i) {
+      // The number of markers is recalculated when filling gaps so it is
+      // the only column that is optional
+      if (cols[i] == -1 && i != 4) {
+        close();
+
+        throw new IOException(file + " does not contain a " + COLUMN_NAMES[i] + " column.");
+      }
+    }
+
+    mNext = readSegment();
+  }
+
+  /**
+   * Returns the segments of the next sample in the file.
+   *
+   * @return the segments of the next sample or null if there are no more
+   *         samples.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public List<Segment> nextSample() throws IOException {
+    if (mNext == null) {
+      return null;
+    }
+
+    List<Segment> ret = new ArrayList<Segment>();
+
+    String name = mNext.name;
+
+    while (mNext != null && mNext.name.equals(name)) {
+      ret.add(mNext);
+
+      mNext = readSegment();
+    }
+
+    return ret;
+  }
+
+  /**
+   * Read the next non empty line of the file as a segment.
+   *
+   * @return the segment or null if the end of the file has been reached.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private Segment readSegment() throws IOException {
+    String line;
+
+    while ((line = mReader.readLine()) != null) {
+      if (Io.isEmptyLine(line)) {
+        continue;
+      }
+
+      List<String> tokens = TextUtils.tabSplit(line);
+
+      Segment segment = new Segment();
+
+      segment.name = tokens.get(mSampleCol);
+      segment.chr = ChromosomeService.getInstance().chr(mGenome, tokens.get(mChrCol));
+      segment.start = (int) TextUtils.parseDouble(tokens.get(mStartCol));
+      segment.end = (int) TextUtils.parseDouble(tokens.get(mEndCol));
+      segment.markers = mMarkersCol != -1 ? (int) TextUtils.parseDouble(tokens.get(mMarkersCol)) : 0;
+      segment.copyNumberMean = TextUtils.parseDouble(tokens.get(mMeanCol));
+
+      return segment;
+    }
+
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    mReader.close();
+  }
+
+  /**
+   * Find the indices of the standard SEG columns in a header.
+   *
+   * @param header the header tokens.
+   * @return the column indices in the order sample, chromosome, start, end,
+   *         markers and mean. Columns that cannot be found are set to -1.
+   */
+  public static int[] findColumns(List<String> header) {
+    int[] ret = new int[COLUMN_PATTERNS.length];
+
+    for (int i = 0; i < COLUMN_PATTERNS.length; ++i) {
+      ret[i] = -1;
+
+      for (int c = 0; c < header.size(); ++c) {
+        if (COLUMN_PATTERNS[i].matcher(header.get(c).toLowerCase()).find()) {
+          ret[i] = c;
+          break;
+        }
+      }
+    }
+
+    return ret;
+  }
+}
@@ -64,6 +64,27 @@ public class Segment implements Comparable<Segment> {
    */
   public double copyNumberMean;
 
+  /**
+   * Instantiates a new empty segment.
+   */
+  public Segment() {
+    // Do nothing
+  }
+
+  /**
+   * Instantiates a new segment copying the fields of another.
+   *
+   * @param s the segment to copy.
+   */
+  public Segment(Segment s) {
+    name = s.name;
+    chr = s.chr;
+    start = s.start;
+    end = s.end;
+    markers = s.markers;
+    copyNumberMean = s.copyNumberMean;
+  }
+
   /*
    * (non-Javadoc)
    * 
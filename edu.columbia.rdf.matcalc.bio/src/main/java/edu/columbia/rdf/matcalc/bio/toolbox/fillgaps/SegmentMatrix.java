@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import edu.columbia.rdf.matcalc.bio.MatrixView;
+
+/**
+ * Read only matrix view of a segment table so that segments can be shown and
+ * kept in the history without copying them into a new matrix. The columns are
+ * the sample, chromosome, start, end, number of markers and copy number mean.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class SegmentMatrix extends MatrixView {
+  private static final long serialVersionUID = 1L;
+
+  private final SegmentTable mTable;
+
+  /**
+   * Instantiates a new segment matrix.
+   *
+   * @param table the segments.
+   */
+  public SegmentMatrix(SegmentTable table) {
+    super(table.size(), 6, 2);
+
+    mTable = table;
+  }
+
+  @Override
+  public double getValue(int row, int column) {
+    switch (column) {
+    case 2:
+      return mTable.getStart(row);
+    case 3:
+      return mTable.getEnd(row);
+    case 4:
+      return mTable.getMarkers(row);
+    case 5:
+      return mTable.getMean(row);
+    default:
+      return Double.NaN;
+    }
+  }
+
+  @Override
+  public String getText(int row, int column) {
+    switch (column) {
+    case 0:
+      return mTable.getSample(row);
+    case 1:
+      return mTable.getChr(row).toString();
+    case 2:
+    case 3:
+    case 4:
+      return Integer.toString((int) getValue(row, column));
+    default:
+      return Double.toString(getValue(row, column));
+    }
+  }
+}
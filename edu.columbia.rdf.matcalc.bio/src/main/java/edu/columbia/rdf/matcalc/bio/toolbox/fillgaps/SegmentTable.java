@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.fillgaps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.bioinformatics.genomic.Chromosome;
+import org.jebtk.math.matrix.DataFrame;
+
+/**
+ * Column oriented store of segments. Each field is held in a primitive array
+ * and the sample names and chromosomes are dictionary encoded so that
+ * millions of segments can be held without creating a Segment object for
+ * each one. Segments can only be appended.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class SegmentTable {
+  private static final int DEFAULT_CAPACITY = 1024;
+
+  private final List<String> mSampleNames = new ArrayList<String>();
+  private final Map<String, Integer> mSampleMap = new HashMap<String, Integer>();
+
+  private final List<Chromosome> mChrs = new ArrayList<Chromosome>();
+  private final Map<Chromosome, Integer> mChrMap = new HashMap<Chromosome, Integer>();
+
+  private int[] mSampleIds;
+  private int[] mChrIds;
+  private int[] mStarts;
+  private int[] mEnds;
+  private int[] mMarkers;
+  private double[] mMeans;
+
+  private int mSize = 0;
+
+  /**
+   * Instantiates a new empty segment table.
+   */
+  public SegmentTable() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Instantiates a new empty segment table.
+   *
+   * @param capacity the initial number of segments the table can hold before
+   *                 it must grow.
+   */
+  public SegmentTable(int capacity) {
+    capacity = Math.max(1, capacity);
+
+    mSampleIds = new int[capacity];
+    mChrIds = new int[capacity];
+    mStarts = new int[capacity];
+    mEnds = new int[capacity];
+    mMarkers = new int[capacity];
+    mMeans = new double[capacity];
+  }
+
+  /**
+   * Append a segment.
+   *
+   * @param segment the segment.
+   */
+  public void add(Segment segment) {
+    add(segment.name, segment.chr, segment.start, segment.end, segment.markers, segment.copyNumberMean);
+  }
+
+  /**
+   * Append a list of segments.
+   *
+   * @param segments the segments.
+   */
+  public void addAll(List<Segment> segments) {
+    for (Segment segment : segments) {
+      add(segment);
+    }
+  }
+
+  /**
+   * Append a segment.
+   *
+   * @param name    the sample name.
+   * @param chr     the chromosome.
+   * @param start   the start.
+   * @param end     the end.
+   * @param markers the number of markers.
+   * @param mean    the copy number mean.
+   */
+  public void add(String name, Chromosome chr, int start, int end, int markers, double mean) {
+    if (mSize == mStarts.length) {
+      grow();
+    }
+
+    mSampleIds[mSize] = sampleId(name);
+    mChrIds[mSize] = chrId(chr);
+    mStarts[mSize] = start;
+    mEnds[mSize] = end;
+    mMarkers[mSize] = markers;
+    mMeans[mSize] = mean;
+
+    ++mSize;
+  }
+
+  private void grow() {
+    int capacity = mStarts.length * 2;
+
+    mSampleIds = Arrays.copyOf(mSampleIds, capacity);
+    mChrIds = Arrays.copyOf(mChrIds, capacity);
+    mStarts = Arrays.copyOf(mStarts, capacity);
+    mEnds = Arrays.copyOf(mEnds, capacity);
+    mMarkers = Arrays.copyOf(mMarkers, capacity);
+    mMeans = Arrays.copyOf(mMeans, capacity);
+  }
+
+  private int sampleId(String name) {
+    Integer id = mSampleMap.get(name);
+
+    if (id == null) {
+      id = mSampleNames.size();
+      mSampleNames.add(name);
+      mSampleMap.put(name, id);
+    }
+
+    return id;
+  }
+
+  private int chrId(Chromosome chr) {
+    Integer id = mChrMap.get(chr);
+
+    if (id == null) {
+      id = mChrs.size();
+      mChrs.add(chr);
+      mChrMap.put(chr, id);
+    }
+
+    return id;
+  }
+
+  /**
+   * Returns the number of segments.
+   *
+   * @return the number of segments.
+   */
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * Returns the distinct sample names in the order they were added.
+   *
+   * @return the sample names.
+   */
+  public List<String> getSampleNames() {
+    return mSampleNames;
+  }
+
+  public int getSampleId(int i) {
+    return mSampleIds[i];
+  }
+
+  public String getSample(int i) {
+    return mSampleNames.get(mSampleIds[i]);
+  }
+
+  /**
+   * Returns the distinct chromosomes in the order they were added.
+   *
+   * @return the chromosomes.
+   */
+  public List<Chromosome> getChrs() {
+    return mChrs;
+  }
+
+  public int getChrId(int i) {
+    return mChrIds[i];
+  }
+
+  public Chromosome getChr(int i) {
+    return mChrs.get(mChrIds[i]);
+  }
+
+  public int getStart(int i) {
+    return mStarts[i];
+  }
+
+  public int getEnd(int i) {
+    return mEnds[i];
+  }
+
+  public int getMarkers(int i) {
+    return mMarkers[i];
+  }
+
+  public double getMean(int i) {
+    return mMeans[i];
+  }
+
+  /**
+   * Returns a segment as an object.
+   *
+   * @param i the segment index.
+   * @return the segment.
+   */
+  public Segment getSegment(int i) {
+    Segment ret = new Segment();
+
+    ret.name = getSample(i);
+    ret.chr = getChr(i);
+    ret.start = mStarts[i];
+    ret.end = mEnds[i];
+    ret.markers = mMarkers[i];
+    ret.copyNumberMean = mMeans[i];
+
+    return ret;
+  }
+
+  /**
+   * Returns a data frame view of the segments. The segments are not copied so
+   * the table should not be added to once the view has been created.
+   *
+   * @return the data frame.
+   */
+  public DataFrame toDataFrame() {
+    DataFrame ret = new DataFrame(new SegmentMatrix(this));
+
+    ret.setColumnName(0, "segment");
+    ret.setColumnName(1, "chromosome");
+    ret.setColumnName(2, "start");
+    ret.setColumnName(3, "end");
+    ret.setColumnName(4, "num.markers");
+    ret.setColumnName(5, "seg.mean");
+
+    return ret;
+  }
+
+  /**
+   * Create a table from segments organized by sample and chromosome.
+   *
+   * @param segments the segments.
+   * @return the table.
+   */
+  public static SegmentTable create(Map<String, Map<Chromosome, List<Segment>>> segments) {
+    int n = 0;
+
+    for (Map<Chromosome, List<Segment>> chrMap : segments.values()) {
+      for (List<Segment> list : chrMap.values()) {
+        n += list.size();
+      }
+    }
+
+    SegmentTable ret = new SegmentTable(n);
+
+    for (Map<Chromosome, List<Segment>> chrMap : segments.values()) {
+      for (List<Segment> list : chrMap.values()) {
+        ret.addAll(list);
+      }
+    }
+
+    return ret;
+  }
+}
@@ -120,4 +120,54 @@ public class Cls {
     }
 
   }
+
+  /**
+   * Write a CLS from the label of each column. The labels index the group
+   * names, so no map from column to group is needed, and the writer is left
+   * open so that many CLS can be streamed through one writer.
+   *
+   * @param writer     the writer
+   * @param labels     the index of the group of each column
+   * @param groupNames the group names
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(BufferedWriter writer, int[] labels, String[] groupNames) throws IOException {
+    // The groups in the order they appear
+
+    boolean[] used = new boolean[groupNames.length];
+    int[] order = new int[groupNames.length];
+    int n = 0;
+
+    for (int label : labels) {
+      if (!used[label]) {
+        used[label] = true;
+        order[n++] = label;
+      }
+    }
+
+    writer.write(Integer.toString(labels.length));
+    writer.write(TextUtils.SPACE_DELIMITER);
+    writer.write(Integer.toString(n));
+    writer.write(" 1");
+    writer.newLine();
+
+    writer.write("#");
+
+    for (int i = 0; i < n; ++i) {
+      writer.write(TextUtils.SPACE_DELIMITER);
+      writer.write(groupNames[order[i]]);
+    }
+
+    writer.newLine();
+
+    for (int i = 0; i < labels.length; ++i) {
+      writer.write(groupNames[labels[i]]);
+
+      if (i < labels.length - 1) {
+        writer.write(TextUtils.SPACE_DELIMITER);
+      }
+    }
+
+    writer.newLine();
+  }
 }
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+/**
+ * Enumerates every distinct CLS permutation drawn without replacement. The
+ * samples of the first group cycle in Gray code order for each sample of the
+ * second, so the order is fixed and nothing is stored.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class ClsEnumeration {
+  private final int[] mIndices1;
+  private final int[] mIndices2;
+  private final int mSize1;
+
+  private GrayCombinations mCombinations1;
+  private final GrayCombinations mCombinations2;
+
+  private boolean mFirst = true;
+
+  /**
+   * Instantiates a new enumeration.
+   *
+   * @param indices1 the columns of the first group.
+   * @param size1    the size of the first sample, at most the group size.
+   * @param indices2 the columns of the second group.
+   * @param size2    the size of the second sample, at most the group size.
+   */
+  public ClsEnumeration(int[] indices1, int size1, int[] indices2, int size2) {
+    mIndices1 = indices1;
+    mIndices2 = indices2;
+    mSize1 = size1;
+
+    mCombinations1 = new GrayCombinations(indices1.length, size1);
+    mCombinations2 = new GrayCombinations(indices2.length, size2);
+  }
+
+  /**
+   * Move to the next replicate. Columns in both samples are labelled with
+   * the second group, as when sampling.
+   *
+   * @param labels receives the label of each column.
+   * @return false if every replicate has been seen.
+   */
+  public boolean next(int[] labels) {
+    if (mFirst) {
+      mFirst = false;
+    } else if (!mCombinations1.next()) {
+      if (!mCombinations2.next()) {
+        return false;
+      }
+
+      mCombinations1 = new GrayCombinations(mIndices1.length, mSize1);
+    }
+
+    for (int i = 0; i < labels.length; ++i) {
+      labels[i] = ClsPermutation.UNDEF;
+    }
+
+    for (int i : mCombinations1.get()) {
+      labels[mIndices1[i]] = ClsPermutation.GROUP1;
+    }
+
+    for (int i : mCombinations2.get()) {
+      labels[mIndices2[i]] = ClsPermutation.GROUP2;
+    }
+
+    return true;
+  }
+}
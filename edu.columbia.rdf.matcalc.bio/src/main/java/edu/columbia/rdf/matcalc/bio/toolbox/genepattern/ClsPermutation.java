@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws the random group assignments of CLS permutations. Each replicate
+ * samples a number of columns from each of two groups and labels every other
+ * column as undefined. A replicate depends only on the generator it is given,
+ * so replicates can be drawn in any order, or in parallel, from generators
+ * split off a master seed in replicate order.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class ClsPermutation {
+  public static final int DEFAULT_SEED = 149;
+
+  /** The label of columns in neither sample. */
+  public static final int UNDEF = 0;
+
+  public static final int GROUP1 = 1;
+
+  public static final int GROUP2 = 2;
+
+  private final int[] mIndices1;
+  private final int[] mIndices2;
+  private final int mSize1;
+  private final int mSize2;
+  private final boolean mWithReplacement;
+
+  /**
+   * Instantiates a new permutation.
+   *
+   * @param indices1        the columns of the first group.
+   * @param size1           how many columns to sample from the first group.
+   * @param indices2        the columns of the second group.
+   * @param size2           how many columns to sample from the second group.
+   * @param withReplacement whether columns can be sampled more than once.
+   */
+  public ClsPermutation(int[] indices1, int size1, int[] indices2, int size2, boolean withReplacement) {
+    mIndices1 = indices1;
+    mIndices2 = indices2;
+    mSize1 = size1;
+    mSize2 = size2;
+    mWithReplacement = withReplacement;
+  }
+
+  /**
+   * Draw one replicate. Columns in both samples are labelled with the second
+   * group.
+   *
+   * @param random the generator of the replicate.
+   * @param labels receives the label of each column.
+   */
+  public void assign(SplittableRandom random, int[] labels) {
+    for (int i = 0; i < labels.length; ++i) {
+      labels[i] = UNDEF;
+    }
+
+    sample(mIndices1, mSize1, GROUP1, random, labels);
+    sample(mIndices2, mSize2, GROUP2, random, labels);
+  }
+
+  private void sample(int[] indices, int size, int label, SplittableRandom random, int[] labels) {
+    int n = indices.length;
+
+    if (n == 0) {
+      return;
+    }
+
+    if (mWithReplacement) {
+      for (int i = 0; i < size; ++i) {
+        labels[indices[random.nextInt(n)]] = label;
+      }
+    } else {
+      // A partial Fisher-Yates shuffle of a fresh copy so that the result
+      // does not depend on earlier replicates
+      int[] work = indices.clone();
+
+      size = Math.min(size, n);
+
+      for (int i = 0; i < size; ++i) {
+        int j = i + random.nextInt(n - i);
+
+        int t = work[i];
+        work[i] = work[j];
+        work[j] = t;
+
+        labels[work[i]] = label;
+      }
+    }
+  }
+
+  public boolean getWithReplacement() {
+    return mWithReplacement;
+  }
+
+  /**
+   * Returns the number of columns that can be sampled.
+   *
+   * @return the size of both groups.
+   */
+  public int getPoolSize() {
+    return mIndices1.length + mIndices2.length;
+  }
+
+  /**
+   * Returns the number of distinct replicates that sampling without
+   * replacement can draw. Sampling with replacement does not draw its
+   * replicates uniformly, so they are never enumerated and this returns
+   * Long.MAX_VALUE.
+   *
+   * @return the number of distinct replicates, or Long.MAX_VALUE if there are
+   *         more than that.
+   */
+  public long getLabelings() {
+    if (mWithReplacement) {
+      return Long.MAX_VALUE;
+    }
+
+    return GrayCombinations.multiply(
+        GrayCombinations.count(mIndices1.length, Math.min(mSize1, mIndices1.length)),
+        GrayCombinations.count(mIndices2.length, Math.min(mSize2, mIndices2.length)));
+  }
+
+  /**
+   * Returns an enumeration of every distinct replicate.
+   *
+   * @return the enumeration.
+   */
+  public ClsEnumeration enumerate() {
+    return new ClsEnumeration(mIndices1, Math.min(mSize1, mIndices1.length), mIndices2,
+        Math.min(mSize2, mIndices2.length));
+  }
+
+  /**
+   * Encode the columns sampled by a replicate as a bitset with a bit for
+   * each column of each group.
+   *
+   * @param labels the labels of the replicate.
+   * @param key    receives the bitset, which must have at least
+   *               {@link #getPoolSize()} bits.
+   */
+  public void key(int[] labels, long[] key) {
+    LabelingSet.clear(key);
+
+    for (int i = 0; i < mIndices1.length; ++i) {
+      if (labels[mIndices1[i]] == GROUP1) {
+        LabelingSet.set(key, i);
+      }
+    }
+
+    for (int i = 0; i < mIndices2.length; ++i) {
+      if (labels[mIndices2[i]] == GROUP2) {
+        LabelingSet.set(key, mIndices1.length + i);
+      }
+    }
+  }
+}
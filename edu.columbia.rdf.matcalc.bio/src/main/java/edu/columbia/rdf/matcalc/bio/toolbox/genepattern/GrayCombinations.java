@@ -0,0 +1,246 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+/**
+ * Enumerates the k element combinations of 0..n-1 in revolving door order
+ * (Knuth, TAOCP 7.2.1.3, Algorithm R), a Gray code in which each combination
+ * differs from the one before by swapping a single element. Callers that keep
+ * running totals over a combination can therefore update them in constant
+ * time per step.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GrayCombinations {
+
+  /**
+   * The combination, ascending, in c[1..k]. c[k + 1] holds n as a sentinel.
+   */
+  private final int[] mC;
+
+  private final int mK;
+
+  private final int[] mCombination;
+
+  /** The index of each element in mCombination. */
+  private final int[] mIndex;
+
+  private int mOut = -1;
+  private int mIn = -1;
+
+  private boolean mDone = false;
+
+  /**
+   * Instantiates the enumeration at its first combination, 0..k-1.
+   *
+   * @param n the number of elements.
+   * @param k the size of each combination.
+   */
+  public GrayCombinations(int n, int k) {
+    mK = k;
+
+    mC = new int[k + 2];
+
+    for (int j = 1; j <= k; ++j) {
+      mC[j] = j - 1;
+    }
+
+    mC[k + 1] = n;
+
+    mCombination = new int[k];
+    mIndex = new int[n];
+
+    for (int j = 0; j < k; ++j) {
+      mCombination[j] = j;
+      mIndex[j] = j;
+    }
+
+    // There is only one combination when none or all elements are chosen
+    mDone = k == 0 || k == n;
+  }
+
+  /**
+   * Returns the current combination. The array is updated in place by
+   * {@link #next()} and is not in any particular order.
+   *
+   * @return the combination.
+   */
+  public int[] get() {
+    return mCombination;
+  }
+
+  /**
+   * Returns the element removed by the last step.
+   *
+   * @return the element.
+   */
+  public int getOut() {
+    return mOut;
+  }
+
+  /**
+   * Returns the element added by the last step.
+   *
+   * @return the element.
+   */
+  public int getIn() {
+    return mIn;
+  }
+
+  /**
+   * Move to the next combination.
+   *
+   * @return false if there are no more combinations.
+   */
+  public boolean next() {
+    if (mDone) {
+      return false;
+    }
+
+    int[] c = mC;
+
+    // R3. The easy cases only move c[1]
+    if ((mK & 1) == 1) {
+      if (c[1] + 1 < c[2]) {
+        swap(c[1], c[1] + 1);
+        c[1] = c[1] + 1;
+        return true;
+      }
+    } else if (c[1] > 0) {
+      swap(c[1], c[1] - 1);
+      c[1] = c[1] - 1;
+      return true;
+    }
+
+    int j = 2;
+
+    // Even k starts by trying to increase c[2]
+    boolean decrease = (mK & 1) == 1;
+
+    while (j <= mK) {
+      if (decrease) {
+        // R4. Here c[j] = c[j - 1] + 1
+        if (c[j] >= j) {
+          swap(c[j], j - 2);
+          c[j] = c[j - 1];
+          c[j - 1] = j - 2;
+          return true;
+        }
+      } else {
+        // R5. Here c[j - 1] = j - 2
+        if (c[j] + 1 < c[j + 1]) {
+          swap(c[j - 1], c[j] + 1);
+          c[j - 1] = c[j];
+          c[j] = c[j] + 1;
+          return true;
+        }
+      }
+
+      ++j;
+      decrease = !decrease;
+    }
+
+    mDone = true;
+
+    return false;
+  }
+
+  /**
+   * Record a step and apply it to the unordered copy of the combination.
+   */
+  private void swap(int out, int in) {
+    mOut = out;
+    mIn = in;
+
+    int i = mIndex[out];
+
+    mCombination[i] = in;
+    mIndex[in] = i;
+  }
+
+  /**
+   * Returns the number of k element combinations of n elements, or
+   * Long.MAX_VALUE if there are more than that.
+   *
+   * @param n the number of elements.
+   * @param k the size of each combination.
+   * @return the binomial coefficient.
+   */
+  public static long count(int n, int k) {
+    if (k < 0 || k > n) {
+      return 0;
+    }
+
+    k = Math.min(k, n - k);
+
+    long ret = 1;
+
+    for (int i = 1; i <= k; ++i) {
+      // ret * (n - k + i) / i is always a whole number, so after dividing
+      // ret by what it shares with i the rest of i divides n - k + i
+      long g = gcd(ret, i);
+      long m = (n - k + i) / (i / g);
+
+      ret /= g;
+
+      if (ret > Long.MAX_VALUE / m) {
+        return Long.MAX_VALUE;
+      }
+
+      ret *= m;
+    }
+
+    return ret;
+  }
+
+  private static long gcd(long a, long b) {
+    while (b != 0) {
+      long t = a % b;
+      a = b;
+      b = t;
+    }
+
+    return a;
+  }
+
+  /**
+   * Multiply two counts, saturating at Long.MAX_VALUE.
+   *
+   * @param a a count.
+   * @param b a count.
+   * @return the product.
+   */
+  public static long multiply(long a, long b) {
+    if (a != 0 && b > Long.MAX_VALUE / a) {
+      return Long.MAX_VALUE;
+    }
+
+    return a * b;
+  }
+}
@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+import org.jebtk.core.ColorUtils;
+import org.jebtk.core.text.Formatter;
+import org.jebtk.graphplot.figure.Axes;
+import org.jebtk.graphplot.figure.Axis;
+import org.jebtk.graphplot.figure.Figure;
+import org.jebtk.graphplot.figure.LabelPlotLayer;
+import org.jebtk.graphplot.figure.Plot;
+import org.jebtk.graphplot.figure.RightLabelPlotLayer;
+import org.jebtk.graphplot.figure.SubFigure;
+import org.jebtk.graphplot.plotbox.PlotBoxRowLayout;
+import org.jebtk.modern.graphics.colormap.ColorMap;
+
+/**
+ * Creates the standard GSEA figure of a gene set: the running enrichment
+ * score with its leading edge, a heat map of the ranked list metric, the
+ * positions of the gene set members and the ranked list metric itself.
+ *
+ * The curves and member positions are drawn from pyramids so that the figure
+ * can be zoomed into a small part of a long ranked list and redrawn at the
+ * resolution of the visible range.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GseaFigure {
+
+  private static final Color RED_COLOR = Color.RED;
+
+  private static final Color BLUE_COLOR = ColorUtils.decodeHtmlColor("#3771c8");
+
+  private static final Color GREEN_COLOR = ColorUtils.decodeHtmlColor("#00aa44");
+
+  public static final int DEFAULT_WIDTH = 1000;
+
+  private GseaFigure() {
+    // Do nothing
+  }
+
+  /**
+   * Create the figure of a gene set.
+   *
+   * @param data          the gene set.
+   * @param n             the number of genes in the ranked list.
+   * @param crossingIndex the index of the last positive gene in the ranked
+   *                      list.
+   * @param min           the smallest ranked list metric.
+   * @param max           the largest ranked list metric.
+   * @param p1            the name of the positive phenotype.
+   * @param p2            the name of the negative phenotype.
+   * @return the figure.
+   */
+  public static Figure create(GseaPlotData data, int n, int crossingIndex, double min, double max, String p1,
+      String p2) {
+    int width = DEFAULT_WIDTH;
+
+    Color color;
+
+    Figure figure = new Figure("GSEA Figure", new PlotBoxRowLayout());
+
+    SubFigure subFigure = figure.newSubFigure();
+
+    Axes axes = subFigure.newAxes();
+
+    Plot plot = axes.newPlot();
+
+    //
+    // The running enrichment score, colored by the sign of the set's score
+    //
+
+    Pyramid esPyramid = new Pyramid(data.ranks, data.runningEs);
+
+    Color upColor = data.es >= 0 ? RED_COLOR : Color.GRAY;
+    Color downColor = data.es < 0 ? BLUE_COLOR : Color.GRAY;
+
+    plot.addChild(new PyramidCurvePlotLayer(esPyramid, ColorUtils.getTransparentColor70(upColor),
+        ColorUtils.getTransparentColor70(downColor), upColor, downColor).setStart(0).setEnd(n));
+
+    //
+    // The leading edge
+    //
+
+    int ls = Integer.MAX_VALUE;
+    int le = Integer.MIN_VALUE;
+
+    for (int i = 0; i < data.core.length; ++i) {
+      if (data.core[i]) {
+        ls = Math.min(ls, i);
+        le = Math.max(le, i);
+      }
+    }
+
+    if (ls <= le) {
+      Pyramid leadingPyramid = new Pyramid(Arrays.copyOfRange(data.ranks, ls, le + 1),
+          Arrays.copyOfRange(data.runningEs, ls, le + 1));
+
+      color = ls == 0 ? RED_COLOR : BLUE_COLOR;
+
+      PyramidCurvePlotLayer layer = new PyramidCurvePlotLayer(leadingPyramid,
+          ColorUtils.getTransparentColor70(color), ColorUtils.getTransparentColor70(color), null, null);
+
+      if (ls == 0) {
+        // up
+        layer.setStart(0);
+      } else {
+        // down
+        layer.setEnd(n);
+      }
+
+      plot.addChild(layer);
+    }
+
+    //
+    // Set some plot properties
+    //
+
+    axes.setInternalSize(width, 400);
+    axes.setMargins(100);
+
+    plot = axes.newPlot();
+    plot.addChild(new LabelPlotLayer(p1, 0, 0, 10, -10));
+    plot.addChild(new RightLabelPlotLayer(p2, n, 0, -10, -10));
+
+    plot.addChild(new LabelPlotLayer("Size:", n, 0, -200, -120));
+    plot.addChild(new LabelPlotLayer(Integer.toString(data.size), n, 0, -100, -120));
+    plot.addChild(new LabelPlotLayer("NES:", n, 0, -200, -100));
+    plot.addChild(new LabelPlotLayer(Formatter.number().dp(4).format(data.nes), n, 0, -100, -100));
+    plot.addChild(new LabelPlotLayer("FDR:", n, 0, -200, -80));
+    plot.addChild(new LabelPlotLayer(Formatter.number().dp(4).format(data.fdr), n, 0, -100, -80));
+
+    // Plot the limits as if all genes are present
+    axes.getX1Axis().getTitle().setText("Gene List Index");
+    axes.getY1Axis().getTitle().setText("Running Enrichment Score");
+    axes.getY1Axis().setShowZerothLine(true);
+    axes.getTitle().setText(data.name);
+    axes.getX1Axis().setLimits(0, n);
+    setLimits(axes.getY1Axis(), esPyramid);
+
+    //
+    // Heat Map
+    //
+
+    subFigure = figure.newSubFigure();
+
+    axes = subFigure.newAxes().setInternalSize(width, 25);
+    axes.getX1Axis().setLimits(0, n);
+    axes.getY1Axis().setLimits(0, 1);
+    axes.setLeftMargin(100);
+    axes.getX1Axis().getTitle().setText("Gene List Index");
+
+    axes.newPlot().addChild(new HeatStripPlotLayer(data.scores, ColorMap.createBlueWhiteRedMap(), min, max));
+
+    Axes.disableAllFeatures(axes);
+
+    //
+    // The members of the set
+    //
+
+    subFigure = figure.newSubFigure();
+    axes = subFigure.newAxes().setInternalSize(width, 25);
+    axes.getX1Axis().setLimits(0, n);
+    axes.getY1Axis().setLimits(0, 1);
+    axes.setLeftMargin(100);
+
+    axes.newPlot().addChild(new PyramidHitPlotLayer(data.ranks, n, Color.BLACK));
+
+    Axes.disableAllFeatures(axes);
+
+    //
+    // All the ranked genes
+    //
+
+    subFigure = figure.newSubFigure();
+
+    axes = subFigure.newAxes();
+
+    color = GREEN_COLOR;
+
+    Pyramid rankedPyramid = new Pyramid(data.ranks, data.scores);
+
+    axes.newPlot().addChild(new PyramidCurvePlotLayer(rankedPyramid, ColorUtils.getTransparentColor60(color),
+        ColorUtils.getTransparentColor60(color), color, color));
+
+    axes.setInternalSize(width, 200);
+    axes.setMargins(100);
+    axes.getX1Axis().getTitle().setText("Gene List Index");
+    axes.getY1Axis().getTitle().setText("Ranked List Metric");
+    axes.getY1Axis().getGrid().setVisible(false);
+    axes.getX1Axis().setLimits(0, n);
+    setLimits(axes.getY1Axis(), rankedPyramid);
+
+    return figure;
+  }
+
+  /**
+   * Set the limits of a y axis to include zero and the whole of a curve,
+   * rounded out to a step below the range of the curve.
+   *
+   * @param axis    the axis.
+   * @param pyramid the curve.
+   */
+  private static void setLimits(Axis axis, Pyramid pyramid) {
+    double min = Math.min(0, pyramid.getMin());
+    double max = Math.max(0, pyramid.getMax());
+
+    double range = max - min;
+
+    if (range <= 0) {
+      axis.setLimits(-1, 1);
+
+      return;
+    }
+
+    double step = Math.pow(10, Math.floor(Math.log10(range))) / 2;
+
+    axis.setLimits(Math.floor(min / step) * step, Math.ceil(max / step) * step);
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.awt.Dimension;
+
+import javax.swing.Box;
+
+import org.jebtk.modern.ModernWidget;
+import org.jebtk.modern.UI;
+import org.jebtk.modern.combobox.ModernComboBox;
+import org.jebtk.modern.dialog.ModernDialogTaskWindow;
+import org.jebtk.modern.panel.ModernPanel;
+import org.jebtk.modern.panel.VBox;
+import org.jebtk.modern.text.ModernSubHeadingLabel;
+import org.jebtk.modern.window.ModernWindow;
+import org.jebtk.modern.window.WindowWidgetFocusEvents;
+
+/**
+ * Choose the image format to write GSEA plots in.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GseaPlotDialog extends ModernDialogTaskWindow {
+  private static final long serialVersionUID = 1L;
+
+  private static final String[] FORMATS = { "png", "svg", "pdf" };
+
+  private ModernComboBox mFormatCombo = new ModernComboBox(new Dimension(300, ModernWidget.WIDGET_HEIGHT));
+
+  public GseaPlotDialog(ModernWindow parent) {
+    super(parent);
+
+    setTitle("GSEA Plot");
+
+    createUi();
+
+    setup();
+  }
+
+  private void setup() {
+    addWindowListener(new WindowWidgetFocusEvents(mOkButton));
+
+    setSize(480, 240);
+
+    UI.centerWindowToScreen(this);
+  }
+
+  private final void createUi() {
+    Box content = VBox.create();
+
+    content.add(new ModernSubHeadingLabel("Format"));
+
+    content.add(ModernPanel.createVGap());
+
+    for (String format : FORMATS) {
+      mFormatCombo.addScrollMenuItem(format);
+    }
+
+    content.add(mFormatCombo);
+
+    setCard(content);
+  }
+
+  /**
+   * Returns the file extension of the chosen format.
+   *
+   * @return the extension.
+   */
+  public String getFormat() {
+    return mFormatCombo.getText();
+  }
+}
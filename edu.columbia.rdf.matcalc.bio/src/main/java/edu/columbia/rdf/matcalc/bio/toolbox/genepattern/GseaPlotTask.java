@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.nio.file.Path;
+import java.util.concurrent.RecursiveTask;
+
+import org.jebtk.graphplot.Image;
+import org.jebtk.graphplot.figure.Figure;
+
+/**
+ * Writes the figure of one gene set of a GSEA run to an image file. The
+ * figure is never shown, so it can be built off the event dispatch thread.
+ * The per-gene data of the set is read without being cached, so it can be
+ * reclaimed as soon as the image is written. A set that cannot be plotted
+ * does not stop the others; its error is returned instead.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GseaPlotTask extends RecursiveTask<Exception> {
+  private static final long serialVersionUID = 1L;
+
+  private final GseaRun mRun;
+  private final int mIndex;
+  private final Path mOutFile;
+
+  /**
+   * Instantiates a new plot task.
+   *
+   * @param run     the GSEA run.
+   * @param index   the index of the set in the run.
+   * @param outFile the image file, whose extension sets the format.
+   */
+  public GseaPlotTask(GseaRun run, int index, Path outFile) {
+    mRun = run;
+    mIndex = index;
+    mOutFile = outFile;
+  }
+
+  /**
+   * Write the figure.
+   *
+   * @return the error that stopped the figure being written, or null if it
+   *         was written.
+   */
+  @Override
+  protected Exception compute() {
+    try {
+      Figure figure = GseaFigure.create(mRun.readPlotData(mIndex), mRun.getN(), mRun.getCrossingIndex(),
+          mRun.getMin(), mRun.getMax(), mRun.getPhenotype1(), mRun.getPhenotype2());
+
+      Image.write(figure, mOutFile);
+    } catch (Exception e) {
+      return e;
+    }
+
+    return null;
+  }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jebtk.modern.dialog.MessageDialogType;
+import org.jebtk.modern.dialog.ModernMessageDialog;
+import org.jebtk.modern.window.ModernWindow;
+
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+
+/**
+ * Writes the figure of every gene set of a GSEA run to an image file. Sets
+ * are plotted in parallel, but only a few more than there are threads are in
+ * flight at once, so memory use does not grow with the number of sets. Sets
+ * that cannot be plotted are listed once the others have been written.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GseaPlotWorker extends ProgressWorker {
+
+  /**
+   * The most failed sets to list by name.
+   */
+  private static final int MAX_FAILURES_SHOWN = 5;
+
+  private final ModernWindow mParent;
+  private final GseaRun mRun;
+  private final Path mOutDir;
+  private final String mExt;
+
+  /**
+   * The names of the sets that could not be plotted.
+   */
+  private final List<String> mFailures = new ArrayList<String>();
+
+  /**
+   * Instantiates a new plot worker.
+   *
+   * @param parent the window the progress is shown over.
+   * @param run    the GSEA run.
+   * @param outDir the directory to write the images to.
+   * @param ext    the image format, either png, svg or pdf.
+   */
+  public GseaPlotWorker(ModernWindow parent, GseaRun run, Path outDir, String ext) {
+    super(parent, "Writing GSEA plots...");
+
+    mParent = parent;
+    mRun = run;
+    mOutDir = outDir;
+    mExt = ext;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    run(mRun.size(), new TaskSource<Exception>() {
+      @Override
+      public GseaPlotTask create(int i) {
+        if (!mRun.hasPlot(i)) {
+          return null;
+        }
+
+        return new GseaPlotTask(mRun, i, mOutDir.resolve(mRun.getName(i) + "." + mExt));
+      }
+
+      @Override
+      public void finished(int i, Exception error) {
+        if (error != null) {
+          error.printStackTrace();
+
+          mFailures.add(mRun.getName(i));
+        }
+      }
+    });
+
+    return null;
+  }
+
+  @Override
+  protected void finished() {
+    if (mFailures.isEmpty()) {
+      return;
+    }
+
+    List<String> lines = new ArrayList<String>();
+
+    lines.add(mFailures.size() + " of the gene sets could not be plotted:");
+
+    for (int i = 0; i < Math.min(mFailures.size(), MAX_FAILURES_SHOWN); ++i) {
+      lines.add(mFailures.get(i));
+    }
+
+    if (mFailures.size() > MAX_FAILURES_SHOWN) {
+      lines.add("...");
+    }
+
+    ModernMessageDialog.createDialog(mParent, MessageDialogType.WARNING, lines.toArray(new String[lines.size()]));
+  }
+}
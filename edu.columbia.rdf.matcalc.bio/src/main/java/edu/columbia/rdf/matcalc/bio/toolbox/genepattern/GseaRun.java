@@ -0,0 +1,486 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.PathUtils;
+import org.jebtk.core.text.TextUtils;
+
+/**
+ * The output directory of a GSEA run. The directory is listed once and the
+ * ranked list and reports are parsed up front into primitive columns. The
+ * per-gene data of each set is only read when it is first needed and a few
+ * sets are cached, so a set costs one read however many times it is used.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GseaRun {
+
+  /**
+   * The maximum number of sets whose per-gene data is cached.
+   */
+  private static final int MAX_ENTRIES = 16;
+
+  private final Path mDir;
+
+  private String mP1;
+  private String mP2;
+
+  /**
+   * The genes and their ranked list metric in rank order.
+   */
+  private String[] mGenes;
+  private double[] mScores;
+
+  private int mCrossingIndex = -1;
+
+  private String[] mNames;
+  private int[] mSizes;
+  private double[] mEs;
+  private double[] mNes;
+  private double[] mP;
+  private double[] mFdr;
+
+  /**
+   * The plot file of each set, or null if it has none.
+   */
+  private Path[] mPlotFiles;
+
+  private final Map<String, Integer> mIndexMap = new HashMap<String, Integer>();
+
+  private final Map<Integer, GseaPlotData> mCache = new LinkedHashMap<Integer, GseaPlotData>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Entry<Integer, GseaPlotData> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  private GseaRun(Path dir) {
+    mDir = dir;
+  }
+
+  public Path getDir() {
+    return mDir;
+  }
+
+  /**
+   * Returns the name of the positive phenotype.
+   *
+   * @return the phenotype.
+   */
+  public String getPhenotype1() {
+    return mP1;
+  }
+
+  /**
+   * Returns the name of the negative phenotype.
+   *
+   * @return the phenotype.
+   */
+  public String getPhenotype2() {
+    return mP2;
+  }
+
+  /**
+   * Returns the number of genes in the ranked list.
+   *
+   * @return the number of genes.
+   */
+  public int getN() {
+    return mScores.length;
+  }
+
+  /**
+   * Returns the index of the last positive gene in the ranked list.
+   *
+   * @return the crossing index.
+   */
+  public int getCrossingIndex() {
+    return mCrossingIndex;
+  }
+
+  public String getGene(int i) {
+    return mGenes[i];
+  }
+
+  public double getScore(int i) {
+    return mScores[i];
+  }
+
+  public double getMax() {
+    return mScores.length > 0 ? mScores[0] : 0;
+  }
+
+  public double getMin() {
+    return mScores.length > 0 ? mScores[mScores.length - 1] : 0;
+  }
+
+  /**
+   * Returns the number of gene sets in the reports.
+   *
+   * @return the number of sets.
+   */
+  public int size() {
+    return mNames.length;
+  }
+
+  /**
+   * Returns the index of a set.
+   *
+   * @param name the name of the set.
+   * @return the index of the set or -1 if it is not in the reports.
+   */
+  public int find(String name) {
+    Integer i = mIndexMap.get(name);
+
+    return i != null ? i : -1;
+  }
+
+  public String getName(int i) {
+    return mNames[i];
+  }
+
+  public int getSize(int i) {
+    return mSizes[i];
+  }
+
+  public double getEs(int i) {
+    return mEs[i];
+  }
+
+  public double getNes(int i) {
+    return mNes[i];
+  }
+
+  public double getP(int i) {
+    return mP[i];
+  }
+
+  public double getFdr(int i) {
+    return mFdr[i];
+  }
+
+  /**
+   * Returns whether the per-gene data of a set can be plotted.
+   *
+   * @param i the index of the set.
+   * @return true if the set has a plot file.
+   */
+  public boolean hasPlot(int i) {
+    return mPlotFiles[i] != null;
+  }
+
+  /**
+   * Returns the data needed to plot a set, reading its plot file if it is not
+   * cached. The returned data should not be modified.
+   *
+   * @param i the index of the set.
+   * @return the plot data.
+   * @throws IOException    Signals that an I/O exception has occurred.
+   * @throws ParseException
+   */
+  public GseaPlotData getPlotData(int i) throws IOException, ParseException {
+    synchronized (mCache) {
+      GseaPlotData data = mCache.get(i);
+
+      if (data != null) {
+        return data;
+      }
+    }
+
+    // Parse outside the lock so that sets can be read in parallel
+    GseaPlotData data = readPlotData(i);
+
+    synchronized (mCache) {
+      mCache.put(i, data);
+    }
+
+    return data;
+  }
+
+  /**
+   * Read the data needed to plot a set without caching it, for code that
+   * visits every set once and would otherwise only churn the cache.
+   *
+   * @param i the index of the set.
+   * @return the plot data.
+   * @throws IOException    Signals that an I/O exception has occurred.
+   * @throws ParseException
+   */
+  public GseaPlotData readPlotData(int i) throws IOException, ParseException {
+    GseaPlotData data = parsePlotFile(mPlotFiles[i]);
+
+    data.name = mNames[i];
+    data.size = mSizes[i];
+    data.es = mEs[i];
+    data.nes = mNes[i];
+    data.p = mP[i];
+    data.fdr = mFdr[i];
+
+    return data;
+  }
+
+  /**
+   * Load the output directory of a GSEA run.
+   *
+   * @param dir the directory.
+   * @return the run or null if the directory has no ranked list.
+   * @throws IOException    Signals that an I/O exception has occurred.
+   * @throws ParseException
+   */
+  public static GseaRun load(Path dir) throws IOException, ParseException {
+    Path rankedListFile = null;
+
+    List<Path> reportFiles = new ArrayList<Path>();
+
+    // Any other spreadsheet might be the plot file of a set
+    Map<String, Path> xlsFiles = new HashMap<String, Path>();
+
+    for (Path file : FileUtils.ls(dir)) {
+      String name = PathUtils.getName(file);
+
+      if (!name.endsWith(".xls")) {
+        continue;
+      }
+
+      if (name.startsWith("ranked_gene_list")) {
+        rankedListFile = file;
+      } else if (name.startsWith("gsea_report")) {
+        reportFiles.add(file);
+      } else {
+        xlsFiles.put(name.substring(0, name.length() - 4), file);
+      }
+    }
+
+    if (rankedListFile == null) {
+      return null;
+    }
+
+    GseaRun ret = new GseaRun(dir);
+
+    String name = PathUtils.getName(rankedListFile);
+
+    ret.mP1 = name.replace("ranked_gene_list_", "").replaceFirst("_versus.+", "");
+    ret.mP2 = name.replaceFirst(".+versus_", "").replaceFirst("_[^_]+\\.xls", "");
+
+    ret.parseRankedList(rankedListFile);
+
+    // Sort the reports so that the sets are always in the same order
+    Path[] files = reportFiles.toArray(new Path[0]);
+
+    Arrays.sort(files);
+
+    ret.parseReports(files);
+
+    ret.mPlotFiles = new Path[ret.mNames.length];
+
+    for (int i = 0; i < ret.mNames.length; ++i) {
+      ret.mPlotFiles[i] = xlsFiles.get(ret.mNames[i]);
+    }
+
+    return ret;
+  }
+
+  private void parseRankedList(Path file) throws IOException, ParseException {
+    List<String> genes = new ArrayList<String>();
+    double[] scores = new double[1024];
+
+    int n = 0;
+
+    BufferedReader reader = FileUtils.newBufferedReader(file);
+
+    String line;
+    List<String> tokens;
+
+    try {
+      reader.readLine();
+
+      while ((line = reader.readLine()) != null) {
+        tokens = TextUtils.tabSplit(line);
+
+        if (n == scores.length) {
+          scores = Arrays.copyOf(scores, n * 2);
+        }
+
+        genes.add(tokens.get(0));
+
+        // The metric follows the name, probe, symbol and title columns
+        scores[n++] = TextUtils.parseDouble(tokens.get(4));
+      }
+    } finally {
+      reader.close();
+    }
+
+    mGenes = genes.toArray(new String[n]);
+    mScores = Arrays.copyOf(scores, n);
+
+    // The crossing point is one before the first non-positive metric
+    for (int i = 0; i < n; ++i) {
+      double v = mScores[i];
+
+      if (Double.isNaN(v) || Double.isInfinite(v)) {
+        continue;
+      }
+
+      if (v <= 0) {
+        mCrossingIndex = i - 1;
+        break;
+      }
+    }
+  }
+
+  private void parseReports(Path[] files) throws IOException, ParseException {
+    List<String> names = new ArrayList<String>();
+
+    int[] sizes = new int[1024];
+    double[] es = new double[1024];
+    double[] nes = new double[1024];
+    double[] p = new double[1024];
+    double[] fdr = new double[1024];
+
+    int n = 0;
+
+    String line;
+    List<String> tokens;
+
+    for (Path file : files) {
+      BufferedReader reader = FileUtils.newBufferedReader(file);
+
+      try {
+        reader.readLine();
+
+        while ((line = reader.readLine()) != null) {
+          tokens = TextUtils.tabSplit(line);
+
+          if (tokens.get(3).equals(TextUtils.NULL)) {
+            continue;
+          }
+
+          if (n == sizes.length) {
+            sizes = Arrays.copyOf(sizes, n * 2);
+            es = Arrays.copyOf(es, n * 2);
+            nes = Arrays.copyOf(nes, n * 2);
+            p = Arrays.copyOf(p, n * 2);
+            fdr = Arrays.copyOf(fdr, n * 2);
+          }
+
+          names.add(tokens.get(0));
+          sizes[n] = TextUtils.parseInt(tokens.get(3));
+          es[n] = TextUtils.parseDouble(tokens.get(4));
+          nes[n] = TextUtils.parseDouble(tokens.get(5));
+          p[n] = TextUtils.parseDouble(tokens.get(6));
+          fdr[n] = TextUtils.parseDouble(tokens.get(7));
+
+          mIndexMap.put(tokens.get(0), n);
+
+          ++n;
+        }
+      } finally {
+        reader.close();
+      }
+    }
+
+    mNames = names.toArray(new String[n]);
+    mSizes = Arrays.copyOf(sizes, n);
+    mEs = Arrays.copyOf(es, n);
+    mNes = Arrays.copyOf(nes, n);
+    mP = Arrays.copyOf(p, n);
+    mFdr = Arrays.copyOf(fdr, n);
+  }
+
+  /**
+   * Parse the rank, ranked list metric, running enrichment score and leading
+   * edge membership of each gene in a set plot file.
+   *
+   * @param file the plot file.
+   * @return the plot data.
+   * @throws IOException    Signals that an I/O exception has occurred.
+   * @throws ParseException
+   */
+  private static GseaPlotData parsePlotFile(Path file) throws IOException, ParseException {
+    int[] ranks = new int[256];
+    double[] scores = new double[256];
+    double[] runningEs = new double[256];
+    boolean[] core = new boolean[256];
+
+    int n = 0;
+
+    BufferedReader reader = FileUtils.newBufferedReader(file);
+
+    String line;
+    List<String> tokens;
+
+    try {
+      reader.readLine();
+
+      while ((line = reader.readLine()) != null) {
+        tokens = TextUtils.tabSplit(line);
+
+        if (n == ranks.length) {
+          ranks = Arrays.copyOf(ranks, n * 2);
+          scores = Arrays.copyOf(scores, n * 2);
+          runningEs = Arrays.copyOf(runningEs, n * 2);
+          core = Arrays.copyOf(core, n * 2);
+        }
+
+        ranks[n] = TextUtils.parseInt(tokens.get(5));
+        scores[n] = TextUtils.parseDouble(tokens.get(6));
+        runningEs[n] = TextUtils.parseDouble(tokens.get(7));
+        core[n] = tokens.get(8).equals("Yes");
+
+        ++n;
+      }
+    } finally {
+      reader.close();
+    }
+
+    GseaPlotData ret = new GseaPlotData();
+
+    ret.ranks = Arrays.copyOf(ranks, n);
+    ret.scores = Arrays.copyOf(scores, n);
+    ret.runningEs = Arrays.copyOf(runningEs, n);
+    ret.core = Arrays.copyOf(core, n);
+
+    return ret;
+  }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.jebtk.graphplot.figure.Axes;
+import org.jebtk.graphplot.figure.Figure;
+import org.jebtk.graphplot.figure.Plot;
+import org.jebtk.graphplot.figure.PlotLayer;
+import org.jebtk.graphplot.figure.SubFigure;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.graphics.DrawingContext;
+import org.jebtk.modern.graphics.colormap.ColorMap;
+
+/**
+ * Draws a row of values as a strip of colors across the whole x axis. The
+ * colors come from a 256 entry lookup table built once from a color map, with
+ * negative values scaled against the minimum and positive values against the
+ * maximum so that zero is always the middle color. The strip is rendered into
+ * an image the first time it is drawn at a given size and the image is reused
+ * after that, so repainting and exporting cost a single image copy.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class HeatStripPlotLayer extends PlotLayer {
+  private static final long serialVersionUID = 1L;
+
+  private static final int COLORS = 256;
+
+  private final double[] mValues;
+  private final double mMin;
+  private final double mMax;
+  private final int[] mLut = new int[COLORS];
+
+  private BufferedImage mImage;
+
+  /**
+   * Instantiates a new heat strip.
+   *
+   * @param values   the values to draw, evenly spaced along the strip.
+   * @param colorMap the color map.
+   * @param min      the value drawn with the first color.
+   * @param max      the value drawn with the last color.
+   */
+  public HeatStripPlotLayer(double[] values, ColorMap colorMap, double min, double max) {
+    mValues = values;
+    mMin = min;
+    mMax = max;
+
+    for (int i = 0; i < COLORS; ++i) {
+      mLut[i] = colorMap.getColorAt((double) i / (COLORS - 1)).getRGB();
+    }
+  }
+
+  @Override
+  public String getType() {
+    return "Heat Strip";
+  }
+
+  @Override
+  public void plotLayer(Graphics2D g2, DrawingContext context, Figure figure, SubFigure subFigure, Axes axes,
+      Plot plot, DataFrame m) {
+    int x1 = axes.toPlotX1(axes.getX1Axis().getMin());
+    int x2 = axes.toPlotX1(axes.getX1Axis().getMax());
+    int y1 = axes.toPlotY1(axes.getY1Axis().getMax());
+    int y2 = axes.toPlotY1(axes.getY1Axis().getMin());
+
+    int w = x2 - x1;
+    int h = y2 - y1;
+
+    if (w <= 0 || h <= 0 || mValues.length == 0) {
+      return;
+    }
+
+    g2.drawImage(getImage(w, h), x1, y1, null);
+  }
+
+  /**
+   * Returns the strip rendered at a given size, reusing the last image if the
+   * size has not changed.
+   *
+   * @param w the width in pixels.
+   * @param h the height in pixels.
+   * @return the image.
+   */
+  private synchronized BufferedImage getImage(int w, int h) {
+    if (mImage != null && mImage.getWidth() == w && mImage.getHeight() == h) {
+      return mImage;
+    }
+
+    BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+
+    // Color one row and copy it down the strip
+    int[] row = new int[w];
+
+    int n = mValues.length;
+
+    for (int x = 0; x < w; ++x) {
+      row[x] = mLut[index(mValues[(int) ((long) x * n / w)])];
+    }
+
+    for (int y = 0; y < h; ++y) {
+      image.setRGB(0, y, w, 1, row, 0, w);
+    }
+
+    mImage = image;
+
+    return mImage;
+  }
+
+  /**
+   * Returns the lookup table index of a value, with the minimum, zero and the
+   * maximum mapped to the first, middle and last colors.
+   *
+   * @param v the value.
+   * @return the index.
+   */
+  private int index(double v) {
+    double t;
+
+    if (Double.isNaN(v)) {
+      t = 0.5;
+    } else if (v < 0) {
+      t = mMin < 0 ? 0.5 - 0.5 * v / mMin : 0.5;
+    } else {
+      t = mMax > 0 ? 0.5 + 0.5 * v / mMax : 0.5;
+    }
+
+    int i = (int) Math.round(t * (COLORS - 1));
+
+    return Math.max(0, Math.min(COLORS - 1, i));
+  }
+}
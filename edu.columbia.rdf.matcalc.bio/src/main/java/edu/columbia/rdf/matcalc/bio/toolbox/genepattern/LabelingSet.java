@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.util.Arrays;
+
+/**
+ * A hash set of the labelings already drawn by a permutation, so that
+ * sampling can reject repeats. Each labeling is a fixed width bitset and all
+ * of them are stored end to end in one long array using open addressing, so
+ * a set of many thousands of labelings costs a few words each rather than an
+ * object per entry.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class LabelingSet {
+  private final int mWords;
+
+  /** The keys, mWords longs per slot. */
+  private long[] mKeys;
+
+  /** The hash of the key in each slot, or 0 if the slot is empty. */
+  private int[] mHashes;
+
+  private int mMask;
+  private int mSize = 0;
+
+  /**
+   * Instantiates a new labeling set.
+   *
+   * @param bits     the number of bits in a labeling.
+   * @param expected the number of labelings expected.
+   */
+  public LabelingSet(int bits, int expected) {
+    mWords = words(bits);
+
+    int capacity = 16;
+
+    // Keep the table at most half full
+    while (capacity < 2 * expected) {
+      capacity <<= 1;
+    }
+
+    allocate(capacity);
+  }
+
+  private void allocate(int capacity) {
+    mKeys = new long[capacity * mWords];
+    mHashes = new int[capacity];
+    mMask = capacity - 1;
+  }
+
+  /**
+   * Add a labeling.
+   *
+   * @param key the labeling, as created by {@link #createKey(int)}.
+   * @return true if the labeling was not already in the set.
+   */
+  public boolean add(long[] key) {
+    int hash = hash(key);
+
+    int slot = find(key, hash);
+
+    if (mHashes[slot] != 0) {
+      return false;
+    }
+
+    insert(slot, key, 0, hash);
+
+    if (++mSize > mHashes.length / 2) {
+      grow();
+    }
+
+    return true;
+  }
+
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * Returns the slot holding a key, or the empty slot where it belongs.
+   */
+  private int find(long[] key, int hash) {
+    int slot = hash & mMask;
+
+    while (mHashes[slot] != 0) {
+      if (mHashes[slot] == hash && equals(slot, key)) {
+        break;
+      }
+
+      slot = (slot + 1) & mMask;
+    }
+
+    return slot;
+  }
+
+  private boolean equals(int slot, long[] key) {
+    int offset = slot * mWords;
+
+    for (int i = 0; i < mWords; ++i) {
+      if (mKeys[offset + i] != key[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private void insert(int slot, long[] keys, int offset, int hash) {
+    System.arraycopy(keys, offset, mKeys, slot * mWords, mWords);
+    mHashes[slot] = hash;
+  }
+
+  private void grow() {
+    long[] keys = mKeys;
+    int[] hashes = mHashes;
+
+    allocate(hashes.length * 2);
+
+    for (int i = 0; i < hashes.length; ++i) {
+      int hash = hashes[i];
+
+      if (hash != 0) {
+        int slot = hash & mMask;
+
+        // The keys are already distinct so only an empty slot is needed
+        while (mHashes[slot] != 0) {
+          slot = (slot + 1) & mMask;
+        }
+
+        insert(slot, keys, i * mWords, hash);
+      }
+    }
+  }
+
+  /**
+   * A hash that is never 0, so 0 can mark an empty slot.
+   */
+  private static int hash(long[] key) {
+    long h = 0;
+
+    for (long w : key) {
+      h = (h ^ w) * 0x9E3779B97F4A7C15L;
+    }
+
+    // Mix the high bits into the low bits used to pick a slot
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+
+    int ret = (int) h;
+
+    return ret != 0 ? ret : 1;
+  }
+
+  /**
+   * Create an empty labeling.
+   *
+   * @param bits the number of bits in a labeling.
+   * @return the labeling.
+   */
+  public static long[] createKey(int bits) {
+    return new long[words(bits)];
+  }
+
+  /**
+   * Clear a labeling so it can be reused.
+   *
+   * @param key the labeling.
+   */
+  public static void clear(long[] key) {
+    Arrays.fill(key, 0);
+  }
+
+  /**
+   * Set a bit of a labeling.
+   *
+   * @param key the labeling.
+   * @param bit the bit.
+   */
+  public static void set(long[] key, int bit) {
+    key[bit >> 6] |= 1L << bit;
+  }
+
+  private static int words(int bits) {
+    return Math.max(1, (bits + 63) >> 6);
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Corrections for multiple testing shared by the enrichment and permutation
+ * tests.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class MultipleTesting {
+  private MultipleTesting() {
+    // Do nothing
+  }
+
+  /**
+   * Adjust p-values for multiple testing with the Benjamini-Hochberg
+   * procedure.
+   *
+   * @param p the p-values.
+   * @return the FDR of each p-value.
+   */
+  public static double[] bh(final double[] p) {
+    int m = p.length;
+
+    Integer[] order = new Integer[m];
+
+    for (int i = 0; i < m; ++i) {
+      order[i] = i;
+    }
+
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer i1, Integer i2) {
+        return Double.compare(p[i1], p[i2]);
+      }
+    });
+
+    double[] ret = new double[m];
+
+    // Enforce monotonicity from the largest p-value down
+    double min = 1;
+
+    for (int r = m - 1; r >= 0; --r) {
+      int i = order[r];
+
+      min = Math.min(min, p[i] * m / (r + 1));
+
+      ret[i] = min;
+    }
+
+    return ret;
+  }
+}
@@ -0,0 +1,544 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.util.SplittableRandom;
+
+import org.jebtk.math.matrix.DataFrame;
+
+/**
+ * A label permutation test of the difference between two groups of columns
+ * for every row of a matrix. Each permutation draws two samples from the
+ * pooled columns of both groups and computes a Welch t-statistic for each row
+ * from running sums of the sampled values. Only the number of permutations at
+ * least as extreme as the observed statistic is kept for each row, so the
+ * permuted statistics are never stored. When there are few enough distinct
+ * labelings, every one of them can be enumerated instead.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class PermutationTest {
+  public static final int DEFAULT_PERMUTATIONS = 1000;
+
+  /**
+   * The relative tolerance used when comparing a permuted statistic to the
+   * observed one. Permutations that reproduce the observed labelling give
+   * the same statistic, but summed in a different order, so they must not be
+   * lost to rounding.
+   */
+  private static final double TOLERANCE = 1e-9;
+
+  /** The values of the pooled columns, one array per row. */
+  private final double[][] mData;
+
+  private final int mN1;
+  private final int mN2;
+  private final int mSize1;
+  private final int mSize2;
+  private final boolean mWithReplacement;
+
+  /**
+   * Whether the two samples of a permutation always cover the pool, so the
+   * sums of the second sample can be found from the sums of the first.
+   */
+  private final boolean mComplement;
+
+  private final double[] mMeans;
+  private final double[] mSums;
+  private final double[] mSumSqs;
+
+  /**
+   * Instantiates a new permutation test.
+   *
+   * @param m               the matrix.
+   * @param indices1        the columns of the first group.
+   * @param indices2        the columns of the second group.
+   * @param size1           the size of the first sample of a permutation.
+   * @param size2           the size of the second sample of a permutation.
+   * @param withReplacement whether columns can be sampled more than once.
+   */
+  public PermutationTest(DataFrame m, int[] indices1, int[] indices2, int size1, int size2,
+      boolean withReplacement) {
+    mN1 = indices1.length;
+    mN2 = indices2.length;
+    mSize1 = size1;
+    mSize2 = size2;
+    mWithReplacement = withReplacement;
+
+    int p = mN1 + mN2;
+
+    mComplement = !withReplacement && size1 + size2 == p;
+
+    int rows = m.getRows();
+
+    mData = new double[rows][p];
+    mMeans = new double[rows];
+    mSums = new double[rows];
+    mSumSqs = new double[rows];
+
+    for (int r = 0; r < rows; ++r) {
+      double[] row = mData[r];
+
+      for (int i = 0; i < mN1; ++i) {
+        row[i] = m.getValue(r, indices1[i]);
+      }
+
+      for (int i = 0; i < mN2; ++i) {
+        row[mN1 + i] = m.getValue(r, indices2[i]);
+      }
+
+      // The statistic does not change if the row is shifted, so center it
+      // to avoid cancellation in the sums of squares
+      double mean = 0;
+
+      for (double v : row) {
+        mean += v;
+      }
+
+      mean /= p;
+
+      mMeans[r] = mean;
+
+      for (int i = 0; i < p; ++i) {
+        double v = row[i] - mean;
+
+        row[i] = v;
+        mSums[r] += v;
+        mSumSqs[r] += v * v;
+      }
+    }
+  }
+
+  public int getRows() {
+    return mData.length;
+  }
+
+  /**
+   * Returns the size of the pool the samples are drawn from.
+   *
+   * @return the number of pooled columns.
+   */
+  public int getPoolSize() {
+    return mN1 + mN2;
+  }
+
+  public boolean getWithReplacement() {
+    return mWithReplacement;
+  }
+
+  /**
+   * Returns the number of distinct pairs of samples that can be drawn
+   * without replacement. Sampling with replacement does not draw its samples
+   * uniformly, so they are never enumerated and this returns Long.MAX_VALUE.
+   *
+   * @return the number of distinct labelings, or Long.MAX_VALUE if there are
+   *         more than that.
+   */
+  public long getLabelings() {
+    if (mWithReplacement) {
+      return Long.MAX_VALUE;
+    }
+
+    int p = getPoolSize();
+
+    long ret = GrayCombinations.count(p, mSize1);
+
+    if (!mComplement) {
+      ret = GrayCombinations.multiply(ret, GrayCombinations.count(p - mSize1, mSize2));
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns whether enumerating every labeling includes the observed one.
+   *
+   * @return true if the observed labeling is enumerated.
+   */
+  public boolean getObservedEnumerated() {
+    return mComplement && mSize1 == mN1;
+  }
+
+  /**
+   * Returns the number of bits in the key of a labeling.
+   *
+   * @return the number of bits.
+   */
+  public int getKeyBits() {
+    // Only the first sample matters when the second is the rest of the pool
+    return mComplement ? getPoolSize() : 2 * getPoolSize();
+  }
+
+  /**
+   * Encode a pair of samples as a bitset so that repeats can be found.
+   *
+   * @param a   the first sample.
+   * @param b   the second sample.
+   * @param key receives the bitset, which must have at least
+   *            {@link #getKeyBits()} bits.
+   */
+  public void key(int[] a, int[] b, long[] key) {
+    LabelingSet.clear(key);
+
+    for (int i : a) {
+      LabelingSet.set(key, i);
+    }
+
+    if (!mComplement) {
+      int p = getPoolSize();
+
+      for (int i : b) {
+        LabelingSet.set(key, p + i);
+      }
+    }
+  }
+
+  /**
+   * Returns the t-statistic of each row for the real groups. The means and
+   * variances come from every column of each group, but the standard error
+   * is taken at the sample sizes of a permutation so that the observed
+   * statistic is on the same scale as the permuted ones. When the sample
+   * sizes are the group sizes this is the usual Welch statistic.
+   *
+   * @return the statistics.
+   */
+  public double[] observed() {
+    double[] ret = new double[mData.length];
+
+    // There is no variance to scale by with fewer than two columns
+    if (mN1 < 2 || mN2 < 2) {
+      return ret;
+    }
+
+    for (int r = 0; r < mData.length; ++r) {
+      double[] row = mData[r];
+
+      double sumA = 0;
+      double sqA = 0;
+
+      for (int i = 0; i < mN1; ++i) {
+        double v = row[i];
+
+        sumA += v;
+        sqA += v * v;
+      }
+
+      double sumB = mSums[r] - sumA;
+      double sqB = mSumSqs[r] - sqA;
+
+      double meanA = sumA / mN1;
+      double meanB = sumB / mN2;
+
+      ret[r] = welch(meanA, variance(sumA, sqA, meanA, mN1), mSize1, meanB, variance(sumB, sqB, meanB, mN2),
+          mSize2);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the mean of each row over a group.
+   *
+   * @param group 1 or 2.
+   * @return the means.
+   */
+  public double[] means(int group) {
+    int start = group == 1 ? 0 : mN1;
+    int n = group == 1 ? mN1 : mN2;
+
+    double[] ret = new double[mData.length];
+
+    for (int r = 0; r < mData.length; ++r) {
+      double sum = 0;
+
+      for (int i = 0; i < n; ++i) {
+        sum += mData[r][start + i];
+      }
+
+      ret[r] = mMeans[r] + sum / n;
+    }
+
+    return ret;
+  }
+
+  /**
+   * Draw the two samples of a permutation from the pool.
+   *
+   * @param random the generator of the permutation.
+   * @param work   a work array the size of the pool.
+   * @param a      receives the first sample.
+   * @param b      receives the second sample.
+   */
+  public void draw(SplittableRandom random, int[] work, int[] a, int[] b) {
+    int p = work.length;
+
+    if (mWithReplacement) {
+      for (int i = 0; i < mSize1; ++i) {
+        a[i] = random.nextInt(p);
+      }
+
+      for (int i = 0; i < mSize2; ++i) {
+        b[i] = random.nextInt(p);
+      }
+    } else {
+      for (int i = 0; i < p; ++i) {
+        work[i] = i;
+      }
+
+      // A partial Fisher-Yates shuffle whose first size1 columns form the
+      // first sample and next size2 columns the second
+      int s = mSize1 + mSize2;
+
+      for (int i = 0; i < s; ++i) {
+        int j = i + random.nextInt(p - i);
+
+        int t = work[i];
+        work[i] = work[j];
+        work[j] = t;
+      }
+
+      System.arraycopy(work, 0, a, 0, mSize1);
+      System.arraycopy(work, mSize1, b, 0, mSize2);
+    }
+  }
+
+  /**
+   * Count the rows whose statistic for a permutation is at least as extreme
+   * as the observed one.
+   *
+   * @param a        the first sample.
+   * @param b        the second sample.
+   * @param observed the absolute observed statistic of each row.
+   * @param counts   the count of each row, which is incremented.
+   */
+  public void count(int[] a, int[] b, double[] observed, int[] counts) {
+    for (int r = 0; r < mData.length; ++r) {
+      double t = mComplement ? tComplement(r, a) : t(mData[r], a, b);
+
+      if (Math.abs(t) >= observed[r] * (1 - TOLERANCE)) {
+        ++counts[r];
+      }
+    }
+  }
+
+  /**
+   * Count, for a block of rows, the labelings without replacement that are
+   * at least as extreme as the observed one by enumerating every one of them.
+   * The samples change by one column at each step of the enumeration, so the
+   * sums of each sample are updated rather than recomputed.
+   *
+   * @param start    the first row.
+   * @param end      the row after the last.
+   * @param observed the absolute observed statistic of each row.
+   * @return the count of each row of the block.
+   */
+  public int[] countAll(int start, int end, double[] observed) {
+    int p = getPoolSize();
+
+    int[] ret = new int[end - start];
+
+    boolean[] inA = new boolean[p];
+    int[] rest = new int[p - mSize1];
+
+    for (int r = start; r < end; ++r) {
+      double[] row = mData[r];
+      double threshold = observed[r] * (1 - TOLERANCE);
+
+      int count = 0;
+
+      GrayCombinations combinationsA = new GrayCombinations(p, mSize1);
+
+      double sumA = 0;
+      double sqA = 0;
+
+      for (int i = 0; i < p; ++i) {
+        inA[i] = false;
+      }
+
+      for (int i : combinationsA.get()) {
+        double v = row[i];
+
+        sumA += v;
+        sqA += v * v;
+
+        inA[i] = true;
+      }
+
+      while (true) {
+        if (mComplement) {
+          double t = t(sumA, sqA, mSize1, mSums[r] - sumA, mSumSqs[r] - sqA, mSize2);
+
+          if (Math.abs(t) >= threshold) {
+            ++count;
+          }
+        } else {
+          // The second sample is drawn from the columns not in the first
+          int n = 0;
+
+          for (int i = 0; i < p; ++i) {
+            if (!inA[i]) {
+              rest[n++] = i;
+            }
+          }
+
+          GrayCombinations combinationsB = new GrayCombinations(n, mSize2);
+
+          double sumB = 0;
+          double sqB = 0;
+
+          for (int i : combinationsB.get()) {
+            double v = row[rest[i]];
+
+            sumB += v;
+            sqB += v * v;
+          }
+
+          while (true) {
+            double t = t(sumA, sqA, mSize1, sumB, sqB, mSize2);
+
+            if (Math.abs(t) >= threshold) {
+              ++count;
+            }
+
+            if (!combinationsB.next()) {
+              break;
+            }
+
+            double out = row[rest[combinationsB.getOut()]];
+            double in = row[rest[combinationsB.getIn()]];
+
+            sumB += in - out;
+            sqB += in * in - out * out;
+          }
+        }
+
+        if (!combinationsA.next()) {
+          break;
+        }
+
+        double out = row[combinationsA.getOut()];
+        double in = row[combinationsA.getIn()];
+
+        sumA += in - out;
+        sqA += in * in - out * out;
+
+        inA[combinationsA.getOut()] = false;
+        inA[combinationsA.getIn()] = true;
+      }
+
+      ret[r - start] = count;
+    }
+
+    return ret;
+  }
+
+  private static double t(double[] row, int[] a, int[] b) {
+    double sumA = 0;
+    double sqA = 0;
+
+    for (int i : a) {
+      double v = row[i];
+
+      sumA += v;
+      sqA += v * v;
+    }
+
+    double sumB = 0;
+    double sqB = 0;
+
+    for (int i : b) {
+      double v = row[i];
+
+      sumB += v;
+      sqB += v * v;
+    }
+
+    return t(sumA, sqA, a.length, sumB, sqB, b.length);
+  }
+
+  /**
+   * The t-statistic of a row when the second sample is every pooled column
+   * not in the first.
+   */
+  private double tComplement(int r, int[] a) {
+    double[] row = mData[r];
+
+    double sumA = 0;
+    double sqA = 0;
+
+    for (int i : a) {
+      double v = row[i];
+
+      sumA += v;
+      sqA += v * v;
+    }
+
+    return t(sumA, sqA, a.length, mSums[r] - sumA, mSumSqs[r] - sqA, mSize2);
+  }
+
+  /**
+   * Welch's t-statistic from the sums and sums of squares of two samples.
+   *
+   * @return the statistic, or 0 if neither sample varies.
+   */
+  private static double t(double sumA, double sqA, int nA, double sumB, double sqB, int nB) {
+    if (nA < 2 || nB < 2) {
+      return 0;
+    }
+
+    double meanA = sumA / nA;
+    double meanB = sumB / nB;
+
+    return welch(meanA, variance(sumA, sqA, meanA, nA), nA, meanB, variance(sumB, sqB, meanB, nB), nB);
+  }
+
+  /**
+   * The sample variance from the sum and sum of squares, clamped since
+   * rounding can make it slightly negative when the values are equal.
+   */
+  private static double variance(double sum, double sq, double mean, int n) {
+    return Math.max(0, (sq - sum * mean) / (n - 1));
+  }
+
+  /**
+   * Welch's t-statistic from the means and variances of two samples and the
+   * sizes their standard errors are taken at.
+   *
+   * @return the statistic, or 0 if neither sample varies.
+   */
+  private static double welch(double meanA, double varA, int nA, double meanB, double varB, int nB) {
+    double se = Math.sqrt(varA / nA + varB / nB);
+
+    if (se == 0) {
+      return 0;
+    }
+
+    return (meanA - meanB) / se;
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.awt.Dimension;
+import java.text.ParseException;
+
+import org.jebtk.graphplot.figure.series.XYSeries;
+import org.jebtk.graphplot.figure.series.XYSeriesGroup;
+import org.jebtk.modern.UI;
+import org.jebtk.modern.dialog.ModernDialogTaskWindow;
+import org.jebtk.modern.window.ModernWindow;
+import org.jebtk.modern.window.WindowWidgetFocusEvents;
+
+public class PermutationTestDialog extends ModernDialogTaskWindow {
+  private static final long serialVersionUID = 1L;
+
+  private PermuteGroupsPanel mGroupsPanel;
+
+  public PermutationTestDialog(ModernWindow parent, XYSeriesGroup groups) {
+    super(parent);
+
+    mGroupsPanel = new PermuteGroupsPanel(groups, PermutationTest.DEFAULT_PERMUTATIONS);
+
+    setTitle("Permutation Test");
+
+    setContent(mGroupsPanel);
+
+    setup();
+  }
+
+  private void setup() {
+    addWindowListener(new WindowWidgetFocusEvents(mOkButton));
+
+    setSize(new Dimension(600, 320));
+
+    UI.centerWindowToScreen(this);
+  }
+
+  public boolean getSampleWithReplacement() {
+    return mGroupsPanel.getSampleWithReplacement();
+  }
+
+  public int getSample1Size() throws ParseException {
+    return mGroupsPanel.getSample1Size();
+  }
+
+  public int getSample2Size() throws ParseException {
+    return mGroupsPanel.getSample2Size();
+  }
+
+  public int getPermutations() throws ParseException {
+    return mGroupsPanel.getPermutations();
+  }
+
+  public int getSeed() throws ParseException {
+    return mGroupsPanel.getSeed();
+  }
+
+  public XYSeries getGroup1() {
+    return mGroupsPanel.getGroup1();
+  }
+
+  public XYSeries getGroup2() {
+    return mGroupsPanel.getGroup2();
+  }
+}
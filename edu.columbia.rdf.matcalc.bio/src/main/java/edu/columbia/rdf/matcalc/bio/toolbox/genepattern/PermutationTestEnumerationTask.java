@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Enumerates every labeling of a permutation test for a block of rows and
+ * returns, for each row, how many of them were at least as extreme as the
+ * observed statistic.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class PermutationTestEnumerationTask extends RecursiveTask<int[]> {
+  private static final long serialVersionUID = 1L;
+
+  private final PermutationTest mTest;
+  private final int mStart;
+  private final int mEnd;
+  private final double[] mObserved;
+
+  /**
+   * Instantiates a new permutation test enumeration task.
+   *
+   * @param test     the test.
+   * @param start    the first row.
+   * @param end      the row after the last.
+   * @param observed the absolute observed statistic of each row.
+   */
+  public PermutationTestEnumerationTask(PermutationTest test, int start, int end, double[] observed) {
+    mTest = test;
+    mStart = start;
+    mEnd = end;
+    mObserved = observed;
+  }
+
+  @Override
+  protected int[] compute() {
+    return mTest.countAll(mStart, mEnd, mObserved);
+  }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.text.ParseException;
+
+import org.jebtk.graphplot.figure.series.XYSeries;
+import org.jebtk.graphplot.figure.series.XYSeriesGroup;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.AssetService;
+import org.jebtk.modern.dialog.MessageDialogType;
+import org.jebtk.modern.dialog.ModernDialogStatus;
+import org.jebtk.modern.dialog.ModernMessageDialog;
+import org.jebtk.modern.event.ModernClickEvent;
+import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.ribbon.RibbonLargeButton;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.IndexUtils;
+import edu.columbia.rdf.matcalc.toolbox.Module;
+
+/**
+ * Tests every row of the current matrix for a difference between two groups
+ * by permuting the group labels.
+ */
+public class PermutationTestModule extends Module implements ModernClickListener {
+
+  /**
+   * The member parent.
+   */
+  private MainMatCalcWindow mParent;
+
+  @Override
+  public String getName() {
+    return "Permutation Test";
+  }
+
+  @Override
+  public void init(MainMatCalcWindow window) {
+    mParent = window;
+
+    RibbonLargeButton button = new RibbonLargeButton("Permutation Test",
+        AssetService.getInstance().loadIcon("line_graph", 24), "Permutation Test",
+        "Test each row for a difference between two groups by permuting the group labels.");
+    button.addClickListener(this);
+
+    mParent.getRibbon().getToolbar("Bioinformatics").getSection("GenePattern").add(button);
+  }
+
+  @Override
+  public void clicked(ModernClickEvent e) {
+    try {
+      test();
+    } catch (ParseException e1) {
+      e1.printStackTrace();
+    }
+  }
+
+  private void test() throws ParseException {
+    DataFrame m = mParent.getCurrentMatrix();
+
+    if (m == null) {
+      showLoadMatrixError(mParent);
+
+      return;
+    }
+
+    XYSeriesGroup groups = mParent.getGroups();
+
+    if (groups.size() < 2) {
+      ModernMessageDialog.createDialog(mParent, "You must create some groups.", MessageDialogType.WARNING);
+
+      return;
+    }
+
+    PermutationTestDialog dialog = new PermutationTestDialog(mParent, groups);
+
+    dialog.setVisible(true);
+
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
+    }
+
+    int reps = dialog.getPermutations();
+
+    if (reps < 1) {
+      ModernMessageDialog.createDialog(mParent, "You must create at least one permutation.", MessageDialogType.WARNING);
+
+      return;
+    }
+
+    XYSeries group1 = dialog.getGroup1();
+    int size1 = dialog.getSample1Size();
+
+    XYSeries group2 = dialog.getGroup2();
+    int size2 = dialog.getSample2Size();
+
+    boolean sampleWithReplacement = dialog.getSampleWithReplacement();
+
+    int[] indices1 = IndexUtils.toArray(XYSeries.findColumnIndices(m, group1));
+    int[] indices2 = IndexUtils.toArray(XYSeries.findColumnIndices(m, group2));
+
+    // A t-statistic needs the variance of each group and of each sample
+    if (indices1.length < 2 || indices2.length < 2) {
+      ModernMessageDialog.createDialog(mParent, "Both groups must match at least two columns.",
+          MessageDialogType.WARNING);
+
+      return;
+    }
+
+    if (size1 < 2 || size2 < 2) {
+      ModernMessageDialog.createDialog(mParent, "The sample sizes must be at least 2.", MessageDialogType.WARNING);
+
+      return;
+    }
+
+    if (!sampleWithReplacement && (size1 > indices1.length || size2 > indices2.length)) {
+      ModernMessageDialog.createDialog(mParent,
+          "The sample sizes are larger than the number of columns in the groups.", MessageDialogType.WARNING);
+
+      return;
+    }
+
+    new PermutationTestWorker(mParent, m, indices1, indices2, size1, size2, sampleWithReplacement, reps,
+        dialog.getSeed()).execute();
+  }
+}
@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.util.SplittableRandom;
+
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+
+/**
+ * Runs a permutation test in parallel blocks of permutations and adds the
+ * statistic, empirical p-value and FDR of each row to a copy of the matrix.
+ * Each permutation has its own generator split off the seed in order, so the
+ * results do not depend on the number of threads. Without replacement a
+ * labeling is never used twice, and when there are no more distinct labelings
+ * than permutations every one of them is enumerated instead.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class PermutationTestWorker extends ProgressWorker {
+  /** The number of permutations each task runs. */
+  private static final int BLOCK_SIZE = 50;
+
+  /** The number of rows each task runs when enumerating every labeling. */
+  private static final int ROW_BLOCK_SIZE = 64;
+
+  private final MainMatCalcWindow mWindow;
+  private final DataFrame mM;
+  private final int[] mIndices1;
+  private final int[] mIndices2;
+  private final int mSize1;
+  private final int mSize2;
+  private final boolean mWithReplacement;
+  private final int mPermutations;
+  private final long mSeed;
+
+  private DataFrame mResultsM;
+
+  /**
+   * Instantiates a new permutation test worker.
+   *
+   * @param window          the window to add the results to.
+   * @param m               the matrix.
+   * @param indices1        the columns of the first group.
+   * @param indices2        the columns of the second group.
+   * @param size1           the size of the first sample of a permutation.
+   * @param size2           the size of the second sample of a permutation.
+   * @param withReplacement whether columns can be sampled more than once.
+   * @param permutations    the number of permutations.
+   * @param seed            the seed.
+   */
+  public PermutationTestWorker(MainMatCalcWindow window, DataFrame m, int[] indices1, int[] indices2, int size1,
+      int size2, boolean withReplacement, int permutations, long seed) {
+    super(window, "Running permutation test...");
+
+    mWindow = window;
+    mM = m;
+    mIndices1 = indices1;
+    mIndices2 = indices2;
+    mSize1 = size1;
+    mSize2 = size2;
+    mWithReplacement = withReplacement;
+    mPermutations = permutations;
+    mSeed = seed;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    PermutationTest test = new PermutationTest(mM, mIndices1, mIndices2, mSize1, mSize2, mWithReplacement);
+
+    int rows = test.getRows();
+
+    double[] t = test.observed();
+    double[] observed = new double[rows];
+
+    for (int r = 0; r < rows; ++r) {
+      observed[r] = Math.abs(t[r]);
+    }
+
+    long labelings = test.getLabelings();
+
+    // Enumerate every labeling if there are no more of them than the
+    // permutations asked for
+    boolean exhaustive = labelings <= mPermutations;
+
+    int[] counts = exhaustive ? enumerate(test, observed) : sample(test, observed);
+
+    if (counts == null) {
+      return null;
+    }
+
+    // The p-value is exact when the observed labeling is one of those
+    // enumerated, otherwise the observed labeling is counted as one of the
+    // permutations so that p is never zero
+    long total = exhaustive ? labelings : mPermutations;
+    int extra = exhaustive && test.getObservedEnumerated() ? 0 : 1;
+
+    // Rows with missing values have no statistic so are left out of the
+    // FDR
+    int tested = 0;
+
+    for (int r = 0; r < rows; ++r) {
+      if (!Double.isNaN(t[r])) {
+        ++tested;
+      }
+    }
+
+    double[] p = new double[tested];
+
+    tested = 0;
+
+    for (int r = 0; r < rows; ++r) {
+      if (!Double.isNaN(t[r])) {
+        p[tested++] = (counts[r] + extra) / (double) (total + extra);
+      }
+    }
+
+    double[] fdr = MultipleTesting.bh(p);
+
+    double[] mean1 = test.means(1);
+    double[] mean2 = test.means(2);
+
+    Double[] tCol = new Double[rows];
+    Double[] mean1Col = new Double[rows];
+    Double[] mean2Col = new Double[rows];
+    Double[] pCol = new Double[rows];
+    Double[] fdrCol = new Double[rows];
+
+    tested = 0;
+
+    for (int r = 0; r < rows; ++r) {
+      tCol[r] = t[r];
+      mean1Col[r] = mean1[r];
+      mean2Col[r] = mean2[r];
+
+      if (Double.isNaN(t[r])) {
+        pCol[r] = Double.NaN;
+        fdrCol[r] = Double.NaN;
+      } else {
+        pCol[r] = p[tested];
+        fdrCol[r] = fdr[tested++];
+      }
+    }
+
+    mResultsM = new DataFrame(mM);
+
+    mResultsM.getIndex().setAnnotation("Mean 1", mean1Col);
+    mResultsM.getIndex().setAnnotation("Mean 2", mean2Col);
+    mResultsM.getIndex().setAnnotation("t-statistic", tCol);
+    mResultsM.getIndex().setAnnotation("Empirical p-value", pCol);
+    mResultsM.getIndex().setAnnotation("FDR", fdrCol);
+
+    return null;
+  }
+
+  /**
+   * Count the extreme permutations of each row by enumerating every labeling,
+   * in parallel blocks of rows.
+   *
+   * @return the counts, or null if the user cancelled.
+   */
+  private int[] enumerate(final PermutationTest test, final double[] observed) throws Exception {
+    final int rows = test.getRows();
+
+    final int[] counts = new int[rows];
+
+    int blocks = (rows + ROW_BLOCK_SIZE - 1) / ROW_BLOCK_SIZE;
+
+    boolean finished = run(blocks, new TaskSource<int[]>() {
+      @Override
+      public PermutationTestEnumerationTask create(int i) {
+        int start = i * ROW_BLOCK_SIZE;
+
+        return new PermutationTestEnumerationTask(test, start, Math.min(start + ROW_BLOCK_SIZE, rows), observed);
+      }
+
+      @Override
+      public void finished(int i, int[] block) {
+        copy(block, i * ROW_BLOCK_SIZE, counts);
+      }
+    });
+
+    return finished ? counts : null;
+  }
+
+  /**
+   * Count the extreme permutations of each row from random labelings, in
+   * parallel blocks of permutations. Labelings drawn without replacement
+   * that repeat an earlier one are drawn again.
+   *
+   * @return the counts, or null if the user cancelled.
+   */
+  private int[] sample(final PermutationTest test, final double[] observed) throws Exception {
+    final int[] counts = new int[test.getRows()];
+
+    // Sampling with replacement repeats labelings by design
+    final LabelingSet seen = test.getWithReplacement() ? null : new LabelingSet(test.getKeyBits(), mPermutations);
+
+    final long[] key = LabelingSet.createKey(test.getKeyBits());
+    final int[] work = new int[test.getPoolSize()];
+
+    final SplittableRandom random = new SplittableRandom(mSeed);
+
+    int blocks = (mPermutations + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+    boolean finished = run(blocks, new TaskSource<int[]>() {
+      @Override
+      public PermutationTestTask create(int b) {
+        int n = Math.min(BLOCK_SIZE, mPermutations - b * BLOCK_SIZE);
+
+        int[][] samples1 = new int[n][mSize1];
+        int[][] samples2 = new int[n][mSize2];
+
+        for (int i = 0; i < n; ++i) {
+          test.draw(random.split(), work, samples1[i], samples2[i]);
+
+          if (seen != null) {
+            test.key(samples1[i], samples2[i], key);
+
+            // There are more distinct labelings than permutations, so this
+            // always ends
+            while (!seen.add(key)) {
+              test.draw(random.split(), work, samples1[i], samples2[i]);
+              test.key(samples1[i], samples2[i], key);
+            }
+          }
+        }
+
+        return new PermutationTestTask(test, samples1, samples2, observed);
+      }
+
+      @Override
+      public void finished(int b, int[] block) {
+        add(block, counts);
+      }
+    });
+
+    return finished ? counts : null;
+  }
+
+  private static void copy(int[] block, int start, int[] counts) {
+    System.arraycopy(block, 0, counts, start, block.length);
+  }
+
+  private static void add(int[] block, int[] counts) {
+    for (int r = 0; r < counts.length; ++r) {
+      counts[r] += block[r];
+    }
+  }
+
+  @Override
+  protected void finished() {
+    mWindow.history().addToHistory("Permutation Test", mResultsM);
+  }
+}
@@ -30,14 +30,9 @@ package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.text.ParseException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.batik.transcoder.TranscoderException;
-import org.jebtk.core.Mathematics;
-import org.jebtk.core.collections.UniqueArrayList;
-import org.jebtk.core.io.PathUtils;
 import org.jebtk.graphplot.figure.series.XYSeries;
 import org.jebtk.graphplot.figure.series.XYSeriesGroup;
 import org.jebtk.math.matrix.DataFrame;
@@ -51,6 +46,7 @@ import org.jebtk.modern.io.RecentFilesService;
 import org.jebtk.modern.ribbon.RibbonLargeButton;
 
 import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.IndexUtils;
 import edu.columbia.rdf.matcalc.toolbox.Module;
 
 /**
@@ -178,55 +174,13 @@ public class PermuteClsModule extends Module implements ModernClickListener {
     List<Integer> indices1 = XYSeries.findColumnIndices(matrix, group1);
     List<Integer> indices2 = XYSeries.findColumnIndices(matrix, group2);
 
-    // Create multiple files
-    for (int rep = 0; rep < reps; ++rep) {
-      Path file = dir.resolve(prefix + "_" + (rep + 1) + ".cls");
+    ClsPermutation permutation = new ClsPermutation(IndexUtils.toArray(indices1), size1,
+        IndexUtils.toArray(indices2), size2, sampleWithReplacement);
 
-      System.err.println("Creating CLS " + file);
+    // Indexed by the labels of ClsPermutation
+    String[] groupNames = { Cls.UNDEF_GROUP, group1.getName(), group2.getName() };
 
-      Map<String, String> groupMap = new HashMap<String, String>();
-
-      for (String name : matrix.getColumnNames()) {
-        groupMap.put(name, Cls.UNDEF_GROUP);
-      }
-
-      List<Integer> subIndices1;
-      List<Integer> subIndices2;
-
-      if (sampleWithReplacement) {
-        subIndices1 = Mathematics.randSubsetWithReplacement(indices1, size1);
-        subIndices2 = Mathematics.randSubsetWithReplacement(indices2, size2);
-      } else {
-        subIndices1 = Mathematics.randSubsetWithoutReplacement(indices1, size1);
-        subIndices2 = Mathematics.randSubsetWithoutReplacement(indices2, size2);
-      }
-
-      for (int i : subIndices1) {
-        groupMap.put(matrix.getColumnName(i), group1.getName());
-      }
-
-      for (int i : subIndices2) {
-        groupMap.put(matrix.getColumnName(i), group2.getName());
-      }
-
-      // Now make a list of the unique group names in the order they appear
-
-      List<String> names = new UniqueArrayList<String>();
-
-      for (String name : matrix.getColumnNames()) {
-        names.add(groupMap.get(name));
-      }
-
-      Cls.write(file, names, groupMap, matrix);
-
-    }
-
-    if (reps == 1) {
-      ModernMessageDialog.createDialog(mParent, MessageDialogType.INFORMATION, "The CLS file has been saved in:",
-          PathUtils.toString(dir));
-    } else {
-      ModernMessageDialog.createDialog(mParent, MessageDialogType.INFORMATION,
-          "The " + reps + " CLS files have been saved in:", PathUtils.toString(dir));
-    }
+    new PermuteClsWorker(mParent, permutation, matrix, groupNames, dir, prefix, reps, dialog.getSeed(),
+        dialog.getOutput()).execute();
   }
 }
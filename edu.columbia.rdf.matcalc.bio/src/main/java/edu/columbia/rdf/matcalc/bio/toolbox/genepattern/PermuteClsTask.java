@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveTask;
+
+import org.jebtk.core.io.FileUtils;
+
+/**
+ * Draws one CLS permutation and, when writing one file per replicate, writes
+ * it to its file. Labelings that are enumerated rather than drawn are passed
+ * in ready made and only written.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class PermuteClsTask extends RecursiveTask<int[]> {
+  private static final long serialVersionUID = 1L;
+
+  private final ClsPermutation mPermutation;
+  private final SplittableRandom mRandom;
+  private final int[] mLabels;
+  private final String[] mGroupNames;
+  private final Path mFile;
+
+  /**
+   * Instantiates a new permute cls task.
+   *
+   * @param permutation the permutation to draw from.
+   * @param random      the generator of the replicate or null if the labels
+   *                    are already set.
+   * @param labels      receives the labels of the replicate.
+   * @param groupNames  the name of each label.
+   * @param file        the CLS file or null if the labels are written by the
+   *                    caller.
+   */
+  public PermuteClsTask(ClsPermutation permutation, SplittableRandom random, int[] labels, String[] groupNames,
+      Path file) {
+    mPermutation = permutation;
+    mRandom = random;
+    mLabels = labels;
+    mGroupNames = groupNames;
+    mFile = file;
+  }
+
+  @Override
+  protected int[] compute() {
+    if (mRandom != null) {
+      mPermutation.assign(mRandom, mLabels);
+    }
+
+    if (mFile != null) {
+      try {
+        write(mFile, mLabels, mGroupNames);
+      } catch (IOException e) {
+        throw new RuntimeException("Could not write " + mFile + ": " + e.getMessage(), e);
+      }
+    }
+
+    return mLabels;
+  }
+
+  /**
+   * Write the labels of a replicate to a CLS file.
+   *
+   * @param file       the file.
+   * @param labels     the labels.
+   * @param groupNames the name of each label.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void write(Path file, int[] labels, String[] groupNames) throws IOException {
+    BufferedWriter writer = FileUtils.newBufferedWriter(file);
+
+    try {
+      Cls.write(writer, labels, groupNames);
+    } finally {
+      writer.close();
+    }
+  }
+}
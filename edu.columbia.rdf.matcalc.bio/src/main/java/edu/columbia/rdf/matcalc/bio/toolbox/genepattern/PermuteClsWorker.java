@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.PathUtils;
+import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.dialog.MessageDialogType;
+import org.jebtk.modern.dialog.ModernMessageDialog;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+
+/**
+ * Draws and writes CLS permutations in parallel. Every replicate is drawn by
+ * its own task with its own generator, split off the master seed in replicate
+ * order, so a seed always produces the same files whatever the number of
+ * threads. When sampling without replacement, the replicates are checked for
+ * repeats in replicate order as the tasks finish and only a replicate that
+ * repeats an earlier one is drawn again, serially, by continuing its own
+ * generator. When there are no more distinct replicates than were asked for,
+ * every one of them is enumerated instead.
+ *
+ * Replicates can be written as separate CLS files, as the entries of one zip
+ * archive or as the rows of one table. The last two stream every replicate
+ * through a single buffered writer, in replicate order, as the tasks finish.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class PermuteClsWorker extends ProgressWorker {
+
+  /**
+   * How the replicates are written.
+   */
+  public enum Output {
+    /** One CLS file per replicate. */
+    FILES,
+
+    /** One zip archive with a CLS entry per replicate. */
+    ZIP,
+
+    /** One tab delimited table with a row per replicate. */
+    TABLE
+  }
+
+  private final MainMatCalcWindow mWindow;
+  private final ClsPermutation mPermutation;
+  private final DataFrame mMatrix;
+  private final String[] mGroupNames;
+  private final Path mDir;
+  private final String mPrefix;
+  private final int mReps;
+  private final long mSeed;
+  private final Output mOutput;
+
+  private Path mFile;
+
+  /** The number of replicates written. */
+  private int mCount;
+
+  private boolean mExhaustive;
+
+  /**
+   * Instantiates a new permute cls worker.
+   *
+   * @param window      the window.
+   * @param permutation the permutation.
+   * @param matrix      the matrix whose columns are labelled.
+   * @param groupNames  the name of each label.
+   * @param dir         the directory to write the files to.
+   * @param prefix      the file name prefix.
+   * @param reps        the number of replicates.
+   * @param seed        the master seed.
+   * @param output      how the replicates are written.
+   */
+  public PermuteClsWorker(MainMatCalcWindow window, ClsPermutation permutation, DataFrame matrix,
+      String[] groupNames, Path dir, String prefix, int reps, long seed, Output output) {
+    super(window, "Creating CLS permutations...");
+
+    mWindow = window;
+    mPermutation = permutation;
+    mMatrix = matrix;
+    mGroupNames = groupNames;
+    mDir = dir;
+    mPrefix = prefix;
+    mReps = reps;
+    mSeed = seed;
+    mOutput = output;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    BufferedWriter writer = null;
+    ZipOutputStream zip = null;
+
+    boolean done = false;
+
+    try {
+      switch (mOutput) {
+      case ZIP:
+        mFile = mDir.resolve(mPrefix + ".zip");
+        zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(mFile)));
+        writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+        break;
+      case TABLE:
+        mFile = mDir.resolve(mPrefix + ".txt");
+        writer = FileUtils.newBufferedWriter(mFile);
+        writeHeader(writer);
+        break;
+      default:
+        mFile = mDir;
+        break;
+      }
+
+      long labelings = mPermutation.getLabelings();
+
+      mExhaustive = labelings <= mReps;
+
+      mCount = mExhaustive ? (int) labelings : mReps;
+
+      final ClsEnumeration enumeration = mExhaustive ? mPermutation.enumerate() : null;
+
+      // Sampling with replacement repeats replicates by design
+      final LabelingSet seen = mExhaustive || mPermutation.getWithReplacement() ? null
+          : new LabelingSet(mPermutation.getPoolSize(), mCount);
+
+      final long[] key = LabelingSet.createKey(mPermutation.getPoolSize());
+
+      final SplittableRandom random = new SplittableRandom(mSeed);
+
+      // The generators of the replicates in flight, in replicate order, so a
+      // repeat can be drawn again from where its own generator left off
+      final Deque<SplittableRandom> generators = new ArrayDeque<SplittableRandom>();
+
+      final int cols = mMatrix.getCols();
+
+      final BufferedWriter out = writer;
+      final ZipOutputStream zipOut = zip;
+
+      done = run(mCount, new TaskSource<int[]>() {
+        @Override
+        public PermuteClsTask create(int rep) {
+          int[] labels = new int[cols];
+
+          SplittableRandom generator = null;
+
+          if (mExhaustive) {
+            enumeration.next(labels);
+          } else {
+            generator = random.split();
+
+            generators.add(generator);
+          }
+
+          Path file = mOutput == Output.FILES ? mDir.resolve(getName(rep)) : null;
+
+          return new PermuteClsTask(mPermutation, generator, labels, mGroupNames, file);
+        }
+
+        @Override
+        public void finished(int rep, int[] labels) throws IOException {
+          if (!mExhaustive) {
+            SplittableRandom generator = generators.removeFirst();
+
+            if (seen != null && repeat(labels, seen, key, generator) && mOutput == Output.FILES) {
+              PermuteClsTask.write(mDir.resolve(getName(rep)), labels, mGroupNames);
+            }
+          }
+
+          write(out, zipOut, rep, labels);
+        }
+      });
+    } finally {
+      if (writer != null) {
+        writer.close();
+
+        // A partial archive or table would look like a finished run
+        if (!done) {
+          Files.deleteIfExists(mFile);
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Draw a replicate again until it differs from every earlier one.
+   *
+   * @param labels    the labels of the replicate.
+   * @param seen      the earlier replicates.
+   * @param key       a work key.
+   * @param generator the generator of the replicate.
+   * @return true if the replicate had to be drawn again.
+   */
+  private boolean repeat(int[] labels, LabelingSet seen, long[] key, SplittableRandom generator) {
+    mPermutation.key(labels, key);
+
+    boolean ret = false;
+
+    // There are more distinct replicates than are needed, so this always ends
+    while (!seen.add(key)) {
+      mPermutation.assign(generator, labels);
+      mPermutation.key(labels, key);
+
+      ret = true;
+    }
+
+    return ret;
+  }
+
+  private String getName(int rep) {
+    return mPrefix + "_" + (rep + 1) + ".cls";
+  }
+
+  private void writeHeader(BufferedWriter writer) throws IOException {
+    writer.write("Replicate");
+
+    for (int i = 0; i < mMatrix.getCols(); ++i) {
+      writer.write(TextUtils.TAB_DELIMITER);
+      writer.write(mMatrix.getColumnName(i));
+    }
+
+    writer.newLine();
+  }
+
+  /**
+   * Write a replicate to the shared output, if there is one.
+   *
+   * @param writer the shared writer.
+   * @param zip    the archive the writer writes to in zip mode.
+   * @param rep    the replicate.
+   * @param labels the labels of the replicate.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void write(BufferedWriter writer, ZipOutputStream zip, int rep, int[] labels) throws IOException {
+    switch (mOutput) {
+    case ZIP:
+      zip.putNextEntry(new ZipEntry(getName(rep)));
+      Cls.write(writer, labels, mGroupNames);
+      // The entry must receive everything buffered before it is closed
+      writer.flush();
+      zip.closeEntry();
+      break;
+    case TABLE:
+      writer.write(Integer.toString(rep + 1));
+
+      for (int label : labels) {
+        writer.write(TextUtils.TAB_DELIMITER);
+        writer.write(mGroupNames[label]);
+      }
+
+      writer.newLine();
+      break;
+    default:
+      // Each task writes its own file
+      break;
+    }
+  }
+
+  @Override
+  protected void finished() {
+    if (mCount == 1) {
+      ModernMessageDialog.createDialog(mWindow, MessageDialogType.INFORMATION, "The CLS permutation has been saved in:",
+          PathUtils.toString(mFile));
+    } else if (mExhaustive) {
+      ModernMessageDialog.createDialog(mWindow, MessageDialogType.INFORMATION,
+          "All " + mCount + " distinct CLS permutations have been saved in:", PathUtils.toString(mFile));
+    } else {
+      ModernMessageDialog.createDialog(mWindow, MessageDialogType.INFORMATION,
+          "The " + mCount + " CLS permutations have been saved in:", PathUtils.toString(mFile));
+    }
+  }
+}
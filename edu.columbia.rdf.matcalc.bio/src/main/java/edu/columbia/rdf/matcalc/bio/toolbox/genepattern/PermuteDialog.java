@@ -14,8 +14,7 @@ import org.jebtk.modern.AssetService;
 import org.jebtk.modern.ModernWidget;
 import org.jebtk.modern.UI;
 import org.jebtk.modern.button.ModernButtonWidget;
-import org.jebtk.modern.button.ModernCheckBox;
-import org.jebtk.modern.combobox.ModernComboBox2;
+import org.jebtk.modern.combobox.ModernComboBox;
 import org.jebtk.modern.dialog.ModernDialogTaskWindow;
 import org.jebtk.modern.event.ModernClickEvent;
 import org.jebtk.modern.event.ModernClickListener;
@@ -24,35 +23,26 @@ import org.jebtk.modern.io.RecentFilesService;
 import org.jebtk.modern.panel.HBox;
 import org.jebtk.modern.panel.VBox;
 import org.jebtk.modern.ribbon.RibbonButton;
-import org.jebtk.modern.spinner.ModernCompactSpinner;
 import org.jebtk.modern.text.ModernAutoSizeLabel;
 import org.jebtk.modern.text.ModernTextBorderPanel;
 import org.jebtk.modern.text.ModernTextField;
 import org.jebtk.modern.window.ModernWindow;
 import org.jebtk.modern.window.WindowWidgetFocusEvents;
 
-import edu.columbia.rdf.matcalc.GroupsCombo;
-
 public class PermuteDialog extends ModernDialogTaskWindow {
   private static final long serialVersionUID = 1L;
 
-  private XYSeriesGroup mGroups;
-
-  private GroupsCombo mGroup1Combo;
+  private static final String[] OUTPUTS = { "CLS files", "Zip archive", "Permutation table" };
 
-  private GroupsCombo mGroup2Combo;
-
-  private ModernCompactSpinner mTextSize1 = new ModernCompactSpinner(1, 1000, 10);
+  private XYSeriesGroup mGroups;
 
-  private ModernCompactSpinner mTextSize2 = new ModernCompactSpinner(1, 1000, 10);
+  private PermuteGroupsPanel mGroupsPanel;
 
   private ModernTextField mTextPrefix = new ModernTextField("cls_perm");
 
-  private ModernCompactSpinner mTextPermutations = new ModernCompactSpinner(1, 100000, 10);
-
   private ModernTextField mTextLocation = new ModernTextField();
 
-  private ModernCheckBox mCheckSampleWithReplacement = new ModernCheckBox("Sample with replacement");
+  private ModernComboBox mOutputCombo = new ModernComboBox(new Dimension(200, ModernWidget.WIDGET_HEIGHT));
 
   private ModernButtonWidget mChangeButton = new RibbonButton("Change...",
       AssetService.getInstance().loadIcon("open", 16));
@@ -94,18 +84,15 @@ public class PermuteDialog extends ModernDialogTaskWindow {
     mTextPrefix.setText(TextUtils.replaceSpaces(mGroups.get(0).getName().trim()) + "_vs_"
         + TextUtils.replaceSpaces(mGroups.get(1).getName().trim()) + "_perm");
 
-    mGroup2Combo.setSelectedIndex(1);
-
     setResizable(true);
 
-    setSize(new Dimension(600, 360));
+    setSize(new Dimension(600, 440));
 
     UI.centerWindowToScreen(this);
   }
 
   private final void createUi() {
-    mGroup1Combo = new GroupsCombo(mGroups);
-    mGroup2Combo = new GroupsCombo(mGroups);
+    mGroupsPanel = new PermuteGroupsPanel(mGroups, 10);
 
     Box box;
 
@@ -121,26 +108,7 @@ public class PermuteDialog extends ModernDialogTaskWindow {
 
     content.add(UI.createVGap(30));
 
-    box = HBox.create();
-    box.add(new ModernAutoSizeLabel("Group 1", ModernWidget.STANDARD_SIZE));
-    box.add(UI.createHGap(5));
-    box.add(mGroup1Combo);
-    box.add(UI.createHGap(30));
-    box.add(new ModernAutoSizeLabel("Size"));
-    box.add(UI.createHGap(5));
-    box.add(mTextSize1);
-    content.add(box);
-    content.add(UI.createVGap(5));
-
-    box = HBox.create();
-    box.add(new ModernAutoSizeLabel("Group 2", ModernWidget.STANDARD_SIZE));
-    box.add(UI.createHGap(5));
-    box.add(mGroup2Combo);
-    box.add(UI.createHGap(30));
-    box.add(new ModernAutoSizeLabel("Size"));
-    box.add(UI.createHGap(5));
-    box.add(mTextSize2);
-    content.add(box);
+    content.add(mGroupsPanel);
 
     content.add(UI.createVGap(30));
 
@@ -150,29 +118,31 @@ public class PermuteDialog extends ModernDialogTaskWindow {
     box.add(new ModernTextBorderPanel(mTextPrefix, 200));
     content.add(box);
 
-    content.add(UI.createVGap(30));
+    content.add(UI.createVGap(5));
+
+    for (String output : OUTPUTS) {
+      mOutputCombo.addScrollMenuItem(output);
+    }
 
     box = HBox.create();
-    box.add(new ModernAutoSizeLabel("Permutations", ModernWidget.STANDARD_SIZE));
+    box.add(new ModernAutoSizeLabel("Output", ModernWidget.STANDARD_SIZE));
     box.add(UI.createHGap(5));
-    box.add(mTextPermutations);
-    box.add(UI.createHGap(10));
-    box.add(mCheckSampleWithReplacement);
+    box.add(mOutputCombo);
     content.add(box);
 
     setContent(content);
   }
 
   public boolean getSampleWithReplacement() {
-    return mCheckSampleWithReplacement.isSelected();
+    return mGroupsPanel.getSampleWithReplacement();
   }
 
   public int getSample1Size() throws ParseException {
-    return mTextSize1.getIntValue();
+    return mGroupsPanel.getSample1Size();
   }
 
   public int getSample2Size() throws ParseException {
-    return mTextSize2.getIntValue();
+    return mGroupsPanel.getSample2Size();
   }
 
   public String getPrefix() {
@@ -180,7 +150,35 @@ public class PermuteDialog extends ModernDialogTaskWindow {
   }
 
   public int getPermutations() throws ParseException {
-    return mTextPermutations.getIntValue();
+    return mGroupsPanel.getPermutations();
+  }
+
+  /**
+   * Returns the master seed. The same seed always gives the same
+   * permutations.
+   *
+   * @return the seed.
+   */
+  public int getSeed() throws ParseException {
+    return mGroupsPanel.getSeed();
+  }
+
+  /**
+   * Returns how the permutations should be written. The zip archive and the
+   * table write every permutation to one file.
+   *
+   * @return the output.
+   */
+  public PermuteClsWorker.Output getOutput() {
+    String text = mOutputCombo.getText();
+
+    for (int i = 0; i < OUTPUTS.length; ++i) {
+      if (OUTPUTS[i].equals(text)) {
+        return PermuteClsWorker.Output.values()[i];
+      }
+    }
+
+    return PermuteClsWorker.Output.FILES;
   }
 
   /**
@@ -189,7 +187,7 @@ public class PermuteDialog extends ModernDialogTaskWindow {
    * @return the group1
    */
   public XYSeries getGroup1() {
-    return getGroup(mGroups, mGroup1Combo);
+    return mGroupsPanel.getGroup1();
   }
 
   /**
@@ -198,15 +196,7 @@ public class PermuteDialog extends ModernDialogTaskWindow {
    * @return the group2
    */
   public XYSeries getGroup2() {
-    return getGroup(mGroups, mGroup2Combo);
-  }
-
-  private static XYSeries getGroup(XYSeriesGroup groups, ModernComboBox2 groupCombo) {
-    if (groups == null || groups.getCount() == 0) {
-      return null;
-    }
-
-    return groups.get(groupCombo.getSelectedIndex());
+    return mGroupsPanel.getGroup2();
   }
 
   public Path getDir() {
@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.text.ParseException;
+
+import javax.swing.Box;
+
+import org.jebtk.graphplot.figure.series.XYSeries;
+import org.jebtk.graphplot.figure.series.XYSeriesGroup;
+import org.jebtk.modern.ModernComponent;
+import org.jebtk.modern.ModernWidget;
+import org.jebtk.modern.UI;
+import org.jebtk.modern.button.ModernCheckBox;
+import org.jebtk.modern.combobox.ModernComboBox2;
+import org.jebtk.modern.panel.HBox;
+import org.jebtk.modern.panel.VBox;
+import org.jebtk.modern.spinner.ModernCompactSpinner;
+import org.jebtk.modern.text.ModernAutoSizeLabel;
+
+import edu.columbia.rdf.matcalc.GroupsCombo;
+
+/**
+ * The two groups, the sample size drawn from each, the number of
+ * permutations, whether to sample with replacement and the seed, as shared by
+ * the dialogs that permute group labels.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class PermuteGroupsPanel extends ModernComponent {
+  private static final long serialVersionUID = 1L;
+
+  private XYSeriesGroup mGroups;
+
+  private GroupsCombo mGroup1Combo;
+
+  private GroupsCombo mGroup2Combo;
+
+  private ModernCompactSpinner mTextSize1 = new ModernCompactSpinner(1, 1000, 10);
+
+  private ModernCompactSpinner mTextSize2 = new ModernCompactSpinner(1, 1000, 10);
+
+  private ModernCompactSpinner mTextPermutations;
+
+  private ModernCompactSpinner mTextSeed = new ModernCompactSpinner(0, Integer.MAX_VALUE,
+      ClsPermutation.DEFAULT_SEED);
+
+  private ModernCheckBox mCheckSampleWithReplacement = new ModernCheckBox("Sample with replacement");
+
+  /**
+   * Instantiates a new permute groups panel.
+   *
+   * @param groups       the groups to choose from.
+   * @param permutations the default number of permutations.
+   */
+  public PermuteGroupsPanel(XYSeriesGroup groups, int permutations) {
+    mGroups = groups;
+
+    mTextPermutations = new ModernCompactSpinner(1, 100000, permutations);
+
+    mGroup1Combo = new GroupsCombo(mGroups);
+    mGroup2Combo = new GroupsCombo(mGroups);
+
+    mGroup2Combo.setSelectedIndex(1);
+
+    Box box;
+
+    Box content = VBox.create();
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Group 1", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mGroup1Combo);
+    box.add(UI.createHGap(30));
+    box.add(new ModernAutoSizeLabel("Size"));
+    box.add(UI.createHGap(5));
+    box.add(mTextSize1);
+    content.add(box);
+    content.add(UI.createVGap(5));
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Group 2", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mGroup2Combo);
+    box.add(UI.createHGap(30));
+    box.add(new ModernAutoSizeLabel("Size"));
+    box.add(UI.createHGap(5));
+    box.add(mTextSize2);
+    content.add(box);
+
+    content.add(UI.createVGap(30));
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Permutations", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mTextPermutations);
+    box.add(UI.createHGap(10));
+    box.add(mCheckSampleWithReplacement);
+    content.add(box);
+
+    content.add(UI.createVGap(5));
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Seed", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mTextSeed);
+    content.add(box);
+
+    setBody(content);
+  }
+
+  public boolean getSampleWithReplacement() {
+    return mCheckSampleWithReplacement.isSelected();
+  }
+
+  public int getSample1Size() throws ParseException {
+    return mTextSize1.getIntValue();
+  }
+
+  public int getSample2Size() throws ParseException {
+    return mTextSize2.getIntValue();
+  }
+
+  public int getPermutations() throws ParseException {
+    return mTextPermutations.getIntValue();
+  }
+
+  /**
+   * Returns the master seed. The same seed always gives the same
+   * permutations.
+   *
+   * @return the seed.
+   */
+  public int getSeed() throws ParseException {
+    return mTextSeed.getIntValue();
+  }
+
+  /**
+   * Gets the group1.
+   *
+   * @return the group1
+   */
+  public XYSeries getGroup1() {
+    return getGroup(mGroups, mGroup1Combo);
+  }
+
+  /**
+   * Gets the group2.
+   *
+   * @return the group2
+   */
+  public XYSeries getGroup2() {
+    return getGroup(mGroups, mGroup2Combo);
+  }
+
+  private static XYSeries getGroup(XYSeriesGroup groups, ModernComboBox2 groupCombo) {
+    if (groups == null || groups.getCount() == 0) {
+      return null;
+    }
+
+    return groups.get(groupCombo.getSelectedIndex());
+  }
+}
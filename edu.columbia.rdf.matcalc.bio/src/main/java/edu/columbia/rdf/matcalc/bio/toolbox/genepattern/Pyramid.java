@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+/**
+ * A multi-resolution summary of a curve for drawing at any zoom. Level 0 is
+ * the curve itself and each level above it halves the number of points by
+ * keeping the minimum, maximum and mean of each pair of buckets below it.
+ * Drawing a range of the curve uses the lowest level with no more buckets in
+ * the range than there are pixels, so the cost of a redraw depends on the
+ * width of the plot rather than the length of the curve.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class Pyramid {
+  private final int[] mX;
+  private final double[] mY;
+
+  private final double[][] mMin;
+  private final double[][] mMax;
+  private final double[][] mSum;
+
+  /**
+   * Instantiates a new pyramid.
+   *
+   * @param x the x coordinates, which must be non decreasing.
+   * @param y the y coordinates.
+   */
+  public Pyramid(int[] x, double[] y) {
+    mX = x;
+    mY = y;
+
+    int n = y.length;
+
+    int levels = 1;
+
+    while ((n - 1) >> (levels - 1) > 0) {
+      ++levels;
+    }
+
+    mMin = new double[levels][];
+    mMax = new double[levels][];
+    mSum = new double[levels][];
+
+    mMin[0] = y;
+    mMax[0] = y;
+    mSum[0] = y;
+
+    for (int l = 1; l < levels; ++l) {
+      double[] min = mMin[l - 1];
+      double[] max = mMax[l - 1];
+      double[] sum = mSum[l - 1];
+
+      int s = (min.length + 1) / 2;
+
+      mMin[l] = new double[s];
+      mMax[l] = new double[s];
+      mSum[l] = new double[s];
+
+      for (int i = 0; i < s; ++i) {
+        int j = 2 * i;
+
+        if (j + 1 < min.length) {
+          mMin[l][i] = Math.min(min[j], min[j + 1]);
+          mMax[l][i] = Math.max(max[j], max[j + 1]);
+          mSum[l][i] = sum[j] + sum[j + 1];
+        } else {
+          mMin[l][i] = min[j];
+          mMax[l][i] = max[j];
+          mSum[l][i] = sum[j];
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of points in the curve.
+   *
+   * @return the number of points.
+   */
+  public int size() {
+    return mY.length;
+  }
+
+  public int getLevels() {
+    return mMin.length;
+  }
+
+  /**
+   * Returns the number of buckets in a level.
+   *
+   * @param level the level.
+   * @return the number of buckets.
+   */
+  public int size(int level) {
+    return mMin[level].length;
+  }
+
+  public int getX(int i) {
+    return mX[i];
+  }
+
+  public double getY(int i) {
+    return mY[i];
+  }
+
+  /**
+   * Returns the first point in a bucket.
+   *
+   * @param level the level.
+   * @param b     the bucket.
+   * @return the index of the point.
+   */
+  public int getFirst(int level, int b) {
+    return b << level;
+  }
+
+  /**
+   * Returns the last point in a bucket.
+   *
+   * @param level the level.
+   * @param b     the bucket.
+   * @return the index of the point.
+   */
+  public int getLast(int level, int b) {
+    return Math.min(((b + 1) << level) - 1, mY.length - 1);
+  }
+
+  public double getMin(int level, int b) {
+    return mMin[level][b];
+  }
+
+  public double getMax(int level, int b) {
+    return mMax[level][b];
+  }
+
+  public double getMean(int level, int b) {
+    return mSum[level][b] / (getLast(level, b) - getFirst(level, b) + 1);
+  }
+
+  /**
+   * Returns the smallest y coordinate of the curve.
+   *
+   * @return the minimum.
+   */
+  public double getMin() {
+    return mMin.length > 0 && mY.length > 0 ? mMin[mMin.length - 1][0] : 0;
+  }
+
+  /**
+   * Returns the largest y coordinate of the curve.
+   *
+   * @return the maximum.
+   */
+  public double getMax() {
+    return mMax.length > 0 && mY.length > 0 ? mMax[mMax.length - 1][0] : 0;
+  }
+
+  /**
+   * Returns the index of the first point whose x coordinate is at least x.
+   *
+   * @param x the x coordinate.
+   * @return the index, which is the number of points if every point is
+   *         before x.
+   */
+  public int find(double x) {
+    int lo = 0;
+    int hi = mX.length;
+
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+
+      if (mX[mid] < x) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+
+    return lo;
+  }
+
+  /**
+   * Returns the lowest level at which a number of consecutive points fits in
+   * a number of buckets.
+   *
+   * @param points  the number of points.
+   * @param buckets the number of buckets, usually the width in pixels.
+   * @return the level.
+   */
+  public int getLevel(int points, int buckets) {
+    int level = 0;
+
+    buckets = Math.max(1, buckets);
+
+    while (level < mMin.length - 1 && (points >> level) > buckets) {
+      ++level;
+    }
+
+    return level;
+  }
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+
+import org.jebtk.graphplot.figure.Axes;
+import org.jebtk.graphplot.figure.Figure;
+import org.jebtk.graphplot.figure.Plot;
+import org.jebtk.graphplot.figure.PlotLayer;
+import org.jebtk.graphplot.figure.SubFigure;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.graphics.DrawingContext;
+
+/**
+ * Draws a curve filled to zero from a pyramid, using the level that matches
+ * the visible x range. Areas above and below zero can have different colors.
+ * At level 0 each point is drawn as it is. Above that each bucket is drawn
+ * from its first point, through its extreme in the middle of the bucket, to
+ * its last point, so peaks are never lost however far out the plot is zoomed.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class PyramidCurvePlotLayer extends PlotLayer {
+  private static final long serialVersionUID = 1L;
+
+  private final Pyramid mPyramid;
+  private final Color mPosFill;
+  private final Color mNegFill;
+  private final Color mPosLine;
+  private final Color mNegLine;
+
+  private double mStartX = Double.NaN;
+  private double mEndX = Double.NaN;
+
+  /**
+   * Instantiates a new pyramid curve.
+   *
+   * @param pyramid the curve.
+   * @param posFill the fill above zero or null for no fill.
+   * @param negFill the fill below zero or null for no fill.
+   * @param posLine the line above zero or null for no line.
+   * @param negLine the line below zero or null for no line.
+   */
+  public PyramidCurvePlotLayer(Pyramid pyramid, Color posFill, Color negFill, Color posLine, Color negLine) {
+    mPyramid = pyramid;
+    mPosFill = posFill;
+    mNegFill = negFill;
+    mPosLine = posLine;
+    mNegLine = negLine;
+  }
+
+  /**
+   * Start the curve at zero at a given x coordinate.
+   *
+   * @param x the x coordinate.
+   * @return this layer.
+   */
+  public PyramidCurvePlotLayer setStart(double x) {
+    mStartX = x;
+
+    return this;
+  }
+
+  /**
+   * End the curve at zero at a given x coordinate.
+   *
+   * @param x the x coordinate.
+   * @return this layer.
+   */
+  public PyramidCurvePlotLayer setEnd(double x) {
+    mEndX = x;
+
+    return this;
+  }
+
+  @Override
+  public String getType() {
+    return "Pyramid Curve";
+  }
+
+  @Override
+  public void plotLayer(Graphics2D g2, DrawingContext context, Figure figure, SubFigure subFigure, Axes axes,
+      Plot plot, DataFrame m) {
+    int n = mPyramid.size();
+
+    if (n == 0) {
+      return;
+    }
+
+    double xMin = axes.getX1Axis().getMin();
+    double xMax = axes.getX1Axis().getMax();
+
+    int x1 = axes.toPlotX1(xMin);
+    int x2 = axes.toPlotX1(xMax);
+    int y1 = axes.toPlotY1(axes.getY1Axis().getMax());
+    int y2 = axes.toPlotY1(axes.getY1Axis().getMin());
+
+    int w = x2 - x1;
+    int h = y2 - y1;
+
+    if (w <= 0 || h <= 0) {
+      return;
+    }
+
+    // Include a point either side of the visible range so the curve runs
+    // to the edges of the plot
+    int lo = Math.max(0, mPyramid.find(xMin) - 1);
+    int hi = Math.min(n - 1, mPyramid.find(xMax));
+
+    int level = mPyramid.getLevel(hi - lo + 1, w);
+
+    int b1 = lo >> level;
+    int b2 = hi >> level;
+
+    boolean start = !Double.isNaN(mStartX) && b1 == 0;
+    boolean end = !Double.isNaN(mEndX) && b2 == mPyramid.size(level) - 1;
+
+    // Room for the extra points that close the curve at zero
+    int size = (b2 - b1 + 1) * (level == 0 ? 1 : 3) + 4;
+
+    int[] px = new int[size];
+    int[] upper = new int[size];
+    int[] lower = new int[size];
+    int[] mean = new int[size];
+
+    int y0 = axes.toPlotY1(0);
+
+    int c = 0;
+
+    if (start) {
+      px[c] = axes.toPlotX1(mStartX);
+      upper[c] = y0;
+      lower[c] = y0;
+      mean[c++] = y0;
+    }
+
+    for (int b = b1; b <= b2; ++b) {
+      int f = mPyramid.getFirst(level, b);
+
+      if (level == 0) {
+        px[c] = axes.toPlotX1(mPyramid.getX(f));
+        upper[c] = axes.toPlotY1(mPyramid.getY(f));
+        lower[c] = upper[c];
+        mean[c++] = upper[c - 1];
+      } else {
+        int l = mPyramid.getLast(level, b);
+
+        int xf = axes.toPlotX1(mPyramid.getX(f));
+        int xl = axes.toPlotX1(mPyramid.getX(l));
+        int yf = axes.toPlotY1(mPyramid.getY(f));
+        int yl = axes.toPlotY1(mPyramid.getY(l));
+
+        px[c] = xf;
+        upper[c] = yf;
+        lower[c] = yf;
+        mean[c++] = yf;
+
+        px[c] = (xf + xl) / 2;
+        upper[c] = axes.toPlotY1(mPyramid.getMax(level, b));
+        lower[c] = axes.toPlotY1(mPyramid.getMin(level, b));
+        mean[c++] = axes.toPlotY1(mPyramid.getMean(level, b));
+
+        px[c] = xl;
+        upper[c] = yl;
+        lower[c] = yl;
+        mean[c++] = yl;
+      }
+    }
+
+    if (end) {
+      px[c] = axes.toPlotX1(mEndX);
+      upper[c] = y0;
+      lower[c] = y0;
+      mean[c++] = y0;
+    }
+
+    int points = c;
+
+    // Close the fills along zero
+    px[c] = px[points - 1];
+    upper[c] = y0;
+    lower[c++] = y0;
+    px[c] = px[0];
+    upper[c] = y0;
+    lower[c++] = y0;
+
+    Shape clip = g2.getClip();
+
+    // Zero may be outside the visible range
+    int yz = Math.max(y1, Math.min(y2, y0));
+
+    try {
+      if (mPosFill != null) {
+        g2.clipRect(x1, y1, w, yz - y1);
+        g2.setColor(mPosFill);
+        g2.fillPolygon(px, upper, c);
+        g2.setClip(clip);
+      }
+
+      if (mNegFill != null) {
+        g2.clipRect(x1, yz, w, y2 - yz);
+        g2.setColor(mNegFill);
+        g2.fillPolygon(px, lower, c);
+        g2.setClip(clip);
+      }
+
+      if (mPosLine != null) {
+        g2.clipRect(x1, y1, w, yz - y1);
+        drawLine(g2, px, upper, lower, mean, points, level, mPosLine);
+        g2.setClip(clip);
+      }
+
+      if (mNegLine != null) {
+        g2.clipRect(x1, yz, w, y2 - yz);
+        drawLine(g2, px, upper, lower, mean, points, level, mNegLine);
+        g2.setClip(clip);
+      }
+    } finally {
+      g2.setClip(clip);
+    }
+  }
+
+  /**
+   * Draw the outline of the curve through the bucket means, with the range
+   * of each bucket drawn as a vertical line.
+   */
+  private static void drawLine(Graphics2D g2, int[] px, int[] upper, int[] lower, int[] mean, int points,
+      int level, Color color) {
+    g2.setColor(color);
+
+    g2.drawPolyline(px, mean, points);
+
+    if (level > 0) {
+      for (int i = 0; i < points; ++i) {
+        if (upper[i] != lower[i]) {
+          g2.drawLine(px[i], upper[i], px[i], lower[i]);
+        }
+      }
+    }
+  }
+}
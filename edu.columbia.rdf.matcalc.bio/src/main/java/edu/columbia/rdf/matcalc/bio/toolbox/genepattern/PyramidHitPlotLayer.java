@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+import org.jebtk.graphplot.figure.Axes;
+import org.jebtk.graphplot.figure.Figure;
+import org.jebtk.graphplot.figure.Plot;
+import org.jebtk.graphplot.figure.PlotLayer;
+import org.jebtk.graphplot.figure.SubFigure;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.graphics.DrawingContext;
+
+/**
+ * Draws the positions of the members of a gene set as vertical lines. The
+ * hits are a pyramid over every position of the ranked list, holding 1 where
+ * there is a member, so at any zoom each visible bucket covers about a pixel
+ * and is drawn as a single line if any of its positions is a member.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class PyramidHitPlotLayer extends PlotLayer {
+  private static final long serialVersionUID = 1L;
+
+  private final Pyramid mPyramid;
+  private final Color mColor;
+
+  /**
+   * Instantiates a new pyramid hit layer.
+   *
+   * @param ranks the sorted ranks of the members.
+   * @param n     the number of genes in the ranked list.
+   * @param color the line color.
+   */
+  public PyramidHitPlotLayer(int[] ranks, int n, Color color) {
+    int[] x = new int[n];
+    double[] y = new double[n];
+
+    for (int i = 0; i < n; ++i) {
+      x[i] = i;
+    }
+
+    for (int r : ranks) {
+      y[r] = 1;
+    }
+
+    mPyramid = new Pyramid(x, y);
+    mColor = color;
+  }
+
+  @Override
+  public String getType() {
+    return "Pyramid Hits";
+  }
+
+  @Override
+  public void plotLayer(Graphics2D g2, DrawingContext context, Figure figure, SubFigure subFigure, Axes axes,
+      Plot plot, DataFrame m) {
+    int n = mPyramid.size();
+
+    if (n == 0) {
+      return;
+    }
+
+    double xMin = axes.getX1Axis().getMin();
+    double xMax = axes.getX1Axis().getMax();
+
+    int x1 = axes.toPlotX1(xMin);
+    int x2 = axes.toPlotX1(xMax);
+    int y1 = axes.toPlotY1(axes.getY1Axis().getMax());
+    int y2 = axes.toPlotY1(axes.getY1Axis().getMin());
+
+    int w = x2 - x1;
+    int h = y2 - y1;
+
+    if (w <= 0 || h <= 0) {
+      return;
+    }
+
+    int lo = Math.min(n - 1, mPyramid.find(Math.max(0, xMin)));
+    int hi = Math.min(n - 1, mPyramid.find(xMax));
+
+    int level = mPyramid.getLevel(hi - lo + 1, w);
+
+    g2.setColor(mColor);
+
+    for (int b = lo >> level; b <= hi >> level; ++b) {
+      if (mPyramid.getMax(level, b) > 0) {
+        int x = axes.toPlotX1((mPyramid.getFirst(level, b) + mPyramid.getLast(level, b)) / 2.0);
+
+        g2.drawLine(x, y1, x, y2);
+      }
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives each gene symbol a number so that gene sets can be stored and
+ * compared as int arrays. Symbols are matched case insensitively and keep the
+ * spelling they were first added with.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GeneDictionary {
+  private final Map<String, Integer> mIdMap = new HashMap<String, Integer>();
+  private final List<String> mGenes = new ArrayList<String>();
+
+  /**
+   * Returns the id of a gene, adding it if it is new.
+   *
+   * @param gene the gene.
+   * @return the id.
+   */
+  public int add(String gene) {
+    String key = gene.toUpperCase();
+
+    Integer id = mIdMap.get(key);
+
+    if (id == null) {
+      id = mGenes.size();
+
+      mIdMap.put(key, id);
+      mGenes.add(gene);
+    }
+
+    return id;
+  }
+
+  /**
+   * Returns the id of a gene.
+   *
+   * @param gene the gene.
+   * @return the id or -1 if the gene is not in the dictionary.
+   */
+  public int getId(String gene) {
+    Integer id = mIdMap.get(gene.toUpperCase());
+
+    return id != null ? id : -1;
+  }
+
+  public String getGene(int id) {
+    return mGenes.get(id);
+  }
+
+  public int size() {
+    return mGenes.size();
+  }
+}
@@ -0,0 +1,406 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.PathUtils;
+import org.jebtk.core.text.TextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.columbia.rdf.matcalc.bio.CacheUtils;
+
+/**
+ * A collection of gene sets, such as those in a GMT file. Genes are numbered
+ * by a dictionary shared by every set and each set is stored as the sorted,
+ * distinct ids of its genes, so sets can be matched against a ranked list or
+ * each other without comparing strings.
+ *
+ * Parsing a large collection such as MSigDB is slow, so the parsed collection
+ * is written to a binary cache in the user's cache directory and read from
+ * there until the GMT file changes.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GeneSetCollection {
+  private static final Logger LOG = LoggerFactory.getLogger(GeneSetCollection.class);
+
+  private static final String CACHE_EXT = ".bin";
+
+  private static final Path CACHE_DIR = CacheUtils.CACHE_DIR.resolve("genesets");
+
+  private static final int CACHE_MAGIC = 0x474d5453;
+
+  private static final int CACHE_VERSION = 1;
+
+  private final GeneDictionary mDictionary;
+
+  private final List<String> mNames = new ArrayList<String>();
+  private final List<String> mDescriptions = new ArrayList<String>();
+  private final List<int[]> mGeneSets = new ArrayList<int[]>();
+
+  public GeneSetCollection() {
+    this(new GeneDictionary());
+  }
+
+  /**
+   * Instantiates a new collection whose genes are numbered by an existing
+   * dictionary, so that its sets can be compared with other collections.
+   *
+   * @param dictionary the dictionary.
+   */
+  public GeneSetCollection(GeneDictionary dictionary) {
+    mDictionary = dictionary;
+  }
+
+  public GeneDictionary getDictionary() {
+    return mDictionary;
+  }
+
+  /**
+   * Add a gene set.
+   *
+   * @param name        the name of the set.
+   * @param description the description of the set.
+   * @param genes       the genes of the set.
+   */
+  public void add(String name, String description, List<String> genes) {
+    int[] ids = new int[genes.size()];
+
+    for (int i = 0; i < ids.length; ++i) {
+      ids[i] = mDictionary.add(genes.get(i));
+    }
+
+    add(name, description, ids);
+  }
+
+  private void add(String name, String description, int[] ids) {
+    mNames.add(name);
+    mDescriptions.add(description);
+    mGeneSets.add(unique(ids));
+  }
+
+  public int size() {
+    return mGeneSets.size();
+  }
+
+  public String getName(int i) {
+    return mNames.get(i);
+  }
+
+  public String getDescription(int i) {
+    return mDescriptions.get(i);
+  }
+
+  /**
+   * Returns the sorted ids of the genes of a set. The array should not be
+   * modified.
+   *
+   * @param i the index of the set.
+   * @return the gene ids.
+   */
+  public int[] getGenes(int i) {
+    return mGeneSets.get(i);
+  }
+
+  /**
+   * Returns whether a set contains a gene.
+   *
+   * @param i  the index of the set.
+   * @param id the id of the gene.
+   * @return true if the set contains the gene.
+   */
+  public boolean contains(int i, int id) {
+    return Arrays.binarySearch(mGeneSets.get(i), id) >= 0;
+  }
+
+  /**
+   * Returns a set as a bitset over the dictionary, for when many genes are
+   * to be tested against the same set.
+   *
+   * @param i the index of the set.
+   * @return the bitset.
+   */
+  public long[] getBits(int i) {
+    long[] ret = new long[(mDictionary.size() + 63) >>> 6];
+
+    for (int id : mGeneSets.get(i)) {
+      ret[id >>> 6] |= 1L << id;
+    }
+
+    return ret;
+  }
+
+  /**
+   * Sort ids and remove duplicates.
+   *
+   * @param ids the ids, which are sorted in place.
+   * @return the distinct ids.
+   */
+  private static int[] unique(int[] ids) {
+    Arrays.sort(ids);
+
+    int u = 0;
+
+    for (int i = 0; i < ids.length; ++i) {
+      if (u == 0 || ids[i] != ids[u - 1]) {
+        ids[u++] = ids[i];
+      }
+    }
+
+    return u == ids.length ? ids : Arrays.copyOf(ids, u);
+  }
+
+  /**
+   * Load a GMT file, which has a line per gene set consisting of the set
+   * name, a description and then the genes, separated by tabs. The binary
+   * cache is used if it is up to date, otherwise it is rebuilt.
+   *
+   * @param file the GMT file.
+   * @return the gene sets.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static GeneSetCollection parseGmt(Path file) throws IOException {
+    long modified = Files.getLastModifiedTime(file).toMillis();
+    long size = Files.size(file);
+
+    Path cacheFile = getCacheFile(file);
+
+    if (Files.exists(cacheFile)) {
+      try {
+        GeneSetCollection ret = readCache(cacheFile, modified, size);
+
+        if (ret != null) {
+          return ret;
+        }
+      } catch (RuntimeException e) {
+        // A truncated or corrupt cache runs off the end of the buffer or
+        // reads nonsense sizes, so parse the GMT file again and let the
+        // cache be rewritten.
+        LOG.warn("Ignoring corrupt gene set cache {}: {}", cacheFile, e.toString());
+      }
+    }
+
+    LOG.info("Parsing gene sets from {}...", file);
+
+    GeneSetCollection ret = readGmt(file);
+
+    try {
+      Files.createDirectories(CACHE_DIR);
+
+      writeCache(ret, cacheFile, modified, size);
+    } catch (IOException e) {
+      // The cache is only an optimization so carry on without it, for
+      // example if the cache directory cannot be created.
+      LOG.warn("Could not write gene set cache {}: {}", cacheFile, e.getMessage());
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the cache file of a GMT file. The hash of the absolute path is
+   * part of the name so that GMT files with the same name in different
+   * folders do not share a cache.
+   */
+  private static Path getCacheFile(Path file) {
+    String hash = Integer.toHexString(file.toAbsolutePath().toString().hashCode());
+
+    return CACHE_DIR.resolve(PathUtils.getName(file) + "." + hash + CACHE_EXT);
+  }
+
+  private static GeneSetCollection readGmt(Path file) throws IOException {
+    GeneSetCollection ret = new GeneSetCollection();
+
+    BufferedReader reader = FileUtils.newBufferedReader(file);
+
+    String line;
+    List<String> tokens;
+
+    try {
+      while ((line = reader.readLine()) != null) {
+        if (TextUtils.isNullOrEmpty(line) || line.startsWith("#")) {
+          continue;
+        }
+
+        tokens = TextUtils.tabSplit(line);
+
+        if (tokens.size() < 2) {
+          continue;
+        }
+
+        int[] ids = new int[tokens.size() - 2];
+
+        int n = 0;
+
+        for (int i = 2; i < tokens.size(); ++i) {
+          String gene = tokens.get(i).trim();
+
+          if (gene.length() > 0) {
+            ids[n++] = ret.mDictionary.add(gene);
+          }
+        }
+
+        ret.add(tokens.get(0), tokens.get(1), Arrays.copyOf(ids, n));
+      }
+    } finally {
+      reader.close();
+    }
+
+    return ret;
+  }
+
+  /**
+   * Write the dictionary followed by the name, description and gene ids of
+   * each set.
+   */
+  private static void writeCache(GeneSetCollection collection, Path cacheFile, long modified, long size)
+      throws IOException {
+    // Write to a temp file first so that a partial cache is never read
+    Path tmp = cacheFile.resolveSibling(PathUtils.getName(cacheFile) + ".tmp");
+
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+
+      try {
+        out.writeInt(CACHE_MAGIC);
+        out.writeInt(CACHE_VERSION);
+        out.writeLong(modified);
+        out.writeLong(size);
+
+        GeneDictionary dictionary = collection.mDictionary;
+
+        out.writeInt(dictionary.size());
+
+        for (int i = 0; i < dictionary.size(); ++i) {
+          writeString(out, dictionary.getGene(i));
+        }
+
+        out.writeInt(collection.size());
+
+        for (int i = 0; i < collection.size(); ++i) {
+          writeString(out, collection.getName(i));
+          writeString(out, collection.getDescription(i));
+
+          int[] ids = collection.getGenes(i);
+
+          out.writeInt(ids.length);
+
+          for (int id : ids) {
+            out.writeInt(id);
+          }
+        }
+      } finally {
+        out.close();
+      }
+
+      Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      // Only left behind if the write or move failed
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Read a collection from a memory mapped cache.
+   *
+   * @return the collection or null if the cache is out of date.
+   */
+  private static GeneSetCollection readCache(Path cacheFile, long modified, long size) throws IOException {
+    FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ);
+
+    try {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      if (buffer.getInt() != CACHE_MAGIC || buffer.getInt() != CACHE_VERSION || buffer.getLong() != modified
+          || buffer.getLong() != size) {
+        return null;
+      }
+
+      GeneSetCollection ret = new GeneSetCollection();
+
+      int genes = buffer.getInt();
+
+      for (int i = 0; i < genes; ++i) {
+        ret.mDictionary.add(readString(buffer));
+      }
+
+      int sets = buffer.getInt();
+
+      for (int i = 0; i < sets; ++i) {
+        String name = readString(buffer);
+        String description = readString(buffer);
+
+        int[] ids = new int[buffer.getInt()];
+
+        buffer.asIntBuffer().get(ids);
+        buffer.position(buffer.position() + ids.length * 4);
+
+        // The ids were sorted when the cache was written
+        ret.mNames.add(name);
+        ret.mDescriptions.add(description);
+        ret.mGeneSets.add(ids);
+      }
+
+      return ret;
+    } finally {
+      channel.close();
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(MappedByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+
+    buffer.get(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2016 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea;
+
+import org.jebtk.modern.io.GuiFileExtFilter;
+
+/**
+ * File filter for GMT gene set files.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GmtGuiFileFilter extends GuiFileExtFilter {
+  public GmtGuiFileFilter() {
+    super("gmt");
+  }
+
+  @Override
+  public String getDescription() {
+    return "Gene Matrix Transposed (*.gmt)";
+  }
+}
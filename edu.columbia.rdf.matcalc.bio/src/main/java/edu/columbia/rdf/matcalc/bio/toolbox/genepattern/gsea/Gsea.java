@@ -0,0 +1,423 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Preranked gene set enrichment analysis. The enrichment score of a set is the
+ * maximum deviation from zero of a running sum that increases at the genes of
+ * the set, in proportion to their metric, and decreases at the other genes.
+ * Significance is estimated by scoring random sets of the same size, since a
+ * ranked list cannot be permuted by phenotype.
+ *
+ * A set is represented by the sorted ranks of its genes. The running sum only
+ * changes direction at a member, so the score can be found by visiting the
+ * members alone rather than every gene in the list.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class Gsea {
+  public static final int DEFAULT_PERMUTATIONS = 1000;
+
+  public static final double DEFAULT_WEIGHT = 1;
+
+  public static final int DEFAULT_MIN_SIZE = 15;
+
+  public static final int DEFAULT_MAX_SIZE = 500;
+
+  public static final int DEFAULT_SEED = 149;
+
+  private final int mPermutations;
+  private final double mWeight;
+  private final int mMinSize;
+  private final int mMaxSize;
+
+  public Gsea() {
+    this(DEFAULT_PERMUTATIONS, DEFAULT_WEIGHT, DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Instantiates a new gsea.
+   *
+   * @param permutations the number of random sets used to estimate the
+   *                     significance of each set.
+   * @param weight       the power the metric is raised to when weighting
+   *                     members, where 0 gives the classic Kolmogorov-Smirnov
+   *                     statistic.
+   * @param minSize      sets with fewer genes in the ranked list are
+   *                     excluded.
+   * @param maxSize      sets with more genes in the ranked list are excluded.
+   */
+  public Gsea(int permutations, double weight, int minSize, int maxSize) {
+    mPermutations = permutations;
+    mWeight = weight;
+    mMinSize = minSize;
+    mMaxSize = maxSize;
+  }
+
+  public int getPermutations() {
+    return mPermutations;
+  }
+
+  public double getWeight() {
+    return mWeight;
+  }
+
+  /**
+   * Returns whether a set with a given number of genes in the ranked list
+   * should be tested.
+   *
+   * @param size the number of genes.
+   * @return true if the set should be tested.
+   */
+  public boolean accept(int size) {
+    return size >= mMinSize && size <= mMaxSize;
+  }
+
+  /**
+   * Score a gene set and the random sets of the same size used to estimate
+   * its significance. The result must be normalized with the results of the
+   * other sets before its NES, p-value and FDR are available.
+   *
+   * @param name   the name of the set.
+   * @param hits   the sorted ranks of the genes in the set.
+   * @param scores the ranked list metric.
+   * @param random the source of random sets.
+   * @return the result.
+   */
+  public GseaResult test(String name, int[] hits, double[] scores, SplittableRandom random) {
+    int n = scores.length;
+    int k = hits.length;
+
+    GseaResult ret = new GseaResult(name, hits);
+
+    ret.es = es(hits, scores, mWeight);
+    ret.nullEs = new float[mPermutations];
+
+    // A partial Fisher-Yates shuffle picks k ranks without replacement. The
+    // array stays a permutation of the ranks between rounds so it does not
+    // need to be reset.
+    int[] ranks = new int[n];
+
+    for (int i = 0; i < n; ++i) {
+      ranks[i] = i;
+    }
+
+    int[] perm = new int[k];
+
+    for (int p = 0; p < mPermutations; ++p) {
+      for (int i = 0; i < k; ++i) {
+        int j = i + random.nextInt(n - i);
+
+        int t = ranks[i];
+        ranks[i] = ranks[j];
+        ranks[j] = t;
+
+        perm[i] = ranks[i];
+      }
+
+      Arrays.sort(perm);
+
+      ret.nullEs[p] = (float) es(perm, scores, mWeight);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Calculate the enrichment score of a set.
+   *
+   * @param hits   the sorted ranks of the set genes.
+   * @param scores the ranked list metric.
+   * @param weight the weight.
+   * @return the enrichment score.
+   */
+  public static double es(int[] hits, double[] scores, double weight) {
+    int n = scores.length;
+    int k = hits.length;
+
+    if (k == 0 || k == n) {
+      return 0;
+    }
+
+    double sum = 0;
+
+    for (int h : hits) {
+      sum += weight(scores[h], weight);
+    }
+
+    // If the metric of every member is zero, weight them equally
+    boolean equal = sum == 0;
+
+    if (equal) {
+      sum = k;
+    }
+
+    double miss = 1.0 / (n - k);
+
+    double max = 0;
+    double min = 0;
+
+    double hit = 0;
+
+    for (int j = 0; j < k; ++j) {
+      // The members before this one have been visited, so the rest of the
+      // genes up to it are misses
+      double p = hits[j] - j;
+
+      // The lowest point is just before a member
+      min = Math.min(min, hit - p * miss);
+
+      hit += (equal ? 1 : weight(scores[hits[j]], weight)) / sum;
+
+      // and the highest point is just after one
+      max = Math.max(max, hit - p * miss);
+    }
+
+    return max >= -min ? max : min;
+  }
+
+  /**
+   * Returns the running enrichment score after each member of a set.
+   *
+   * @param hits   the sorted ranks of the set genes.
+   * @param scores the ranked list metric.
+   * @param weight the weight.
+   * @return the running enrichment score at each member.
+   */
+  public static double[] runningEs(int[] hits, double[] scores, double weight) {
+    int n = scores.length;
+    int k = hits.length;
+
+    double[] ret = new double[k];
+
+    if (k == 0 || k == n) {
+      return ret;
+    }
+
+    double sum = 0;
+
+    for (int h : hits) {
+      sum += weight(scores[h], weight);
+    }
+
+    boolean equal = sum == 0;
+
+    if (equal) {
+      sum = k;
+    }
+
+    double miss = 1.0 / (n - k);
+
+    double hit = 0;
+
+    for (int j = 0; j < k; ++j) {
+      hit += (equal ? 1 : weight(scores[hits[j]], weight)) / sum;
+
+      ret[j] = hit - (hits[j] - j) * miss;
+    }
+
+    return ret;
+  }
+
+  private static double weight(double score, double weight) {
+    if (weight == 0) {
+      return 1;
+    } else if (weight == 1) {
+      return Math.abs(score);
+    } else {
+      return Math.pow(Math.abs(score), weight);
+    }
+  }
+
+  /**
+   * Normalize the enrichment scores of a collection of sets and estimate their
+   * significance. Positive and negative scores are treated separately: each
+   * score is divided by the mean of the random scores with the same sign, and
+   * the FDR of a set compares the fraction of all random NES at least as
+   * extreme as its NES with the fraction of observed NES that are.
+   *
+   * @param results the results of each set.
+   */
+  public static void normalize(List<GseaResult> results) {
+    int posNull = 0;
+    int negNull = 0;
+
+    for (GseaResult result : results) {
+      double posSum = 0;
+      double negSum = 0;
+      int pos = 0;
+      int neg = 0;
+
+      for (float e : result.nullEs) {
+        if (e >= 0) {
+          posSum += e;
+          ++pos;
+        } else {
+          negSum -= e;
+          ++neg;
+        }
+      }
+
+      result.posMean = pos > 0 ? posSum / pos : 0;
+      result.negMean = neg > 0 ? negSum / neg : 0;
+
+      posNull += pos;
+      negNull += neg;
+
+      // Nominal p-value against the random scores of the same sign
+
+      int c = 0;
+
+      if (result.es >= 0) {
+        for (float e : result.nullEs) {
+          if (e >= result.es) {
+            ++c;
+          }
+        }
+
+        result.p = pos > 0 ? (double) c / pos : 1;
+        result.nes = result.posMean > 0 ? result.es / result.posMean : 0;
+      } else {
+        for (float e : result.nullEs) {
+          if (e <= result.es) {
+            ++c;
+          }
+        }
+
+        result.p = neg > 0 ? (double) c / neg : 1;
+        result.nes = result.negMean > 0 ? result.es / result.negMean : 0;
+      }
+    }
+
+    // Pool the normalized random scores so that the number at least as
+    // extreme as an NES can be found with a binary search. Negative scores
+    // are stored as magnitudes.
+
+    float[] posNes = new float[posNull];
+    float[] negNes = new float[negNull];
+
+    int pi = 0;
+    int ni = 0;
+
+    for (GseaResult result : results) {
+      for (float e : result.nullEs) {
+        if (e >= 0) {
+          posNes[pi++] = result.posMean > 0 ? (float) (e / result.posMean) : 0;
+        } else {
+          negNes[ni++] = result.negMean > 0 ? (float) (-e / result.negMean) : 0;
+        }
+      }
+    }
+
+    Arrays.sort(posNes);
+    Arrays.sort(negNes);
+
+    int posObs = 0;
+    int negObs = 0;
+
+    for (GseaResult result : results) {
+      if (result.es >= 0) {
+        ++posObs;
+      } else {
+        ++negObs;
+      }
+    }
+
+    float[] posObsNes = new float[posObs];
+    float[] negObsNes = new float[negObs];
+
+    pi = 0;
+    ni = 0;
+
+    for (GseaResult result : results) {
+      if (result.es >= 0) {
+        posObsNes[pi++] = (float) result.nes;
+      } else {
+        negObsNes[ni++] = (float) -result.nes;
+      }
+    }
+
+    Arrays.sort(posObsNes);
+    Arrays.sort(negObsNes);
+
+    for (GseaResult result : results) {
+      float nes = (float) Math.abs(result.nes);
+
+      double fdr;
+
+      if (result.es >= 0) {
+        fdr = fdr(nes, posNes, posObsNes);
+      } else {
+        fdr = fdr(nes, negNes, negObsNes);
+      }
+
+      result.fdr = fdr;
+    }
+  }
+
+  private static double fdr(float nes, float[] nullNes, float[] obsNes) {
+    if (nullNes.length == 0) {
+      return 1;
+    }
+
+    double nullFraction = (double) countAtLeast(nullNes, nes) / nullNes.length;
+    double obsFraction = (double) countAtLeast(obsNes, nes) / obsNes.length;
+
+    return Math.min(1, nullFraction / obsFraction);
+  }
+
+  /**
+   * Count the values of a sorted array that are at least x.
+   *
+   * @param values the sorted values.
+   * @param x      the threshold.
+   * @return the count.
+   */
+  private static int countAtLeast(float[] values, float x) {
+    // Find the first index whose value is not less than x
+    int l = 0;
+    int h = values.length;
+
+    while (l < h) {
+      int m = (l + h) >>> 1;
+
+      if (values[m] < x) {
+        l = m + 1;
+      } else {
+        h = m;
+      }
+    }
+
+    return values.length - l;
+  }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea;
+
+import java.awt.Dimension;
+import java.text.ParseException;
+
+import javax.swing.Box;
+
+import org.jebtk.modern.ModernWidget;
+import org.jebtk.modern.UI;
+import org.jebtk.modern.dialog.ModernDialogTaskWindow;
+import org.jebtk.modern.panel.HBox;
+import org.jebtk.modern.panel.VBox;
+import org.jebtk.modern.spinner.ModernCompactSpinner;
+import org.jebtk.modern.text.ModernAutoSizeLabel;
+import org.jebtk.modern.text.ModernClipboardNumericalTextField;
+import org.jebtk.modern.text.ModernNumericalTextField;
+import org.jebtk.modern.text.ModernTextBorderPanel;
+import org.jebtk.modern.window.ModernWindow;
+import org.jebtk.modern.window.WindowWidgetFocusEvents;
+
+/**
+ * GSEA options.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GseaDialog extends ModernDialogTaskWindow {
+  private static final long serialVersionUID = 1L;
+
+  private ModernCompactSpinner mTextPermutations = new ModernCompactSpinner(100, 100000,
+      Gsea.DEFAULT_PERMUTATIONS);
+
+  private ModernNumericalTextField mWeightField = new ModernClipboardNumericalTextField(Gsea.DEFAULT_WEIGHT);
+
+  private ModernCompactSpinner mTextMinSize = new ModernCompactSpinner(1, 10000, Gsea.DEFAULT_MIN_SIZE);
+
+  private ModernCompactSpinner mTextMaxSize = new ModernCompactSpinner(1, 10000, Gsea.DEFAULT_MAX_SIZE);
+
+  private ModernCompactSpinner mTextSeed = new ModernCompactSpinner(0, Integer.MAX_VALUE, Gsea.DEFAULT_SEED);
+
+  public GseaDialog(ModernWindow parent) {
+    super(parent);
+
+    setTitle("GSEA");
+
+    createUi();
+
+    setup();
+  }
+
+  private void setup() {
+    addWindowListener(new WindowWidgetFocusEvents(mOkButton));
+
+    setSize(new Dimension(480, 360));
+
+    UI.centerWindowToScreen(this);
+  }
+
+  private final void createUi() {
+    Box box;
+
+    Box content = VBox.create();
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Permutations", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mTextPermutations);
+    content.add(box);
+
+    content.add(UI.createVGap(5));
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Weight", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(new ModernTextBorderPanel(mWeightField, 100));
+    content.add(box);
+
+    content.add(UI.createVGap(5));
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Min size", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mTextMinSize);
+    content.add(box);
+
+    content.add(UI.createVGap(5));
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Max size", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mTextMaxSize);
+    content.add(box);
+
+    content.add(UI.createVGap(5));
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Seed", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mTextSeed);
+    content.add(box);
+
+    setContent(content);
+  }
+
+  public int getPermutations() throws ParseException {
+    return mTextPermutations.getIntValue();
+  }
+
+  public double getWeight() throws ParseException {
+    return mWeightField.getDouble();
+  }
+
+  public int getMinSize() throws ParseException {
+    return mTextMinSize.getIntValue();
+  }
+
+  public int getMaxSize() throws ParseException {
+    return mTextMaxSize.getIntValue();
+  }
+
+  /**
+   * Returns the seed of the permutations. The same seed always gives the
+   * same results.
+   *
+   * @return the seed.
+   */
+  public int getSeed() throws ParseException {
+    return mTextSeed.getIntValue();
+  }
+}
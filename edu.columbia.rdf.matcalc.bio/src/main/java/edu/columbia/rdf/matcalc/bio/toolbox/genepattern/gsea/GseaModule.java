@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.AssetService;
+import org.jebtk.modern.dialog.ModernDialogStatus;
+import org.jebtk.modern.event.ModernClickEvent;
+import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.io.FileDialog;
+import org.jebtk.modern.io.RecentFilesService;
+import org.jebtk.modern.ribbon.RibbonLargeButton;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.toolbox.Module;
+
+/**
+ * Runs a preranked GSEA of the current matrix, which should have a column of
+ * genes and a column of ranked list metrics, against the gene sets of a GMT
+ * file.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GseaModule extends Module implements ModernClickListener {
+
+  private MainMatCalcWindow mWindow;
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.NameProperty#getName()
+   */
+  @Override
+  public String getName() {
+    return "GSEA";
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.columbia.rdf.apps.matcalc.modules.Module#init(edu.columbia.rdf.apps.
+   * matcalc.MainMatCalcWindow)
+   */
+  @Override
+  public void init(MainMatCalcWindow window) {
+    mWindow = window;
+
+    RibbonLargeButton button = new RibbonLargeButton("GSEA", AssetService.getInstance().loadIcon("line_graph", 24),
+        "GSEA", "Run a preranked GSEA.");
+    button.addClickListener(this);
+
+    mWindow.getRibbon().getToolbar("Bioinformatics").getSection("GSEA").add(button);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.ui.modern.event.ModernClickListener#clicked(org.abh.lib.ui.
+   * modern .event.ModernClickEvent)
+   */
+  @Override
+  public void clicked(ModernClickEvent e) {
+    try {
+      gsea();
+    } catch (Exception e1) {
+      e1.printStackTrace();
+    }
+  }
+
+  private void gsea() throws Exception {
+    DataFrame m = mWindow.getCurrentMatrix();
+
+    if (m == null) {
+      showLoadMatrixError(mWindow);
+
+      return;
+    }
+
+    Map<String, Integer> colMap = findColumns(mWindow, m, "gene|name|symbol", "metric|score|rank|stat");
+
+    if (colMap == null) {
+      return;
+    }
+
+    Path file = FileDialog.open(mWindow).filter(new GmtGuiFileFilter())
+        .getFile(RecentFilesService.getInstance().getPwd());
+
+    if (file == null) {
+      return;
+    }
+
+    GseaDialog dialog = new GseaDialog(mWindow);
+
+    dialog.setVisible(true);
+
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
+    }
+
+    int geneCol = colMap.get("gene|name|symbol");
+    int scoreCol = colMap.get("metric|score|rank|stat");
+
+    String[] genes = new String[m.getRows()];
+    double[] scores = new double[m.getRows()];
+
+    for (int i = 0; i < genes.length; ++i) {
+      genes[i] = m.getText(i, geneCol);
+      scores[i] = m.getValue(i, scoreCol);
+    }
+
+    RankedList list = new RankedList(genes, scores);
+
+    GeneSetCollection geneSets = GeneSetCollection.parseGmt(file);
+
+    Gsea gsea = new Gsea(dialog.getPermutations(), dialog.getWeight(), dialog.getMinSize(), dialog.getMaxSize());
+
+    new GseaWorker(mWindow, list, geneSets, gsea, dialog.getSeed()).execute();
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea;
+
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.GseaPlotData;
+
+/**
+ * The enrichment of one gene set.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GseaResult {
+  public final String name;
+
+  /**
+   * The sorted ranks of the set genes in the ranked list.
+   */
+  public final int[] hits;
+
+  public double es;
+
+  public double nes;
+
+  public double p;
+
+  public double fdr;
+
+  /**
+   * The enrichment scores of the random sets.
+   */
+  public float[] nullEs;
+
+  /**
+   * The mean of the positive random scores.
+   */
+  double posMean;
+
+  /**
+   * The mean magnitude of the negative random scores.
+   */
+  double negMean;
+
+  public GseaResult(String name, int[] hits) {
+    this.name = name;
+    this.hits = hits;
+  }
+
+  public int size() {
+    return hits.length;
+  }
+
+  /**
+   * Create the data needed to plot the set. The leading edge consists of the
+   * members up to the peak of the running score for a positive score and
+   * those after the trough for a negative score.
+   *
+   * @param list   the ranked list the set was scored against.
+   * @param weight the weight used to score the set.
+   * @return the plot data.
+   */
+  public GseaPlotData toPlotData(RankedList list, double weight) {
+    double[] scores = list.getScores();
+
+    GseaPlotData ret = new GseaPlotData();
+
+    ret.name = name;
+    ret.size = hits.length;
+    ret.es = es;
+    ret.nes = nes;
+    ret.p = p;
+    ret.fdr = fdr;
+    ret.ranks = hits;
+    ret.scores = new double[hits.length];
+    ret.runningEs = Gsea.runningEs(hits, scores, weight);
+    ret.core = new boolean[hits.length];
+
+    for (int i = 0; i < hits.length; ++i) {
+      ret.scores[i] = scores[hits[i]];
+    }
+
+    if (es >= 0) {
+      int peak = 0;
+
+      for (int i = 1; i < hits.length; ++i) {
+        if (ret.runningEs[i] > ret.runningEs[peak]) {
+          peak = i;
+        }
+      }
+
+      for (int i = 0; i <= peak; ++i) {
+        ret.core[i] = true;
+      }
+    } else {
+      // The trough is just before a member, i.e. the running score after the
+      // previous member less the misses in between
+      double min = Double.MAX_VALUE;
+      int trough = 0;
+
+      double miss = 1.0 / (scores.length - hits.length);
+
+      for (int i = 0; i < hits.length; ++i) {
+        double v = (i > 0 ? ret.runningEs[i - 1] : 0) - (hits[i] - i) * miss;
+
+        if (v < min) {
+          min = v;
+          trough = i;
+        }
+      }
+
+      for (int i = trough; i < hits.length; ++i) {
+        ret.core[i] = true;
+      }
+    }
+
+    return ret;
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scores one gene set and its random sets.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GseaTask extends RecursiveTask<GseaResult> {
+  private static final long serialVersionUID = 1L;
+
+  private final Gsea mGsea;
+  private final String mName;
+  private final int[] mHits;
+  private final double[] mScores;
+  private final SplittableRandom mRandom;
+
+  /**
+   * Instantiates a new gsea task.
+   *
+   * @param gsea   the engine.
+   * @param name   the name of the set.
+   * @param hits   the sorted ranks of the set genes.
+   * @param scores the ranked list metric.
+   * @param random the source of random sets, which should not be shared with
+   *               other tasks.
+   */
+  public GseaTask(Gsea gsea, String name, int[] hits, double[] scores, SplittableRandom random) {
+    mGsea = gsea;
+    mName = name;
+    mHits = hits;
+    mScores = scores;
+    mRandom = random;
+  }
+
+  @Override
+  protected GseaResult compute() {
+    return mGsea.test(mName, mHits, mScores, mRandom);
+  }
+}
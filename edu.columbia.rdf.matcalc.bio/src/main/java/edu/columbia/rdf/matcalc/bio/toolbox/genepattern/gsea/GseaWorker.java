@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.jebtk.graphplot.figure.Figure;
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.GseaFigure;
+import edu.columbia.rdf.matcalc.figure.graph2d.Graph2dWindow;
+
+/**
+ * Tests each gene set as a separate task on a fork join pool. Each task is
+ * given its own random generator split from the seed, so the results do not
+ * depend on the number of threads.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GseaWorker extends ProgressWorker {
+
+  /**
+   * The phenotype labels used by GSEA for a preranked list.
+   */
+  private static final String POS_PHENOTYPE = "na_pos";
+
+  private static final String NEG_PHENOTYPE = "na_neg";
+
+  private final MainMatCalcWindow mWindow;
+  private final RankedList mList;
+  private final GeneSetCollection mGeneSets;
+  private final Gsea mGsea;
+  private final long mSeed;
+
+  private List<GseaResult> mResults;
+
+  /**
+   * Instantiates a new gsea worker.
+   *
+   * @param window   the window to add the results to.
+   * @param list     the ranked list.
+   * @param geneSets the gene sets.
+   * @param gsea     the engine.
+   * @param seed     the seed of the permutations.
+   */
+  public GseaWorker(MainMatCalcWindow window, RankedList list, GeneSetCollection geneSets, Gsea gsea, long seed) {
+    super(window, "Running GSEA...");
+
+    mWindow = window;
+    mList = list;
+    mGeneSets = geneSets;
+    mGsea = gsea;
+    mSeed = seed;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    double[] scores = mList.getScores();
+
+    // Split the generators up front, in a fixed order, so that each task
+    // always gets the same stream however the pool schedules them
+    SplittableRandom random = new SplittableRandom(mSeed);
+
+    List<GseaTask> tasks = new ArrayList<GseaTask>();
+
+    int[] ranks = mList.getRanks(mGeneSets.getDictionary());
+
+    for (int s = 0; s < mGeneSets.size(); ++s) {
+      int[] hits = RankedList.getIndices(mGeneSets.getGenes(s), ranks);
+
+      if (!mGsea.accept(hits.length)) {
+        continue;
+      }
+
+      tasks.add(new GseaTask(mGsea, mGeneSets.getName(s), hits, scores, random.split()));
+    }
+
+    List<GseaResult> results = invokeAll(tasks);
+
+    if (results == null) {
+      return null;
+    }
+
+    Gsea.normalize(results);
+
+    // The random scores are no longer needed
+    for (GseaResult result : results) {
+      result.nullEs = null;
+    }
+
+    Collections.sort(results, new Comparator<GseaResult>() {
+      @Override
+      public int compare(GseaResult r1, GseaResult r2) {
+        return Double.compare(r2.nes, r1.nes);
+      }
+    });
+
+    mResults = results;
+
+    return null;
+  }
+
+  @Override
+  protected void finished() {
+    mWindow.history().addToHistory("GSEA", toMatrix(mResults));
+
+    if (mResults.size() == 0) {
+      return;
+    }
+
+    // Show the most enriched set at each end of the list
+
+    GseaResult first = mResults.get(0);
+    GseaResult last = mResults.get(mResults.size() - 1);
+
+    if (first.es >= 0) {
+      plot(first);
+    }
+
+    if (last.es < 0) {
+      plot(last);
+    }
+  }
+
+  private void plot(GseaResult result) {
+    Figure figure = GseaFigure.create(result.toPlotData(mList, mGsea.getWeight()), mList.size(),
+        mList.getCrossingIndex(), mList.getMin(), mList.getMax(), POS_PHENOTYPE, NEG_PHENOTYPE);
+
+    Graph2dWindow window = new Graph2dWindow(mWindow, figure);
+
+    window.setVisible(true);
+  }
+
+  /**
+   * Convert results to a matrix in the style of a GSEA report.
+   *
+   * @param results the results.
+   * @return the matrix.
+   */
+  public static DataFrame toMatrix(List<GseaResult> results) {
+    DataFrame ret = DataFrame.createDataFrame(results.size(), 6);
+
+    ret.setColumnName(0, "NAME");
+    ret.setColumnName(1, "SIZE");
+    ret.setColumnName(2, "ES");
+    ret.setColumnName(3, "NES");
+    ret.setColumnName(4, "NOM p-val");
+    ret.setColumnName(5, "FDR q-val");
+
+    for (int r = 0; r < results.size(); ++r) {
+      GseaResult result = results.get(r);
+
+      ret.set(r, 0, result.name);
+      ret.set(r, 1, result.size());
+      ret.set(r, 2, result.es);
+      ret.set(r, 3, result.nes);
+      ret.set(r, 4, result.p);
+      ret.set(r, 5, result.fdr);
+    }
+
+    return ret;
+  }
+}
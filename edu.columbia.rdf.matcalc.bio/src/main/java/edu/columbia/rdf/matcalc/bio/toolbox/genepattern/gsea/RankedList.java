@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of genes ordered by decreasing ranked list metric. Genes without a
+ * valid metric are dropped and only the first occurrence of a gene is kept.
+ * Gene names are matched case insensitively.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class RankedList {
+  private final String[] mGenes;
+  private final double[] mScores;
+  private final Map<String, Integer> mIndexMap = new HashMap<String, Integer>();
+
+  /**
+   * Instantiates a new ranked list.
+   *
+   * @param genes  the genes.
+   * @param scores the ranked list metric of each gene.
+   */
+  public RankedList(String[] genes, final double[] scores) {
+    List<Integer> rows = new ArrayList<Integer>(genes.length);
+
+    for (int i = 0; i < genes.length; ++i) {
+      if (genes[i] == null || Double.isNaN(scores[i]) || Double.isInfinite(scores[i])) {
+        continue;
+      }
+
+      String gene = genes[i].toUpperCase();
+
+      if (!mIndexMap.containsKey(gene)) {
+        mIndexMap.put(gene, i);
+        rows.add(i);
+      }
+    }
+
+    // The sort is stable, so ties keep their order in the matrix
+    Collections.sort(rows, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer r1, Integer r2) {
+        return Double.compare(scores[r2], scores[r1]);
+      }
+    });
+
+    mGenes = new String[rows.size()];
+    mScores = new double[rows.size()];
+
+    for (int i = 0; i < mGenes.length; ++i) {
+      int row = rows.get(i);
+
+      mGenes[i] = genes[row];
+      mScores[i] = scores[row];
+
+      mIndexMap.put(genes[row].toUpperCase(), i);
+    }
+  }
+
+  /**
+   * Returns the number of genes in the list.
+   *
+   * @return the size.
+   */
+  public int size() {
+    return mGenes.length;
+  }
+
+  public String getGene(int i) {
+    return mGenes[i];
+  }
+
+  public double getScore(int i) {
+    return mScores[i];
+  }
+
+  /**
+   * Returns the ranked list metrics in rank order. The array should not be
+   * modified.
+   *
+   * @return the scores.
+   */
+  public double[] getScores() {
+    return mScores;
+  }
+
+  /**
+   * Returns the rank of a gene.
+   *
+   * @param gene the gene.
+   * @return the rank of the gene or -1 if it is not in the list.
+   */
+  public int getIndex(String gene) {
+    Integer i = mIndexMap.get(gene.toUpperCase());
+
+    return i != null ? i : -1;
+  }
+
+  /**
+   * Returns the rank of each gene of a dictionary so that sets numbered by
+   * the dictionary can be mapped onto the list without string lookups.
+   *
+   * @param dictionary the dictionary.
+   * @return the rank of each gene id, or -1 if the gene is not in the list.
+   */
+  public int[] getRanks(GeneDictionary dictionary) {
+    int[] ret = new int[dictionary.size()];
+
+    for (int id = 0; id < ret.length; ++id) {
+      ret[id] = getIndex(dictionary.getGene(id));
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the sorted ranks of the genes of a set that are in the list.
+   *
+   * @param genes the distinct gene ids of the set.
+   * @param ranks the rank of each gene id.
+   * @return the ranks of the genes.
+   */
+  public static int[] getIndices(int[] genes, int[] ranks) {
+    int[] ret = new int[genes.length];
+
+    int n = 0;
+
+    for (int id : genes) {
+      int i = ranks[id];
+
+      if (i != -1) {
+        ret[n++] = i;
+      }
+    }
+
+    Arrays.sort(ret, 0, n);
+
+    return Arrays.copyOf(ret, n);
+  }
+
+  /**
+   * Returns the index of the last gene with a positive metric.
+   *
+   * @return the crossing index, which is -1 if no gene is positive.
+   */
+  public int getCrossingIndex() {
+    int i = 0;
+
+    while (i < mScores.length && mScores[i] > 0) {
+      ++i;
+    }
+
+    return i - 1;
+  }
+
+  public double getMax() {
+    return mScores.length > 0 ? mScores[0] : 0;
+  }
+
+  public double getMin() {
+    return mScores.length > 0 ? mScores[mScores.length - 1] : 0;
+  }
+}
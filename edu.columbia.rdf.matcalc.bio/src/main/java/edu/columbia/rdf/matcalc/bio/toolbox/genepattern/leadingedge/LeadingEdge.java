@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.leadingedge;
+
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.GseaPlotData;
+
+/**
+ * The leading edge of a gene set as a bitset over the ranks of the ranked
+ * list, so that the overlap of two sets is a few hundred word ANDs and bit
+ * counts however many genes they share.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class LeadingEdge {
+  private LeadingEdge() {
+    // Do nothing
+  }
+
+  /**
+   * Create the bitset of the leading edge genes of a set.
+   *
+   * @param data the set.
+   * @param n    the number of genes in the ranked list.
+   * @return the bitset.
+   */
+  public static long[] toBits(GseaPlotData data, int n) {
+    long[] ret = new long[(n + 63) >>> 6];
+
+    for (int i = 0; i < data.ranks.length; ++i) {
+      int r = data.ranks[i];
+
+      if (data.core[i] && r >= 0 && r < n) {
+        ret[r >>> 6] |= 1L << r;
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the number of genes in a bitset.
+   *
+   * @param bits the bitset.
+   * @return the number of genes.
+   */
+  public static int count(long[] bits) {
+    int ret = 0;
+
+    for (long w : bits) {
+      ret += Long.bitCount(w);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the number of genes two bitsets share.
+   *
+   * @param bits1 the first bitset.
+   * @param bits2 the second bitset.
+   * @return the number of shared genes.
+   */
+  public static int overlap(long[] bits1, long[] bits2) {
+    int ret = 0;
+
+    for (int i = 0; i < bits1.length; ++i) {
+      ret += Long.bitCount(bits1[i] & bits2[i]);
+    }
+
+    return ret;
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.leadingedge;
+
+import java.util.concurrent.RecursiveTask;
+
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.GseaRun;
+
+/**
+ * Reads the leading edge of one set of a GSEA run. A set that cannot be
+ * read fails the task rather than being treated as empty.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class LeadingEdgeBitsTask extends RecursiveTask<long[]> {
+  private static final long serialVersionUID = 1L;
+
+  private final GseaRun mRun;
+  private final int mIndex;
+
+  public LeadingEdgeBitsTask(GseaRun run, int index) {
+    mRun = run;
+    mIndex = index;
+  }
+
+  @Override
+  protected long[] compute() {
+    try {
+      return LeadingEdge.toBits(mRun.getPlotData(mIndex), mRun.getN());
+    } catch (Exception e) {
+      // An empty leading edge would silently skew the overlaps, so stop the
+      // comparison and let the worker report the set
+      throw new RuntimeException("Could not read the leading edge of " + mRun.getName(mIndex) + ": "
+          + e.getMessage(), e);
+    }
+  }
+}
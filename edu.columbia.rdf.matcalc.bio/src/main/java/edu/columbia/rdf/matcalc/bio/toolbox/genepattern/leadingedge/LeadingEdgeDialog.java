@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.leadingedge;
+
+import java.awt.Dimension;
+import java.text.ParseException;
+
+import javax.swing.Box;
+
+import org.jebtk.modern.ModernWidget;
+import org.jebtk.modern.UI;
+import org.jebtk.modern.dialog.ModernDialogTaskWindow;
+import org.jebtk.modern.panel.HBox;
+import org.jebtk.modern.panel.VBox;
+import org.jebtk.modern.text.ModernAutoSizeLabel;
+import org.jebtk.modern.text.ModernClipboardNumericalTextField;
+import org.jebtk.modern.text.ModernNumericalTextField;
+import org.jebtk.modern.text.ModernTextBorderPanel;
+import org.jebtk.modern.window.ModernWindow;
+import org.jebtk.modern.window.WindowWidgetFocusEvents;
+
+/**
+ * Leading edge options.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class LeadingEdgeDialog extends ModernDialogTaskWindow {
+  private static final long serialVersionUID = 1L;
+
+  private static final double DEFAULT_FDR = 0.25;
+
+  private ModernNumericalTextField mFdrField = new ModernClipboardNumericalTextField(DEFAULT_FDR);
+
+  public LeadingEdgeDialog(ModernWindow parent) {
+    super(parent);
+
+    setTitle("Leading Edge");
+
+    createUi();
+
+    setup();
+  }
+
+  private void setup() {
+    addWindowListener(new WindowWidgetFocusEvents(mOkButton));
+
+    setSize(new Dimension(480, 200));
+
+    UI.centerWindowToScreen(this);
+  }
+
+  private final void createUi() {
+    Box box;
+
+    Box content = VBox.create();
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Max FDR", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(new ModernTextBorderPanel(mFdrField, 100));
+    content.add(box);
+
+    setContent(content);
+  }
+
+  public double getFdr() throws ParseException {
+    return mFdrField.getDouble();
+  }
+}
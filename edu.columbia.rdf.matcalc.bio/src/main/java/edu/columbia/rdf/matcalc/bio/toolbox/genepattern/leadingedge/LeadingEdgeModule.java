@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.leadingedge;
+
+import java.nio.file.Path;
+
+import org.jebtk.modern.AssetService;
+import org.jebtk.modern.dialog.ModernDialogStatus;
+import org.jebtk.modern.event.ModernClickEvent;
+import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.io.FileDialog;
+import org.jebtk.modern.io.RecentFilesService;
+import org.jebtk.modern.ribbon.RibbonLargeButton;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.GseaRun;
+import edu.columbia.rdf.matcalc.toolbox.Module;
+
+/**
+ * Compares the leading edges of the significant sets of a GSEA run. Creates a
+ * clusterable matrix of the Jaccard index of each pair of sets, the number of
+ * genes each pair shares and a table of how often each gene is in a leading
+ * edge.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class LeadingEdgeModule extends Module implements ModernClickListener {
+
+  private MainMatCalcWindow mWindow;
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.NameProperty#getName()
+   */
+  @Override
+  public String getName() {
+    return "Leading Edge";
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.columbia.rdf.apps.matcalc.modules.Module#init(edu.columbia.rdf.apps.
+   * matcalc.MainMatCalcWindow)
+   */
+  @Override
+  public void init(MainMatCalcWindow window) {
+    mWindow = window;
+
+    RibbonLargeButton button = new RibbonLargeButton("Leading Edge",
+        AssetService.getInstance().loadIcon("line_graph", 24), "Leading Edge",
+        "Compare the leading edges of a GSEA run.");
+    button.addClickListener(this);
+
+    mWindow.getRibbon().getToolbar("Bioinformatics").getSection("GSEA").add(button);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.ui.modern.event.ModernClickListener#clicked(org.abh.lib.ui.
+   * modern .event.ModernClickEvent)
+   */
+  @Override
+  public void clicked(ModernClickEvent e) {
+    try {
+      leadingEdge();
+    } catch (Exception e1) {
+      e1.printStackTrace();
+    }
+  }
+
+  private void leadingEdge() throws Exception {
+    Path dir = FileDialog.open(mWindow).dirs().getFile(RecentFilesService.getInstance().getPwd());
+
+    if (dir == null) {
+      return;
+    }
+
+    GseaRun run = GseaRun.load(dir);
+
+    if (run == null) {
+      return;
+    }
+
+    RecentFilesService.getInstance().setPwd(dir);
+
+    LeadingEdgeDialog dialog = new LeadingEdgeDialog(mWindow);
+
+    dialog.setVisible(true);
+
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
+    }
+
+    new LeadingEdgeWorker(mWindow, run, dialog.getFdr()).execute();
+  }
+}
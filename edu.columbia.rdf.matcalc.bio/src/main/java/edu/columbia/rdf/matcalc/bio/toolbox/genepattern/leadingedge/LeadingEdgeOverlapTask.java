@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.leadingedge;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Calculates the overlap of one leading edge with those after it. Each pair
+ * is only visited once and both cells of the symmetric matrices are written,
+ * so tasks never write to the same cell.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class LeadingEdgeOverlapTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  private final long[][] mBits;
+  private final int[] mCounts;
+  private final int mRow;
+  private final int[][] mOverlap;
+  private final double[][] mJaccard;
+
+  /**
+   * Instantiates a new overlap task.
+   *
+   * @param bits    the leading edge of each set.
+   * @param counts  the size of each leading edge.
+   * @param row     the set to compare.
+   * @param overlap the shared gene counts.
+   * @param jaccard the Jaccard indices.
+   */
+  public LeadingEdgeOverlapTask(long[][] bits, int[] counts, int row, int[][] overlap, double[][] jaccard) {
+    mBits = bits;
+    mCounts = counts;
+    mRow = row;
+    mOverlap = overlap;
+    mJaccard = jaccard;
+  }
+
+  @Override
+  protected void compute() {
+    int i = mRow;
+
+    for (int j = i; j < mBits.length; ++j) {
+      int o = LeadingEdge.overlap(mBits[i], mBits[j]);
+
+      int union = mCounts[i] + mCounts[j] - o;
+
+      double jaccard = union > 0 ? (double) o / union : 0;
+
+      mOverlap[i][j] = o;
+      mOverlap[j][i] = o;
+      mJaccard[i][j] = jaccard;
+      mJaccard[j][i] = jaccard;
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.leadingedge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.GseaRun;
+
+/**
+ * Compares the leading edges of the significant sets of a GSEA run. The
+ * leading edges are read in parallel and then each set is compared with the
+ * sets after it as a separate task.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class LeadingEdgeWorker extends ProgressWorker {
+  private final MainMatCalcWindow mWindow;
+  private final GseaRun mRun;
+  private final double mFdr;
+
+  private DataFrame mJaccardM;
+  private DataFrame mOverlapM;
+  private DataFrame mGenesM;
+
+  /**
+   * Instantiates a new leading edge worker.
+   *
+   * @param window the window to add the results to.
+   * @param run    the GSEA run.
+   * @param fdr    sets with a higher FDR are excluded.
+   */
+  public LeadingEdgeWorker(MainMatCalcWindow window, GseaRun run, double fdr) {
+    super(window, "Comparing leading edges...");
+
+    mWindow = window;
+    mRun = run;
+    mFdr = fdr;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    List<Integer> sets = new ArrayList<Integer>();
+
+    for (int i = 0; i < mRun.size(); ++i) {
+      if (mRun.hasPlot(i) && mRun.getFdr(i) <= mFdr) {
+        sets.add(i);
+      }
+    }
+
+    int m = sets.size();
+
+    long[][] bits = new long[m][];
+    int[] counts = new int[m];
+
+    int[][] overlap = new int[m][m];
+    double[][] jaccard = new double[m][m];
+
+    List<LeadingEdgeBitsTask> bitsTasks = new ArrayList<LeadingEdgeBitsTask>(m);
+
+    for (int i = 0; i < m; ++i) {
+      bitsTasks.add(new LeadingEdgeBitsTask(mRun, sets.get(i)));
+    }
+
+    List<long[]> results = invokeAll(bitsTasks, 0, 50);
+
+    if (results == null) {
+      return null;
+    }
+
+    for (int i = 0; i < m; ++i) {
+      bits[i] = results.get(i);
+      counts[i] = LeadingEdge.count(bits[i]);
+    }
+
+    List<LeadingEdgeOverlapTask> overlapTasks = new ArrayList<LeadingEdgeOverlapTask>(m);
+
+    for (int i = 0; i < m; ++i) {
+      overlapTasks.add(new LeadingEdgeOverlapTask(bits, counts, i, overlap, jaccard));
+    }
+
+    if (invokeAll(overlapTasks, 50, 100) == null) {
+      return null;
+    }
+
+    String[] names = new String[m];
+
+    for (int i = 0; i < m; ++i) {
+      names[i] = mRun.getName(sets.get(i));
+    }
+
+    mJaccardM = DataFrame.createNumericalMatrix(m, m);
+    mOverlapM = DataFrame.createNumericalMatrix(m, m);
+
+    mJaccardM.getIndex().setAnnotation("Gene Set", names);
+    mOverlapM.getIndex().setAnnotation("Gene Set", names);
+
+    for (int i = 0; i < m; ++i) {
+      mJaccardM.setColumnName(i, names[i]);
+      mOverlapM.setColumnName(i, names[i]);
+
+      for (int j = 0; j < m; ++j) {
+        mJaccardM.set(i, j, jaccard[i][j]);
+        mOverlapM.set(i, j, overlap[i][j]);
+      }
+    }
+
+    mGenesM = genes(bits, m);
+
+    return null;
+  }
+
+  /**
+   * Count how many leading edges each gene is in.
+   *
+   * @param bits the leading edges.
+   * @param m    the number of sets.
+   * @return a table of the genes in at least one leading edge, ordered by
+   *         decreasing frequency and then by rank.
+   */
+  private DataFrame genes(long[][] bits, int m) {
+    int n = mRun.getN();
+
+    int[] freq = new int[n];
+
+    for (long[] b : bits) {
+      for (int w = 0; w < b.length; ++w) {
+        long word = b[w];
+
+        while (word != 0) {
+          ++freq[(w << 6) + Long.numberOfTrailingZeros(word)];
+
+          // Clear the lowest set bit
+          word &= word - 1;
+        }
+      }
+    }
+
+    int g = 0;
+
+    for (int f : freq) {
+      if (f > 0) {
+        ++g;
+      }
+    }
+
+    // Pack the inverted frequency and the rank so a primitive sort orders
+    // the genes by decreasing frequency then increasing rank
+    long[] keys = new long[g];
+
+    g = 0;
+
+    for (int r = 0; r < n; ++r) {
+      if (freq[r] > 0) {
+        keys[g++] = ((long) (m - freq[r]) << 32) | r;
+      }
+    }
+
+    Arrays.sort(keys);
+
+    DataFrame ret = DataFrame.createDataFrame(g, 5);
+
+    ret.setColumnName(0, "Gene");
+    ret.setColumnName(1, "Rank");
+    ret.setColumnName(2, "Metric");
+    ret.setColumnName(3, "Sets");
+    ret.setColumnName(4, "Frequency");
+
+    for (int i = 0; i < g; ++i) {
+      int r = (int) keys[i];
+
+      ret.set(i, 0, mRun.getGene(r));
+      ret.set(i, 1, r);
+      ret.set(i, 2, mRun.getScore(r));
+      ret.set(i, 3, freq[r]);
+      ret.set(i, 4, (double) freq[r] / m);
+    }
+
+    return ret;
+  }
+
+  @Override
+  protected void finished() {
+    mWindow.history().addToHistory("Leading Edge Genes", mGenesM);
+    mWindow.history().addToHistory("Leading Edge Overlap", mOverlapM);
+    mWindow.history().addToHistory("Leading Edge Jaccard", mJaccardM);
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.ora;
+
+/**
+ * Over-representation analysis. The significance of the overlap between a
+ * gene list and a gene set is the probability of drawing at least as many set
+ * genes in a random list of the same size from the background, i.e. the upper
+ * tail of the hypergeometric distribution, which is the same as a one sided
+ * Fisher's exact test.
+ *
+ * The list and background are bitsets over the ids of a gene dictionary, so
+ * counting the overlap of a set costs one bit test per set gene. The tail is
+ * summed in log space from a table of log factorials built once for the
+ * background size.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class Ora {
+  public static final int DEFAULT_MIN_SIZE = 5;
+
+  public static final int DEFAULT_MAX_SIZE = 5000;
+
+  /**
+   * Terms smaller than this fraction of the running sum are ignored once the
+   * terms start to fall.
+   */
+  private static final double EPSILON = 1e-16;
+
+  private final long[] mList;
+  private final long[] mBackground;
+  private final int mN;
+  private final int mListSize;
+  private final double[] mLogFactorials;
+
+  /**
+   * Instantiates a new analysis.
+   *
+   * @param list       the genes of the list, which should be a subset of the
+   *                   background.
+   * @param background the background genes.
+   */
+  public Ora(long[] list, long[] background) {
+    mList = list;
+    mBackground = background;
+    mN = count(background);
+    mListSize = count(list);
+    mLogFactorials = logFactorials(mN);
+  }
+
+  /**
+   * Returns the number of background genes.
+   *
+   * @return the size of the background.
+   */
+  public int getN() {
+    return mN;
+  }
+
+  /**
+   * Returns the number of list genes.
+   *
+   * @return the size of the list.
+   */
+  public int getListSize() {
+    return mListSize;
+  }
+
+  public boolean inList(int id) {
+    return isSet(mList, id);
+  }
+
+  public boolean inBackground(int id) {
+    return isSet(mBackground, id);
+  }
+
+  /**
+   * Returns the number of genes of a set that are in the background.
+   *
+   * @param genes the gene ids of the set.
+   * @return the number of genes.
+   */
+  public int size(int[] genes) {
+    int ret = 0;
+
+    for (int id : genes) {
+      if (isSet(mBackground, id)) {
+        ++ret;
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the number of genes of a set that are in the list.
+   *
+   * @param genes the gene ids of the set.
+   * @return the number of genes.
+   */
+  public int overlap(int[] genes) {
+    int ret = 0;
+
+    for (int id : genes) {
+      if (isSet(mList, id)) {
+        ++ret;
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the probability of at least k list genes being in a set of K
+   * background genes.
+   *
+   * @param k the overlap.
+   * @param K the size of the set.
+   * @return the p-value.
+   */
+  public double p(int k, int K) {
+    int n = mListSize;
+    int N = mN;
+
+    int max = Math.min(K, n);
+
+    if (k <= 0) {
+      return 1;
+    }
+
+    if (k > max) {
+      return 0;
+    }
+
+    double[] lf = mLogFactorials;
+
+    // log C(N, n), the number of possible lists
+    double total = lf[N] - lf[n] - lf[N - n];
+
+    double sum = 0;
+    double last = 0;
+
+    for (int i = k; i <= max; ++i) {
+      // Lists with i set genes and n - i other genes
+      if (n - i > N - K) {
+        continue;
+      }
+
+      double t = Math.exp(lf[K] - lf[i] - lf[K - i] + lf[N - K] - lf[n - i] - lf[N - K - n + i] - total);
+
+      sum += t;
+
+      if (t < last && t < sum * EPSILON) {
+        break;
+      }
+
+      last = t;
+    }
+
+    return Math.min(1, sum);
+  }
+
+  /**
+   * Returns log(i!) for i from 0 to n.
+   *
+   * @param n the largest value.
+   * @return the table.
+   */
+  private static double[] logFactorials(int n) {
+    double[] ret = new double[n + 1];
+
+    for (int i = 2; i <= n; ++i) {
+      ret[i] = ret[i - 1] + Math.log(i);
+    }
+
+    return ret;
+  }
+
+  public static long[] createBits(int size) {
+    return new long[(size + 63) >>> 6];
+  }
+
+  public static void set(long[] bits, int id) {
+    bits[id >>> 6] |= 1L << id;
+  }
+
+  public static boolean isSet(long[] bits, int id) {
+    int w = id >>> 6;
+
+    return w < bits.length && (bits[w] & (1L << id)) != 0;
+  }
+
+  public static int count(long[] bits) {
+    int ret = 0;
+
+    for (long w : bits) {
+      ret += Long.bitCount(w);
+    }
+
+    return ret;
+  }
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.ora;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.Io;
+import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.AssetService;
+import org.jebtk.modern.dialog.ModernDialogStatus;
+import org.jebtk.modern.event.ModernClickEvent;
+import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.io.FileDialog;
+import org.jebtk.modern.io.RecentFilesService;
+import org.jebtk.modern.ribbon.RibbonLargeButton;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea.GeneDictionary;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea.GeneSetCollection;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea.GmtGuiFileFilter;
+import edu.columbia.rdf.matcalc.toolbox.Module;
+
+/**
+ * Tests the genes of the current matrix for over-representation in the gene
+ * sets of a GMT file. The background is either every gene in the gene sets or
+ * a list of genes loaded from a file.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class OraModule extends Module implements ModernClickListener {
+
+  private MainMatCalcWindow mWindow;
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.NameProperty#getName()
+   */
+  @Override
+  public String getName() {
+    return "Over-representation";
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.columbia.rdf.apps.matcalc.modules.Module#init(edu.columbia.rdf.apps.
+   * matcalc.MainMatCalcWindow)
+   */
+  @Override
+  public void init(MainMatCalcWindow window) {
+    mWindow = window;
+
+    RibbonLargeButton button = new RibbonLargeButton("Enrichment",
+        AssetService.getInstance().loadIcon("line_graph", 24), "Enrichment",
+        "Test a gene list for over-representation in gene sets.");
+    button.addClickListener(this);
+
+    mWindow.getRibbon().getToolbar("Bioinformatics").getSection("GSEA").add(button);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.ui.modern.event.ModernClickListener#clicked(org.abh.lib.ui.
+   * modern .event.ModernClickEvent)
+   */
+  @Override
+  public void clicked(ModernClickEvent e) {
+    try {
+      ora();
+    } catch (Exception e1) {
+      e1.printStackTrace();
+    }
+  }
+
+  private void ora() throws Exception {
+    DataFrame m = mWindow.getCurrentMatrix();
+
+    if (m == null) {
+      showLoadMatrixError(mWindow);
+
+      return;
+    }
+
+    Map<String, Integer> colMap = findColumns(mWindow, m, "gene|name|symbol");
+
+    if (colMap == null) {
+      return;
+    }
+
+    Path file = FileDialog.open(mWindow).filter(new GmtGuiFileFilter())
+        .getFile(RecentFilesService.getInstance().getPwd());
+
+    if (file == null) {
+      return;
+    }
+
+    OraDialog dialog = new OraDialog(mWindow);
+
+    dialog.setVisible(true);
+
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
+    }
+
+    Path backgroundFile = null;
+
+    if (dialog.getUseBackgroundFile()) {
+      backgroundFile = FileDialog.open(mWindow).filter(new GrpGuiFileFilter())
+          .getFile(RecentFilesService.getInstance().getPwd());
+
+      if (backgroundFile == null) {
+        return;
+      }
+    }
+
+    GeneSetCollection geneSets = GeneSetCollection.parseGmt(file);
+
+    GeneDictionary dictionary = geneSets.getDictionary();
+
+    // Background genes that are in no set still count towards the background
+    // size so they must have ids before the bitsets are sized
+    List<Integer> backgroundIds = new ArrayList<Integer>();
+
+    if (backgroundFile != null) {
+      for (String gene : readGenes(backgroundFile)) {
+        backgroundIds.add(dictionary.add(gene));
+      }
+    }
+
+    long[] background = Ora.createBits(dictionary.size());
+
+    if (backgroundFile != null) {
+      for (int id : backgroundIds) {
+        Ora.set(background, id);
+      }
+    } else {
+      for (int i = 0; i < geneSets.size(); ++i) {
+        for (int id : geneSets.getGenes(i)) {
+          Ora.set(background, id);
+        }
+      }
+    }
+
+    // List genes outside the background cannot be drawn so are ignored
+    long[] list = Ora.createBits(dictionary.size());
+
+    int geneCol = colMap.get("gene|name|symbol");
+
+    for (int i = 0; i < m.getRows(); ++i) {
+      int id = dictionary.getId(m.getText(i, geneCol));
+
+      if (id != -1 && Ora.isSet(background, id)) {
+        Ora.set(list, id);
+      }
+    }
+
+    Ora ora = new Ora(list, background);
+
+    new OraWorker(mWindow, ora, geneSets, dialog.getMinSize(), dialog.getMaxSize()).execute();
+  }
+
+  /**
+   * Reads the genes in the first column of a file, ignoring comment lines
+   * starting with #.
+   *
+   * @param file the file.
+   * @return the genes.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static List<String> readGenes(Path file) throws IOException {
+    List<String> ret = new ArrayList<String>();
+
+    BufferedReader reader = FileUtils.newBufferedReader(file);
+
+    String line;
+
+    try {
+      while ((line = reader.readLine()) != null) {
+        if (Io.isEmptyLine(line) || line.startsWith("#")) {
+          continue;
+        }
+
+        String gene = TextUtils.tabSplit(line).get(0).trim();
+
+        if (gene.length() > 0) {
+          ret.add(gene);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    return ret;
+  }
+}
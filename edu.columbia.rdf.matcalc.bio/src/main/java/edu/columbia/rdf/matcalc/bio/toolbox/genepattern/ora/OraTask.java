@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.ora;
+
+import java.util.concurrent.RecursiveAction;
+
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea.GeneSetCollection;
+
+/**
+ * Tests a contiguous block of gene sets. Each task writes to its own part of
+ * the shared result arrays.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class OraTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  private final Ora mOra;
+  private final GeneSetCollection mGeneSets;
+  private final int mStart;
+  private final int mEnd;
+  private final int[] mSizes;
+  private final int[] mOverlaps;
+  private final double[] mP;
+
+  /**
+   * Instantiates a new ora task.
+   *
+   * @param ora      the engine.
+   * @param geneSets the gene sets.
+   * @param start    the first set.
+   * @param end      one past the last set.
+   * @param sizes    receives the number of background genes in each set.
+   * @param overlaps receives the number of list genes in each set.
+   * @param p        receives the p-value of each set.
+   */
+  public OraTask(Ora ora, GeneSetCollection geneSets, int start, int end, int[] sizes, int[] overlaps,
+      double[] p) {
+    mOra = ora;
+    mGeneSets = geneSets;
+    mStart = start;
+    mEnd = end;
+    mSizes = sizes;
+    mOverlaps = overlaps;
+    mP = p;
+  }
+
+  @Override
+  protected void compute() {
+    for (int i = mStart; i < mEnd; ++i) {
+      int[] genes = mGeneSets.getGenes(i);
+
+      mSizes[i] = mOra.size(genes);
+      mOverlaps[i] = mOra.overlap(genes);
+      mP[i] = mOra.p(mOverlaps[i], mSizes[i]);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.ora;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.MultipleTesting;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea.GeneDictionary;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea.GeneSetCollection;
+
+/**
+ * Tests every gene set of a collection for over-representation in a gene
+ * list. The sets are split into blocks which are tested in parallel.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class OraWorker extends ProgressWorker {
+  /**
+   * How many sets each task tests. Most sets take microseconds so testing
+   * them one per task would be dominated by scheduling.
+   */
+  private static final int BLOCK_SIZE = 256;
+
+  private final MainMatCalcWindow mWindow;
+  private final Ora mOra;
+  private final GeneSetCollection mGeneSets;
+  private final int mMinSize;
+  private final int mMaxSize;
+
+  private DataFrame mResultsM;
+
+  /**
+   * Instantiates a new ora worker.
+   *
+   * @param window   the window to add the results to.
+   * @param ora      the engine.
+   * @param geneSets the gene sets.
+   * @param minSize  the smallest set to test, counting only background genes.
+   * @param maxSize  the largest set to test, counting only background genes.
+   */
+  public OraWorker(MainMatCalcWindow window, Ora ora, GeneSetCollection geneSets, int minSize, int maxSize) {
+    super(window, "Testing gene sets...");
+
+    mWindow = window;
+    mOra = ora;
+    mGeneSets = geneSets;
+    mMinSize = minSize;
+    mMaxSize = maxSize;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    int s = mGeneSets.size();
+
+    int[] sizes = new int[s];
+    int[] overlaps = new int[s];
+    double[] p = new double[s];
+
+    List<OraTask> tasks = new ArrayList<OraTask>();
+
+    for (int start = 0; start < s; start += BLOCK_SIZE) {
+      tasks.add(new OraTask(mOra, mGeneSets, start, Math.min(s, start + BLOCK_SIZE), sizes, overlaps, p));
+    }
+
+    if (invokeAll(tasks) == null) {
+      return null;
+    }
+
+    // Only the sets within the size limits count as tests when adjusting
+    // for multiple testing
+    int m = 0;
+
+    for (int i = 0; i < s; ++i) {
+      if (sizes[i] >= mMinSize && sizes[i] <= mMaxSize) {
+        ++m;
+      }
+    }
+
+    final int[] sets = new int[m];
+    final double[] tested = new double[m];
+
+    m = 0;
+
+    for (int i = 0; i < s; ++i) {
+      if (sizes[i] >= mMinSize && sizes[i] <= mMaxSize) {
+        sets[m] = i;
+        tested[m++] = p[i];
+      }
+    }
+
+    double[] fdr = MultipleTesting.bh(tested);
+
+    Integer[] order = new Integer[m];
+
+    for (int i = 0; i < m; ++i) {
+      order[i] = i;
+    }
+
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer i1, Integer i2) {
+        return Double.compare(tested[i1], tested[i2]);
+      }
+    });
+
+    double n = mOra.getListSize();
+    double N = mOra.getN();
+
+    mResultsM = DataFrame.createDataFrame(m, 9);
+
+    mResultsM.setColumnName(0, "Gene Set");
+    mResultsM.setColumnName(1, "Description");
+    mResultsM.setColumnName(2, "Size");
+    mResultsM.setColumnName(3, "Overlap");
+    mResultsM.setColumnName(4, "Expected");
+    mResultsM.setColumnName(5, "Fold Enrichment");
+    mResultsM.setColumnName(6, "p-value");
+    mResultsM.setColumnName(7, "FDR q-value");
+    mResultsM.setColumnName(8, "Genes");
+
+    GeneDictionary dictionary = mGeneSets.getDictionary();
+
+    for (int r = 0; r < m; ++r) {
+      int t = order[r];
+      int i = sets[t];
+
+      double expected = n * sizes[i] / N;
+
+      mResultsM.set(r, 0, mGeneSets.getName(i));
+      mResultsM.set(r, 1, mGeneSets.getDescription(i));
+      mResultsM.set(r, 2, sizes[i]);
+      mResultsM.set(r, 3, overlaps[i]);
+      mResultsM.set(r, 4, expected);
+      mResultsM.set(r, 5, overlaps[i] / expected);
+      mResultsM.set(r, 6, p[i]);
+      mResultsM.set(r, 7, fdr[t]);
+      mResultsM.set(r, 8, genes(dictionary, mGeneSets.getGenes(i)));
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the list genes in a set.
+   *
+   * @param dictionary the gene dictionary.
+   * @param genes      the ids of the set genes.
+   * @return a comma separated list of genes.
+   */
+  private String genes(GeneDictionary dictionary, int[] genes) {
+    StringBuilder buffer = new StringBuilder();
+
+    for (int id : genes) {
+      if (mOra.inList(id)) {
+        if (buffer.length() > 0) {
+          buffer.append(",");
+        }
+
+        buffer.append(dictionary.getGene(id));
+      }
+    }
+
+    return buffer.toString();
+  }
+
+  @Override
+  protected void finished() {
+    mWindow.history().addToHistory("Over-representation", mResultsM);
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.ssgsea;
+
+import java.util.Arrays;
+
+/**
+ * Single sample GSEA. The genes of a sample are ranked by expression and the
+ * score of a set is the sum over every position in the ranking of the
+ * difference between the weighted fraction of set genes seen so far and the
+ * fraction of other genes seen so far. Set genes are weighted by their rank
+ * raised to a power, so the weights are the same for every sample.
+ *
+ * A set gene at position p is counted at every position from p to the end of
+ * the list, so summing the two running fractions over the list reduces to sums
+ * over the set genes alone. With the weights and weighted positions tabulated
+ * once, a set costs one lookup per gene rather than a pass over the list.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class Ssgsea {
+  public static final double DEFAULT_WEIGHT = 0.25;
+
+  public static final int DEFAULT_MIN_SIZE = 10;
+
+  public static final int DEFAULT_MAX_SIZE = 500;
+
+  private final int mN;
+
+  /** The weight of the gene at each position. */
+  private final double[] mWeights;
+
+  /** The weight of the gene at each position times the positions it counts. */
+  private final double[] mWeightedTails;
+
+  /**
+   * Instantiates a new ssgsea.
+   *
+   * @param n      the number of genes.
+   * @param weight the power ranks are raised to when weighting set genes.
+   */
+  public Ssgsea(int n, double weight) {
+    mN = n;
+    mWeights = new double[n];
+    mWeightedTails = new double[n];
+
+    for (int p = 0; p < n; ++p) {
+      // The gene with the highest expression has the highest rank
+      int tail = n - p;
+
+      mWeights[p] = weight == 0 ? 1 : Math.pow(tail, weight);
+      mWeightedTails[p] = mWeights[p] * tail;
+    }
+  }
+
+  /**
+   * Returns the position of each gene when a sample is sorted by decreasing
+   * expression. Ties keep the order of the genes and missing values are
+   * placed last.
+   *
+   * @param values the expression of each gene.
+   * @param keys   a work array the length of values.
+   * @param ret    receives the position of each gene.
+   */
+  public static void positions(double[] values, long[] keys, int[] ret) {
+    int n = values.length;
+
+    // Pack a sortable float of the negated value above the gene index so a
+    // primitive sort orders the genes by decreasing value then index
+    for (int i = 0; i < n; ++i) {
+      keys[i] = ((long) sortable(-value(values[i])) << 32) | i;
+    }
+
+    Arrays.sort(keys);
+
+    // Values that differ by less than the precision of a float share a key,
+    // so reorder each run of equal keys using the full values. Runs are
+    // short in real data so an insertion sort is enough.
+    int start = 0;
+
+    while (start < n) {
+      int end = start + 1;
+
+      int k = (int) (keys[start] >> 32);
+
+      while (end < n && (int) (keys[end] >> 32) == k) {
+        ++end;
+      }
+
+      for (int i = start + 1; i < end; ++i) {
+        long key = keys[i];
+        double v = value(values[(int) key]);
+
+        int j = i - 1;
+
+        while (j >= start && value(values[(int) keys[j]]) < v) {
+          keys[j + 1] = keys[j];
+          --j;
+        }
+
+        keys[j + 1] = key;
+      }
+
+      start = end;
+    }
+
+    for (int p = 0; p < n; ++p) {
+      ret[(int) keys[p]] = p;
+    }
+  }
+
+  /**
+   * Calculate the enrichment score of a set in one sample.
+   *
+   * @param genes     the indices of the set genes.
+   * @param positions the position of each gene in the sample.
+   * @return the enrichment score.
+   */
+  public double es(int[] genes, int[] positions) {
+    int n = mN;
+    int k = genes.length;
+
+    if (k == 0 || k == n) {
+      return 0;
+    }
+
+    double weights = 0;
+    double weightedTails = 0;
+    double tails = 0;
+
+    for (int g : genes) {
+      int p = positions[g];
+
+      weights += mWeights[p];
+      weightedTails += mWeightedTails[p];
+      tails += n - p;
+    }
+
+    // Every gene counts at each position from its own to the end, so the
+    // other genes together count at all the positions not counted by the set
+    double allTails = (double) n * (n + 1) / 2;
+
+    return weightedTails / weights - (allTails - tails) / (n - k);
+  }
+
+  /**
+   * Returns the value used for ranking, which puts missing values last.
+   *
+   * @param v the value.
+   * @return the value or negative infinity if it is missing.
+   */
+  private static double value(double v) {
+    // Adding zero turns -0 into 0 so the two share a key
+    return Double.isNaN(v) ? Double.NEGATIVE_INFINITY : v + 0.0;
+  }
+
+  /**
+   * Returns an int whose signed order matches the order of a value as a
+   * float.
+   *
+   * @param v the value.
+   * @return the sortable int.
+   */
+  private static int sortable(double v) {
+    int bits = Float.floatToIntBits((float) v);
+
+    // Negative floats sort in reverse as ints, so flip their magnitude bits
+    return bits ^ ((bits >> 31) & 0x7fffffff);
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.ssgsea;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.AssetService;
+import org.jebtk.modern.dialog.ModernDialogStatus;
+import org.jebtk.modern.event.ModernClickEvent;
+import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.io.FileDialog;
+import org.jebtk.modern.io.RecentFilesService;
+import org.jebtk.modern.ribbon.RibbonLargeButton;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea.GeneDictionary;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea.GeneSetCollection;
+import edu.columbia.rdf.matcalc.bio.toolbox.genepattern.gsea.GmtGuiFileFilter;
+import edu.columbia.rdf.matcalc.toolbox.Module;
+
+/**
+ * Scores the gene sets of a GMT file in each sample of the current matrix,
+ * which should have a gene per row and a sample per column.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class SsgseaModule extends Module implements ModernClickListener {
+
+  private MainMatCalcWindow mWindow;
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.NameProperty#getName()
+   */
+  @Override
+  public String getName() {
+    return "ssGSEA";
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.columbia.rdf.apps.matcalc.modules.Module#init(edu.columbia.rdf.apps.
+   * matcalc.MainMatCalcWindow)
+   */
+  @Override
+  public void init(MainMatCalcWindow window) {
+    mWindow = window;
+
+    RibbonLargeButton button = new RibbonLargeButton("ssGSEA", AssetService.getInstance().loadIcon("line_graph", 24),
+        "ssGSEA", "Score gene sets in each sample.");
+    button.addClickListener(this);
+
+    mWindow.getRibbon().getToolbar("Bioinformatics").getSection("GSEA").add(button);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.ui.modern.event.ModernClickListener#clicked(org.abh.lib.ui.
+   * modern .event.ModernClickEvent)
+   */
+  @Override
+  public void clicked(ModernClickEvent e) {
+    try {
+      ssgsea();
+    } catch (Exception e1) {
+      e1.printStackTrace();
+    }
+  }
+
+  private void ssgsea() throws Exception {
+    DataFrame m = mWindow.getCurrentMatrix();
+
+    if (m == null) {
+      showLoadMatrixError(mWindow);
+
+      return;
+    }
+
+    Path file = FileDialog.open(mWindow).filter(new GmtGuiFileFilter())
+        .getFile(RecentFilesService.getInstance().getPwd());
+
+    if (file == null) {
+      return;
+    }
+
+    SsgseaDialog dialog = new SsgseaDialog(mWindow, m);
+
+    dialog.setVisible(true);
+
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
+    }
+
+    GeneSetCollection geneSets = GeneSetCollection.parseGmt(file);
+
+    GeneDictionary dictionary = geneSets.getDictionary();
+
+    // The row of each gene. If a gene has more than one row the first is
+    // used, so matrices should be collapsed to one row per gene first.
+    int[] rows = new int[dictionary.size()];
+
+    Arrays.fill(rows, -1);
+
+    String[] genes = m.getIndex().getText(dialog.getGeneAnnotation());
+
+    for (int i = 0; i < genes.length; ++i) {
+      int id = dictionary.getId(genes[i]);
+
+      if (id != -1 && rows[id] == -1) {
+        rows[id] = i;
+      }
+    }
+
+    int minSize = dialog.getMinSize();
+    int maxSize = dialog.getMaxSize();
+
+    List<String> names = new ArrayList<String>();
+    List<int[]> sets = new ArrayList<int[]>();
+
+    for (int i = 0; i < geneSets.size(); ++i) {
+      int[] ids = geneSets.getGenes(i);
+
+      int[] set = new int[ids.length];
+      int k = 0;
+
+      for (int id : ids) {
+        if (rows[id] != -1) {
+          set[k++] = rows[id];
+        }
+      }
+
+      if (k >= minSize && k <= maxSize) {
+        names.add(geneSets.getName(i));
+        sets.add(Arrays.copyOf(set, k));
+      }
+    }
+
+    Ssgsea ssgsea = new Ssgsea(m.getRows(), dialog.getWeight());
+
+    new SsgseaWorker(mWindow, m, ssgsea, names.toArray(new String[names.size()]),
+        sets.toArray(new int[sets.size()][]), dialog.getNormalize()).execute();
+  }
+}
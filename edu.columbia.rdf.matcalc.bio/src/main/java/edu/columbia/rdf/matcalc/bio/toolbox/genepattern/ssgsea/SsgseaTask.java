@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.ssgsea;
+
+import java.util.concurrent.RecursiveAction;
+
+import org.jebtk.math.matrix.DataFrame;
+
+/**
+ * Ranks one sample and scores every gene set in it.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class SsgseaTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  private final Ssgsea mSsgsea;
+  private final DataFrame mM;
+  private final int mCol;
+  private final int[][] mSets;
+  private final double[][] mScores;
+
+  /**
+   * Instantiates a new ssgsea task.
+   *
+   * @param ssgsea the engine.
+   * @param m      the expression matrix.
+   * @param col    the sample.
+   * @param sets   the rows of the genes in each set.
+   * @param scores receives the score of each set in the sample column.
+   */
+  public SsgseaTask(Ssgsea ssgsea, DataFrame m, int col, int[][] sets, double[][] scores) {
+    mSsgsea = ssgsea;
+    mM = m;
+    mCol = col;
+    mSets = sets;
+    mScores = scores;
+  }
+
+  @Override
+  protected void compute() {
+    int n = mM.getRows();
+
+    double[] values = new double[n];
+
+    for (int i = 0; i < n; ++i) {
+      values[i] = mM.getValue(i, mCol);
+    }
+
+    int[] positions = new int[n];
+
+    Ssgsea.positions(values, new long[n], positions);
+
+    for (int s = 0; s < mSets.length; ++s) {
+      mScores[s][mCol] = mSsgsea.es(mSets[s], positions);
+    }
+  }
+}
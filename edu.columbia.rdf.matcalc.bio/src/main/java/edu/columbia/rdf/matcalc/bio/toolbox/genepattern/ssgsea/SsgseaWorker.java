@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genepattern.ssgsea;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+
+/**
+ * Scores gene sets in every sample of an expression matrix. Each sample is
+ * ranked and scored as a separate task.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class SsgseaWorker extends ProgressWorker {
+  private final MainMatCalcWindow mWindow;
+  private final DataFrame mM;
+  private final Ssgsea mSsgsea;
+  private final String[] mNames;
+  private final int[][] mSets;
+  private final boolean mNormalize;
+
+  private DataFrame mScoresM;
+
+  /**
+   * Instantiates a new ssgsea worker.
+   *
+   * @param window    the window to add the results to.
+   * @param m         the expression matrix.
+   * @param ssgsea    the engine.
+   * @param names     the name of each set.
+   * @param sets      the rows of the genes in each set.
+   * @param normalize whether to divide the scores by their range.
+   */
+  public SsgseaWorker(MainMatCalcWindow window, DataFrame m, Ssgsea ssgsea, String[] names, int[][] sets,
+      boolean normalize) {
+    super(window, "Scoring samples...");
+
+    mWindow = window;
+    mM = m;
+    mSsgsea = ssgsea;
+    mNames = names;
+    mSets = sets;
+    mNormalize = normalize;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    int s = mSets.length;
+    int c = mM.getCols();
+
+    double[][] scores = new double[s][c];
+
+    List<SsgseaTask> tasks = new ArrayList<SsgseaTask>(c);
+
+    for (int i = 0; i < c; ++i) {
+      tasks.add(new SsgseaTask(mSsgsea, mM, i, mSets, scores));
+    }
+
+    if (invokeAll(tasks) == null) {
+      return null;
+    }
+
+    if (mNormalize) {
+      normalize(scores);
+    }
+
+    mScoresM = DataFrame.createNumericalMatrix(s, c);
+
+    mScoresM.getIndex().setAnnotation("Gene Set", mNames);
+
+    for (int i = 0; i < c; ++i) {
+      mScoresM.setColumnName(i, mM.getColumnName(i));
+    }
+
+    for (int i = 0; i < s; ++i) {
+      for (int j = 0; j < c; ++j) {
+        mScoresM.set(i, j, scores[i][j]);
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Divide every score by the range of all the scores so that scores from
+   * different sets and samples are on the same scale.
+   *
+   * @param scores the scores.
+   */
+  private static void normalize(double[][] scores) {
+    double min = Double.MAX_VALUE;
+    double max = -Double.MAX_VALUE;
+
+    for (double[] row : scores) {
+      for (double v : row) {
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+      }
+    }
+
+    double range = max - min;
+
+    if (range <= 0) {
+      return;
+    }
+
+    for (double[] row : scores) {
+      for (int i = 0; i < row.length; ++i) {
+        row[i] /= range;
+      }
+    }
+  }
+
+  @Override
+  protected void finished() {
+    mWindow.history().addToHistory("ssGSEA", mScoresM);
+  }
+}
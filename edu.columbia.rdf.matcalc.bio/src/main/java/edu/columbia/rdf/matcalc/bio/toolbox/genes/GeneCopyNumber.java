@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genes;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jebtk.bioinformatics.genomic.Chromosome;
+import org.jebtk.bioinformatics.genomic.GenesDB;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.bioinformatics.genomic.GenomicElement;
+import org.jebtk.bioinformatics.genomic.GenomicRegion;
+import org.jebtk.bioinformatics.genomic.GenomicType;
+
+import edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.SegmentTable;
+
+/**
+ * Summarizes the copy number of each gene in a sample as the mean of the
+ * segments overlapping it, weighted by the length of each overlap. Genes are
+ * held in primitive arrays ordered by chromosome and start so that each
+ * sample can be joined to them with a single sweep per chromosome.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GeneCopyNumber {
+
+  /**
+   * The chromosomes in the order of the segment table chromosome ids.
+   */
+  private final List<Chromosome> mChrs;
+
+  /**
+   * The index of the first gene of each chromosome. The last entry is the
+   * number of genes.
+   */
+  private final int[] mOffsets;
+
+  private final String[] mNames;
+  private final int[] mStarts;
+  private final int[] mEnds;
+
+  private GeneCopyNumber(List<Chromosome> chrs, int[] offsets, String[] names, int[] starts, int[] ends) {
+    mChrs = chrs;
+    mOffsets = offsets;
+    mNames = names;
+    mStarts = starts;
+    mEnds = ends;
+  }
+
+  /**
+   * Load the genes on a set of chromosomes.
+   *
+   * @param db     the gene database.
+   * @param genome the genome.
+   * @param chrs   the chromosomes, normally those of a segment table so that
+   *               its chromosome ids can be used to find the genes.
+   * @param idType the gene id used to name genes, e.g. gene_symbol. If null
+   *               or missing, the gene location is used.
+   * @return the genes.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static GeneCopyNumber create(GenesDB db, Genome genome, List<Chromosome> chrs, String idType)
+      throws IOException {
+    @SuppressWarnings("unchecked")
+    List<GenomicElement>[] chrGenes = new List[chrs.size()];
+
+    int[] offsets = new int[chrs.size() + 1];
+
+    for (int c = 0; c < chrs.size(); ++c) {
+      chrGenes[c] = db.find(genome, new GenomicRegion(chrs.get(c), 1, Integer.MAX_VALUE), GenomicType.GENE, 1);
+
+      offsets[c + 1] = offsets[c] + chrGenes[c].size();
+    }
+
+    int n = offsets[chrs.size()];
+
+    String[] names = new String[n];
+    int[] starts = new int[n];
+    int[] ends = new int[n];
+
+    for (int c = 0; c < chrs.size(); ++c) {
+      List<GenomicElement> genes = chrGenes[c];
+
+      // Order the genes by start by packing start and index into a long
+      long[] keys = new long[genes.size()];
+
+      for (int i = 0; i < keys.length; ++i) {
+        keys[i] = ((long) genes.get(i).getStart() << 32) | i;
+      }
+
+      Arrays.sort(keys);
+
+      for (int i = 0; i < keys.length; ++i) {
+        GenomicElement gene = genes.get((int) keys[i]);
+
+        String name = idType != null ? gene.getProperty(idType) : null;
+
+        names[offsets[c] + i] = name != null ? name : gene.getLocation();
+        starts[offsets[c] + i] = gene.getStart();
+        ends[offsets[c] + i] = gene.getEnd();
+      }
+    }
+
+    return new GeneCopyNumber(chrs, offsets, names, starts, ends);
+  }
+
+  /**
+   * Returns the number of genes.
+   *
+   * @return the number of genes.
+   */
+  public int size() {
+    return mNames.length;
+  }
+
+  public String getName(int i) {
+    return mNames[i];
+  }
+
+  public Chromosome getChr(int i) {
+    int c = Arrays.binarySearch(mOffsets, i);
+
+    // Skip over chromosomes without genes
+    if (c < 0) {
+      c = -c - 2;
+    } else {
+      while (c < mChrs.size() - 1 && mOffsets[c + 1] == i) {
+        ++c;
+      }
+    }
+
+    return mChrs.get(c);
+  }
+
+  public int getStart(int i) {
+    return mStarts[i];
+  }
+
+  public int getEnd(int i) {
+    return mEnds[i];
+  }
+
+  /**
+   * Calculate the copy number of each gene in one sample. Genes not
+   * overlapped by any segment are NaN.
+   *
+   * @param segments the segment table, which must have the chromosomes the
+   *                 genes were created from.
+   * @param indices  the indices of the sample's segments in the table.
+   * @return the copy number of each gene.
+   */
+  public float[] score(SegmentTable segments, int[] indices) {
+    float[] ret = new float[size()];
+
+    Arrays.fill(ret, Float.NaN);
+
+    int chrs = mChrs.size();
+
+    // Bucket the segments by chromosome
+
+    int[] offsets = new int[chrs + 1];
+
+    for (int i : indices) {
+      ++offsets[segments.getChrId(i) + 1];
+    }
+
+    for (int c = 0; c < chrs; ++c) {
+      offsets[c + 1] += offsets[c];
+    }
+
+    long[] keys = new long[indices.length];
+    int[] next = Arrays.copyOf(offsets, chrs);
+
+    for (int i : indices) {
+      keys[next[segments.getChrId(i)]++] = ((long) segments.getStart(i) << 32) | i;
+    }
+
+    for (int c = 0; c < chrs; ++c) {
+      // Order the segments of the chromosome by start
+      Arrays.sort(keys, offsets[c], offsets[c + 1]);
+
+      int s = offsets[c];
+
+      for (int g = mOffsets[c]; g < mOffsets[c + 1]; ++g) {
+        int start = mStarts[g];
+        int end = mEnds[g];
+
+        // Genes are ordered by start so segments ending before this gene
+        // cannot overlap any later gene either
+        while (s < offsets[c + 1] && segments.getEnd((int) keys[s]) < start) {
+          ++s;
+        }
+
+        double sum = 0;
+        long length = 0;
+
+        for (int k = s; k < offsets[c + 1]; ++k) {
+          int i = (int) keys[k];
+
+          int segStart = segments.getStart(i);
+
+          if (segStart > end) {
+            break;
+          }
+
+          int overlap = Math.min(end, segments.getEnd(i)) - Math.max(start, segStart) + 1;
+
+          if (overlap > 0) {
+            sum += overlap * segments.getMean(i);
+            length += overlap;
+          }
+        }
+
+        if (length > 0) {
+          ret[g] = (float) (sum / length);
+        }
+      }
+    }
+
+    return ret;
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genes;
+
+import edu.columbia.rdf.matcalc.bio.MatrixView;
+
+/**
+ * Read only matrix view of gene copy numbers. The columns are the gene,
+ * chromosome, start and end followed by a column for each sample.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GeneCopyNumberMatrix extends MatrixView {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The number of gene annotation columns before the samples.
+   */
+  public static final int ANNOTATION_COLS = 4;
+
+  private final GeneCopyNumber mGenes;
+  private final float[][] mColumns;
+
+  /**
+   * Instantiates a new gene copy number matrix.
+   *
+   * @param genes   the genes.
+   * @param columns the copy number of each gene in each sample.
+   */
+  public GeneCopyNumberMatrix(GeneCopyNumber genes, float[][] columns) {
+    super(genes.size(), ANNOTATION_COLS + columns.length, 2);
+
+    mGenes = genes;
+    mColumns = columns;
+  }
+
+  @Override
+  public double getValue(int row, int column) {
+    switch (column) {
+    case 0:
+    case 1:
+      return Double.NaN;
+    case 2:
+      return mGenes.getStart(row);
+    case 3:
+      return mGenes.getEnd(row);
+    default:
+      return mColumns[column - ANNOTATION_COLS][row];
+    }
+  }
+
+  @Override
+  public String getText(int row, int column) {
+    switch (column) {
+    case 0:
+      return mGenes.getName(row);
+    case 1:
+      return mGenes.getChr(row).toString();
+    case 2:
+    case 3:
+      return Integer.toString((int) getValue(row, column));
+    default:
+      return Double.toString(getValue(row, column));
+    }
+  }
+}
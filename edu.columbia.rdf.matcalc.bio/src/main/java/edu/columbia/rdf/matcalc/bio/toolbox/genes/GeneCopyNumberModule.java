@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genes;
+
+import java.util.Map;
+
+import org.jebtk.bioinformatics.genomic.ChromosomeService;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.AssetService;
+import org.jebtk.modern.button.ModernButton;
+import org.jebtk.modern.dialog.ModernDialogStatus;
+import org.jebtk.modern.event.ModernClickEvent;
+import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.ribbon.RibbonLargeButton;
+import org.jebtk.modern.tooltip.ModernToolTip;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.SegmentTable;
+import edu.columbia.rdf.matcalc.toolbox.Module;
+
+/**
+ * Joins the segments in the current matrix to genes to create a genes by
+ * samples copy number matrix.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GeneCopyNumberModule extends Module implements ModernClickListener {
+
+  private ModernButton mGenesButton = new RibbonLargeButton("Gene Copy Number",
+      AssetService.getInstance().loadIcon("fill_gaps", 32), AssetService.getInstance().loadIcon("fill_gaps", 24));
+
+  private MainMatCalcWindow mWindow;
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.NameProperty#getName()
+   */
+  @Override
+  public String getName() {
+    return "Gene Copy Number";
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.columbia.rdf.apps.matcalc.modules.Module#init(edu.columbia.rdf.apps.
+   * matcalc.MainMatCalcWindow)
+   */
+  @Override
+  public void init(MainMatCalcWindow window) {
+    mWindow = window;
+
+    mGenesButton.setToolTip(new ModernToolTip("Gene Copy Number", "Summarize segment copy number over genes."));
+    mGenesButton.setClickMessage("Gene Copy Number");
+    mWindow.getRibbon().getToolbar("Bioinformatics").getSection("Fill Gaps").add(mGenesButton);
+
+    mGenesButton.addClickListener(this);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.ui.modern.event.ModernClickListener#clicked(org.abh.lib.ui.
+   * modern .event.ModernClickEvent)
+   */
+  @Override
+  public final void clicked(ModernClickEvent e) {
+    try {
+      genes();
+    } catch (Exception e1) {
+      e1.printStackTrace();
+    }
+  }
+
+  private void genes() throws Exception {
+    DataFrame m = mWindow.getCurrentMatrix();
+
+    if (m == null) {
+      showLoadMatrixError(mWindow);
+
+      return;
+    }
+
+    Map<String, Integer> colMap = findColumns(mWindow, m, "chr", "start", "end", "segment", "mean");
+
+    if (colMap == null) {
+      return;
+    }
+
+    GeneCopyNumberDialog dialog = new GeneCopyNumberDialog(mWindow);
+
+    dialog.setVisible(true);
+
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
+    }
+
+    Genome genome = dialog.getGenome();
+
+    if (genome == null) {
+      return;
+    }
+
+    SegmentTable segments = new SegmentTable(m.getRows());
+
+    for (int r = 0; r < m.getRows(); ++r) {
+      segments.add(m.getText(r, colMap.get("segment")),
+          ChromosomeService.getInstance().chr(genome, m.getText(r, colMap.get("chr"))),
+          (int) m.getValue(r, colMap.get("start")), (int) m.getValue(r, colMap.get("end")), 0,
+          m.getValue(r, colMap.get("mean")));
+    }
+
+    new GeneCopyNumberWorker(mWindow, genome, segments).execute();
+  }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.genes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jebtk.bioinformatics.genomic.GenesDB;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.bioinformatics.genomic.GenomicType;
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.AnnotationService;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+import edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.SegmentTable;
+
+/**
+ * Creates a genes by samples copy number matrix in the background, scoring
+ * each sample as a separate task on a fork join pool.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class GeneCopyNumberWorker extends ProgressWorker {
+
+  /**
+   * The preferred id for naming genes.
+   */
+  private static final String GENE_SYMBOL = "gene_symbol";
+
+  private final MainMatCalcWindow mWindow;
+  private final Genome mGenome;
+  private final SegmentTable mSegments;
+
+  private DataFrame mGenesM;
+
+  /**
+   * Instantiates a new gene copy number worker.
+   *
+   * @param window   the window to add the matrix to.
+   * @param genome   the gene annotation.
+   * @param segments the segments of all samples.
+   */
+  public GeneCopyNumberWorker(MainMatCalcWindow window, Genome genome, SegmentTable segments) {
+    super(window, "Creating gene copy numbers...");
+
+    mWindow = window;
+    mGenome = genome;
+    mSegments = segments;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    GenesDB db = AnnotationService.getInstance().getSearch(mGenome);
+
+    if (db == null) {
+      throw new IOException(mGenome + " does not have any genes.");
+    }
+
+    List<String> idTypes = AnnotationService.getInstance().getGeneIdTypes(mGenome, GenomicType.GENE);
+
+    String idType = null;
+
+    if (idTypes != null && idTypes.size() > 0) {
+      idType = idTypes.contains(GENE_SYMBOL) ? GENE_SYMBOL : idTypes.get(0);
+    }
+
+    GeneCopyNumber genes = GeneCopyNumber.create(db, mGenome, mSegments.getChrs(), idType);
+
+    List<String> samples = mSegments.getSampleNames();
+
+    // Bucket the segments by sample
+
+    int[] counts = new int[samples.size()];
+
+    for (int i = 0; i < mSegments.size(); ++i) {
+      ++counts[mSegments.getSampleId(i)];
+    }
+
+    int[][] indices = new int[samples.size()][];
+
+    for (int s = 0; s < samples.size(); ++s) {
+      indices[s] = new int[counts[s]];
+      counts[s] = 0;
+    }
+
+    for (int i = 0; i < mSegments.size(); ++i) {
+      int s = mSegments.getSampleId(i);
+
+      indices[s][counts[s]++] = i;
+    }
+
+    List<GeneCopyNumberTask> tasks = new ArrayList<GeneCopyNumberTask>();
+
+    for (int s = 0; s < samples.size(); ++s) {
+      tasks.add(new GeneCopyNumberTask(genes, mSegments, indices[s]));
+    }
+
+    List<float[]> results = invokeAll(tasks);
+
+    if (results == null) {
+      return null;
+    }
+
+    float[][] columns = results.toArray(new float[results.size()][]);
+
+    mGenesM = new DataFrame(new GeneCopyNumberMatrix(genes, columns));
+
+    mGenesM.setColumnName(0, "gene");
+    mGenesM.setColumnName(1, "chromosome");
+    mGenesM.setColumnName(2, "start");
+    mGenesM.setColumnName(3, "end");
+
+    for (int s = 0; s < samples.size(); ++s) {
+      mGenesM.setColumnName(GeneCopyNumberMatrix.ANNOTATION_COLS + s, samples.get(s));
+    }
+
+    return null;
+  }
+
+  @Override
+  protected void finished() {
+    mWindow.history().addToHistory("Gene Copy Number", mGenesM);
+  }
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.probes;
+
+import java.util.Arrays;
+
+import edu.columbia.rdf.matcalc.toolbox.core.collapse.CollapseType;
+
+/**
+ * Collapses the rows of one group, added one at a time, to a single row.
+ * MAX and MIN take the largest or smallest value of each column. The other
+ * types keep the row with the highest mean, median, standard deviation or
+ * absolute t-statistic. Only primitive running values are kept, so an
+ * accumulator can be reused for group after group without allocating.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class CollapseAccumulator {
+  private final CollapseType mType;
+  private final int[] mIndices1;
+  private final int[] mIndices2;
+
+  private final double[] mValues;
+  private final double[] mWork;
+
+  private double mBestScore;
+  private int mBest;
+  private int mCount;
+
+  /**
+   * Instantiates a new collapse accumulator.
+   *
+   * @param type     how to collapse.
+   * @param cols     the number of values in a row.
+   * @param indices1 the columns of the first group for a t-statistic, or
+   *                 null.
+   * @param indices2 the columns of the second group for a t-statistic, or
+   *                 null.
+   */
+  public CollapseAccumulator(CollapseType type, int cols, int[] indices1, int[] indices2) {
+    mType = type;
+    mIndices1 = indices1;
+    mIndices2 = indices2;
+
+    mValues = new double[cols];
+    mWork = new double[cols];
+
+    reset();
+  }
+
+  /**
+   * Start a new group.
+   */
+  public void reset() {
+    mBestScore = Double.NEGATIVE_INFINITY;
+    mBest = -1;
+    mCount = 0;
+  }
+
+  /**
+   * Add a row of the group.
+   *
+   * @param row    an id of the row, such as its index in the matrix.
+   * @param values the values of the row, which are copied if needed.
+   */
+  public void add(int row, double[] values) {
+    switch (mType) {
+    case MAX:
+      if (mCount == 0) {
+        System.arraycopy(values, 0, mValues, 0, mValues.length);
+      } else {
+        for (int i = 0; i < mValues.length; ++i) {
+          if (values[i] > mValues[i]) {
+            mValues[i] = values[i];
+          }
+        }
+      }
+      break;
+    case MIN:
+      if (mCount == 0) {
+        System.arraycopy(values, 0, mValues, 0, mValues.length);
+      } else {
+        for (int i = 0; i < mValues.length; ++i) {
+          if (values[i] < mValues[i]) {
+            mValues[i] = values[i];
+          }
+        }
+      }
+      break;
+    default:
+      double score = score(values);
+
+      // The first row is kept if no row has a score, e.g. when all values
+      // are missing
+      if (mCount == 0 || score > mBestScore) {
+        mBestScore = score;
+        mBest = row;
+        System.arraycopy(values, 0, mValues, 0, mValues.length);
+      }
+
+      break;
+    }
+
+    ++mCount;
+  }
+
+  /**
+   * Returns the collapsed row of the group.
+   *
+   * @return the values, which are overwritten by the next group.
+   */
+  public double[] get() {
+    return mValues;
+  }
+
+  /**
+   * Returns the id of the row kept, or -1 if the type combines rows.
+   *
+   * @return the row id.
+   */
+  public int getBest() {
+    return mBest;
+  }
+
+  private double score(double[] values) {
+    switch (mType) {
+    case MAX_MEAN:
+      return mean(values);
+    case MAX_MEDIAN:
+      return median(values, mWork);
+    case MAX_STDEV:
+      return stdev(values);
+    case MAX_TSTAT:
+      return Math.abs(t(values, mIndices1, mIndices2));
+    default:
+      return 0;
+    }
+  }
+
+  private static double mean(double[] values) {
+    double sum = 0;
+
+    for (double v : values) {
+      sum += v;
+    }
+
+    return sum / values.length;
+  }
+
+  private static double median(double[] values, double[] work) {
+    int n = values.length;
+
+    if (n == 0) {
+      return Double.NaN;
+    }
+
+    System.arraycopy(values, 0, work, 0, n);
+
+    Arrays.sort(work, 0, n);
+
+    if ((n & 1) == 1) {
+      return work[n / 2];
+    } else {
+      return (work[n / 2 - 1] + work[n / 2]) / 2;
+    }
+  }
+
+  private static double stdev(double[] values) {
+    int n = values.length;
+
+    if (n < 2) {
+      return 0;
+    }
+
+    double mean = mean(values);
+
+    double sum = 0;
+
+    for (double v : values) {
+      double d = v - mean;
+
+      sum += d * d;
+    }
+
+    return Math.sqrt(sum / (n - 1));
+  }
+
+  /**
+   * Welch's t-statistic of two groups of columns.
+   */
+  private static double t(double[] values, int[] indices1, int[] indices2) {
+    int n1 = indices1.length;
+    int n2 = indices2.length;
+
+    if (n1 < 2 || n2 < 2) {
+      return 0;
+    }
+
+    double mean1 = 0;
+
+    for (int i : indices1) {
+      mean1 += values[i];
+    }
+
+    mean1 /= n1;
+
+    double mean2 = 0;
+
+    for (int i : indices2) {
+      mean2 += values[i];
+    }
+
+    mean2 /= n2;
+
+    double var1 = 0;
+
+    for (int i : indices1) {
+      double d = values[i] - mean1;
+
+      var1 += d * d;
+    }
+
+    var1 /= n1 - 1;
+
+    double var2 = 0;
+
+    for (int i : indices2) {
+      double d = values[i] - mean2;
+
+      var2 += d * d;
+    }
+
+    var2 /= n2 - 1;
+
+    double se = Math.sqrt(var1 / n1 + var2 / n2);
+
+    if (se == 0) {
+      return 0;
+    }
+
+    return (mean1 - mean2) / se;
+  }
+}
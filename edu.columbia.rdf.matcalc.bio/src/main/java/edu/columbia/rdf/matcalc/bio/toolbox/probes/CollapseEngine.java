@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.probes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.bio.ForkJoinService;
+import edu.columbia.rdf.matcalc.toolbox.core.collapse.CollapseType;
+
+/**
+ * Collapses the rows of a matrix that share an annotation, such as the probes
+ * of a gene. Rows are grouped by their key in a single pass through a
+ * {@link StringIndexMap}, then laid out group by group with a counting sort
+ * so each group is a contiguous run of row indices. Groups are collapsed in
+ * parallel blocks, each task reusing one {@link CollapseAccumulator}. When
+ * the type keeps one row of each group, the other row annotations of that
+ * row, such as the probe id, are kept with it.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class CollapseEngine {
+  /** The number of groups each task collapses. */
+  private static final int BLOCK_SIZE = 1024;
+
+  private final StringIndexMap mMap;
+
+  /** Where the rows of each group start in mRows, plus the end. */
+  private final int[] mStarts;
+
+  /** The rows ordered by group, in matrix order within a group. */
+  private final int[] mRows;
+
+  /**
+   * Instantiates a new collapse engine. Rows with an empty key are left out.
+   *
+   * @param keys the key of each row.
+   */
+  public CollapseEngine(String[] keys) {
+    int n = keys.length;
+
+    mMap = new StringIndexMap(Math.min(n, 65536));
+
+    int[] groups = new int[n];
+
+    for (int r = 0; r < n; ++r) {
+      String key = keys[r];
+
+      groups[r] = key != null && !key.isEmpty() ? mMap.add(key) : -1;
+    }
+
+    int size = mMap.size();
+
+    mStarts = new int[size + 1];
+
+    for (int g : groups) {
+      if (g != -1) {
+        ++mStarts[g + 1];
+      }
+    }
+
+    for (int g = 0; g < size; ++g) {
+      mStarts[g + 1] += mStarts[g];
+    }
+
+    mRows = new int[mStarts[size]];
+
+    int[] next = new int[size];
+
+    System.arraycopy(mStarts, 0, next, 0, size);
+
+    for (int r = 0; r < n; ++r) {
+      int g = groups[r];
+
+      if (g != -1) {
+        mRows[next[g]++] = r;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of groups.
+   *
+   * @return the number of distinct keys.
+   */
+  public int size() {
+    return mMap.size();
+  }
+
+  public String getKey(int group) {
+    return mMap.getKey(group);
+  }
+
+  /**
+   * Collapse the rows of a group.
+   *
+   * @param m           the matrix.
+   * @param group       the group.
+   * @param accumulator the accumulator, which is reset first.
+   * @param values      a work array the width of the matrix.
+   */
+  public void collapse(DataFrame m, int group, CollapseAccumulator accumulator, double[] values) {
+    accumulator.reset();
+
+    for (int i = mStarts[group]; i < mStarts[group + 1]; ++i) {
+      int r = mRows[i];
+
+      for (int c = 0; c < values.length; ++c) {
+        values[c] = m.getValue(r, c);
+      }
+
+      accumulator.add(r, values);
+    }
+  }
+
+  /**
+   * Collapse a matrix to one row per key.
+   *
+   * @param m            the matrix.
+   * @param collapseName the name of the annotation holding the keys.
+   * @param type         how to collapse each group.
+   * @param indices1     the columns of the first group for a t-statistic, or
+   *                     null.
+   * @param indices2     the columns of the second group for a t-statistic,
+   *                     or null.
+   * @return the collapsed matrix, with the keys as its row annotation.
+   */
+  public DataFrame collapse(DataFrame m, String collapseName, CollapseType type, int[] indices1, int[] indices2) {
+    int size = size();
+    int cols = m.getCols();
+
+    // Each task writes the rows of its own groups
+    double[] values = new double[size * cols];
+    int[] best = new int[size];
+
+    ForkJoinPool pool = ForkJoinService.getInstance().getPool();
+
+    List<CollapseTask> tasks = new ArrayList<CollapseTask>();
+
+    for (int start = 0; start < size; start += BLOCK_SIZE) {
+      CollapseTask task = new CollapseTask(this, m, type, indices1, indices2, start,
+          Math.min(size, start + BLOCK_SIZE), values, best);
+
+      pool.execute(task);
+
+      tasks.add(task);
+    }
+
+    for (CollapseTask task : tasks) {
+      task.join();
+    }
+
+    DataFrame ret = DataFrame.createNumericalMatrix(size, cols);
+
+    for (int c = 0; c < cols; ++c) {
+      ret.setColumnName(c, m.getColumnName(c));
+    }
+
+    String[] keys = new String[size];
+
+    for (int g = 0; g < size; ++g) {
+      keys[g] = getKey(g);
+
+      int offset = g * cols;
+
+      for (int c = 0; c < cols; ++c) {
+        ret.set(g, c, values[offset + c]);
+      }
+    }
+
+    ret.getIndex().setAnnotation(collapseName, keys);
+
+    // MAX and MIN combine the rows of a group, so there is no single row
+    // whose annotations can be kept
+    if (type != CollapseType.MAX && type != CollapseType.MIN) {
+      for (String name : m.getIndexNames()) {
+        if (name.equals(collapseName)) {
+          continue;
+        }
+
+        String[] text = m.getIndex().getText(name);
+
+        String[] annotation = new String[size];
+
+        for (int g = 0; g < size; ++g) {
+          annotation[g] = text[best[g]];
+        }
+
+        ret.getIndex().setAnnotation(name, annotation);
+      }
+    }
+
+    return ret;
+  }
+}
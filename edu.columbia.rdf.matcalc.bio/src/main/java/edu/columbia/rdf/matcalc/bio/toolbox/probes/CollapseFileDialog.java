@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.probes;
+
+import java.awt.Dimension;
+import java.util.List;
+
+import javax.swing.Box;
+
+import org.jebtk.graphplot.figure.series.XYSeries;
+import org.jebtk.graphplot.figure.series.XYSeriesGroup;
+import org.jebtk.modern.ModernWidget;
+import org.jebtk.modern.UI;
+import org.jebtk.modern.combobox.ModernComboBox;
+import org.jebtk.modern.combobox.ModernComboBox2;
+import org.jebtk.modern.dialog.ModernDialogTaskWindow;
+import org.jebtk.modern.panel.HBox;
+import org.jebtk.modern.panel.VBox;
+import org.jebtk.modern.text.ModernAutoSizeLabel;
+import org.jebtk.modern.window.ModernWindow;
+import org.jebtk.modern.window.WindowWidgetFocusEvents;
+
+import edu.columbia.rdf.matcalc.GroupsCombo;
+import edu.columbia.rdf.matcalc.toolbox.core.collapse.CollapseType;
+
+public class CollapseFileDialog extends ModernDialogTaskWindow {
+  private static final long serialVersionUID = 1L;
+
+  private static final String[] TYPE_NAMES = { "Max", "Min", "Max Std Dev", "Max Mean", "Max Median",
+      "Max T-Stat" };
+
+  private static final CollapseType[] TYPES = { CollapseType.MAX, CollapseType.MIN, CollapseType.MAX_STDEV,
+      CollapseType.MAX_MEAN, CollapseType.MAX_MEDIAN, CollapseType.MAX_TSTAT };
+
+  private static final String[] OUTPUTS = { "File", "Matrix" };
+
+  private ExternalCollapse mCollapse;
+
+  private XYSeriesGroup mGroups;
+
+  private ModernComboBox mKeyCombo = new ModernComboBox(new Dimension(200, ModernWidget.WIDGET_HEIGHT));
+
+  private ModernComboBox mTypeCombo = new ModernComboBox(new Dimension(200, ModernWidget.WIDGET_HEIGHT));
+
+  private ModernComboBox mOutputCombo = new ModernComboBox(new Dimension(200, ModernWidget.WIDGET_HEIGHT));
+
+  private GroupsCombo mGroup1Combo;
+
+  private GroupsCombo mGroup2Combo;
+
+  public CollapseFileDialog(ModernWindow parent, ExternalCollapse collapse, XYSeriesGroup groups) {
+    super(parent);
+
+    mCollapse = collapse;
+    mGroups = groups;
+
+    setTitle("Collapse File");
+
+    createUi();
+
+    setup();
+  }
+
+  private void setup() {
+    addWindowListener(new WindowWidgetFocusEvents(mOkButton));
+
+    if (mGroup2Combo != null) {
+      mGroup2Combo.setSelectedIndex(1);
+    }
+
+    setSize(new Dimension(500, 320));
+
+    UI.centerWindowToScreen(this);
+  }
+
+  private final void createUi() {
+    Box box;
+
+    Box content = VBox.create();
+
+    for (String name : mCollapse.getAnnotationNames()) {
+      mKeyCombo.addScrollMenuItem(name);
+    }
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Collapse by", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mKeyCombo);
+    content.add(box);
+
+    content.add(UI.createVGap(5));
+
+    for (String name : TYPE_NAMES) {
+      mTypeCombo.addScrollMenuItem(name);
+    }
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Method", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mTypeCombo);
+    content.add(box);
+
+    // Groups are only needed for the t-statistic
+    if (mGroups != null && mGroups.getCount() > 1) {
+      mGroup1Combo = new GroupsCombo(mGroups);
+      mGroup2Combo = new GroupsCombo(mGroups);
+
+      content.add(UI.createVGap(5));
+
+      box = HBox.create();
+      box.add(new ModernAutoSizeLabel("Group 1", ModernWidget.STANDARD_SIZE));
+      box.add(UI.createHGap(5));
+      box.add(mGroup1Combo);
+      content.add(box);
+
+      content.add(UI.createVGap(5));
+
+      box = HBox.create();
+      box.add(new ModernAutoSizeLabel("Group 2", ModernWidget.STANDARD_SIZE));
+      box.add(UI.createHGap(5));
+      box.add(mGroup2Combo);
+      content.add(box);
+    }
+
+    content.add(UI.createVGap(30));
+
+    for (String output : OUTPUTS) {
+      mOutputCombo.addScrollMenuItem(output);
+    }
+
+    box = HBox.create();
+    box.add(new ModernAutoSizeLabel("Output", ModernWidget.STANDARD_SIZE));
+    box.add(UI.createHGap(5));
+    box.add(mOutputCombo);
+    content.add(box);
+
+    setContent(content);
+  }
+
+  /**
+   * Returns the index of the annotation column holding the keys.
+   *
+   * @return the column.
+   */
+  public int getKeyCol() {
+    List<String> names = mCollapse.getAnnotationNames();
+
+    return Math.max(0, names.indexOf(mKeyCombo.getText()));
+  }
+
+  public CollapseType getCollapseType() {
+    String text = mTypeCombo.getText();
+
+    for (int i = 0; i < TYPE_NAMES.length; ++i) {
+      if (TYPE_NAMES[i].equals(text)) {
+        return TYPES[i];
+      }
+    }
+
+    return CollapseType.MAX;
+  }
+
+  /**
+   * Returns whether the collapsed rows are written to a file rather than
+   * added to the history.
+   *
+   * @return true to write a file.
+   */
+  public boolean getWriteFile() {
+    return !OUTPUTS[1].equals(mOutputCombo.getText());
+  }
+
+  public XYSeries getGroup1() {
+    return getGroup(mGroups, mGroup1Combo);
+  }
+
+  public XYSeries getGroup2() {
+    return getGroup(mGroups, mGroup2Combo);
+  }
+
+  private static XYSeries getGroup(XYSeriesGroup groups, ModernComboBox2 groupCombo) {
+    if (groups == null || groupCombo == null) {
+      return null;
+    }
+
+    return groups.get(groupCombo.getSelectedIndex());
+  }
+}
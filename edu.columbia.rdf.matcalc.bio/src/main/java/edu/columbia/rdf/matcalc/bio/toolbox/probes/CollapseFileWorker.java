@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.probes;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.PathUtils;
+import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.dialog.MessageDialogType;
+import org.jebtk.modern.dialog.ModernMessageDialog;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+import edu.columbia.rdf.matcalc.toolbox.core.collapse.CollapseType;
+
+/**
+ * Collapses an expression file from disk with an {@link ExternalCollapse}
+ * and either streams the collapsed rows to a tab delimited file or, when no
+ * file is given, adds them to the history as a new matrix.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class CollapseFileWorker extends ProgressWorker {
+  private final MainMatCalcWindow mWindow;
+  private final ExternalCollapse mCollapse;
+  private final int mKeyCol;
+  private final CollapseType mType;
+  private final int[] mIndices1;
+  private final int[] mIndices2;
+  private final Path mOutFile;
+
+  private DataFrame mResultsM;
+
+  /**
+   * Instantiates a new collapse file worker.
+   *
+   * @param window   the window.
+   * @param collapse the collapse of the input file.
+   * @param keyCol   the annotation column holding the keys.
+   * @param type     how to collapse each group.
+   * @param indices1 the sample columns of the first group for a t-statistic,
+   *                 or null.
+   * @param indices2 the sample columns of the second group for a
+   *                 t-statistic, or null.
+   * @param outFile  the file to write, or null to create a matrix.
+   */
+  public CollapseFileWorker(MainMatCalcWindow window, ExternalCollapse collapse, int keyCol, CollapseType type,
+      int[] indices1, int[] indices2, Path outFile) {
+    super(window, "Collapsing rows...");
+
+    mWindow = window;
+    mCollapse = collapse;
+    mKeyCol = keyCol;
+    mType = type;
+    mIndices1 = indices1;
+    mIndices2 = indices2;
+    mOutFile = outFile;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    final String keyName = mCollapse.getAnnotationNames().get(mKeyCol);
+    final List<String> names = mCollapse.getSampleNames();
+
+    // Spill files go next to the output since they can be as large as the
+    // input
+    Path tmpDir = (mOutFile != null ? mOutFile : mCollapse.getFile()).toAbsolutePath().getParent();
+
+    if (mOutFile != null) {
+      final BufferedWriter writer = FileUtils.newBufferedWriter(mOutFile);
+
+      boolean done = false;
+
+      try {
+        writer.write(keyName);
+
+        for (String name : names) {
+          writer.write(TextUtils.TAB_DELIMITER);
+          writer.write(name);
+        }
+
+        writer.newLine();
+
+        done = mCollapse.collapse(mKeyCol, mType, mIndices1, mIndices2, tmpDir, new ExternalCollapse.Handler() {
+          @Override
+          public void row(String key, double[] values) throws IOException {
+            writer.write(key);
+
+            for (double v : values) {
+              writer.write(TextUtils.TAB_DELIMITER);
+              writer.write(Double.toString(v));
+            }
+
+            writer.newLine();
+          }
+
+          @Override
+          public boolean progress(int percent) {
+            return update(percent);
+          }
+        });
+      } finally {
+        writer.close();
+
+        // Do not leave a partial file behind if the collapse failed or was
+        // cancelled
+        if (!done) {
+          Files.deleteIfExists(mOutFile);
+        }
+      }
+    } else {
+      // Only the collapsed rows are kept in memory
+      final List<String> keys = new ArrayList<String>();
+      final List<double[]> rows = new ArrayList<double[]>();
+
+      boolean done = mCollapse.collapse(mKeyCol, mType, mIndices1, mIndices2, tmpDir,
+          new ExternalCollapse.Handler() {
+            @Override
+            public void row(String key, double[] values) {
+              keys.add(key);
+              rows.add(values.clone());
+            }
+
+            @Override
+            public boolean progress(int percent) {
+              return update(percent);
+            }
+          });
+
+      if (!done) {
+        return null;
+      }
+
+      mResultsM = DataFrame.createNumericalMatrix(rows.size(), names.size());
+
+      for (int c = 0; c < names.size(); ++c) {
+        mResultsM.setColumnName(c, names.get(c));
+      }
+
+      for (int r = 0; r < rows.size(); ++r) {
+        double[] values = rows.get(r);
+
+        for (int c = 0; c < values.length; ++c) {
+          mResultsM.set(r, c, values[c]);
+        }
+      }
+
+      mResultsM.getIndex().setAnnotation(keyName, keys.toArray());
+    }
+
+    return null;
+  }
+
+  /**
+   * Report progress.
+   *
+   * @return false if the user cancelled.
+   */
+  private boolean update(int percent) {
+    setProgress(percent);
+
+    return !isCancelled();
+  }
+
+  @Override
+  protected void finished() {
+    if (mResultsM != null) {
+      mWindow.history().addToHistory("Collapse rows", mResultsM);
+    } else {
+      ModernMessageDialog.createDialog(mWindow, MessageDialogType.INFORMATION,
+          "The collapsed matrix has been saved in:", PathUtils.toString(mOutFile));
+    }
+  }
+}
@@ -1,18 +1,27 @@
 package edu.columbia.rdf.matcalc.bio.toolbox.probes;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.text.ParseException;
+import java.util.List;
 
+import org.jebtk.core.io.FileUtils;
+import org.jebtk.core.io.PathUtils;
+import org.jebtk.graphplot.figure.series.XYSeries;
 import org.jebtk.math.matrix.DataFrame;
 import org.jebtk.math.matrix.MatrixGroup;
-import org.jebtk.math.matrix.utils.MatrixOperations;
 import org.jebtk.modern.AssetService;
+import org.jebtk.modern.dialog.MessageDialogType;
 import org.jebtk.modern.dialog.ModernDialogStatus;
+import org.jebtk.modern.dialog.ModernMessageDialog;
 import org.jebtk.modern.event.ModernClickEvent;
 import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.io.FileDialog;
+import org.jebtk.modern.io.RecentFilesService;
 import org.jebtk.modern.ribbon.RibbonLargeButton;
 
 import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.IndexUtils;
 import edu.columbia.rdf.matcalc.toolbox.Module;
 import edu.columbia.rdf.matcalc.toolbox.core.collapse.CollapseDialog;
 import edu.columbia.rdf.matcalc.toolbox.core.collapse.CollapseType;
@@ -34,6 +43,20 @@ public class CollapseModule extends Module implements ModernClickListener {
         "Collapse rows by annotation, e.g. probe ids.");
     button.addClickListener(this);
     mWindow.getRibbon().getToolbar("Bioinformatics").getSection("Collapse Rows").add(button);
+
+    button = new RibbonLargeButton("Collapse File", AssetService.getInstance().loadIcon("collapse", 32),
+        "Collapse File", "Collapse the rows of a GCT or text file too large to open, e.g. by gene.");
+    button.addClickListener(new ModernClickListener() {
+      @Override
+      public void clicked(ModernClickEvent e) {
+        try {
+          collapseFile();
+        } catch (IOException ex) {
+          ex.printStackTrace();
+        }
+      }
+    });
+    mWindow.getRibbon().getToolbar("Bioinformatics").getSection("Collapse Rows").add(button);
   }
 
   @Override
@@ -68,24 +91,24 @@ public class CollapseModule extends Module implements ModernClickListener {
 
     switch (collapseType) {
     case MAX:
-      c = MatrixOperations.collapseMax(m, collapseName);
-      break;
     case MIN:
-      c = MatrixOperations.collapseMin(m, collapseName);
-      break;
     case MAX_STDEV:
-      c = MatrixOperations.collapseMaxStdDev(m, collapseName);
-      break;
     case MAX_MEAN:
-      c = MatrixOperations.collapseMaxMean(m, collapseName);
-      break;
     case MAX_MEDIAN:
-      c = MatrixOperations.collapseMaxMedian(m, collapseName);
+      c = new CollapseEngine(m.getIndex().getText(collapseName)).collapse(m, collapseName, collapseType, null, null);
       break;
     case MAX_TSTAT:
-      c = MatrixOperations.addTStat(m, group1, group2);
-      mWindow.history().addToHistory("Add T-Stats", c);
-      c = MatrixOperations.collapseMaxTStat(c, collapseName);
+      if (group1 == null || group2 == null) {
+        ModernMessageDialog.createDialog(mWindow, "You must create some groups.", MessageDialogType.WARNING);
+
+        return;
+      }
+
+      // The t-statistic of each row is found while collapsing rather than
+      // added to a copy of the matrix first
+      c = new CollapseEngine(m.getIndex().getText(collapseName)).collapse(m, collapseName, collapseType,
+          IndexUtils.toArray(MatrixGroup.findColumnIndices(m, group1)),
+          IndexUtils.toArray(MatrixGroup.findColumnIndices(m, group2)));
       break;
     default:
       c = m;
@@ -94,4 +117,72 @@ public class CollapseModule extends Module implements ModernClickListener {
 
     mWindow.history().addToHistory("Collapse rows", c);
   }
+
+  /**
+   * Collapse a file on disk without loading it, writing the result next to
+   * it or to a new matrix.
+   *
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private void collapseFile() throws IOException {
+    Path file = FileDialog.open(mWindow).filter(new ExpressionGuiFileFilter())
+        .getFile(RecentFilesService.getInstance().getPwd());
+
+    if (file == null) {
+      return;
+    }
+
+    ExternalCollapse collapse = new ExternalCollapse(file);
+
+    CollapseFileDialog dialog = new CollapseFileDialog(mWindow, collapse, mWindow.getGroups());
+
+    dialog.setVisible(true);
+
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
+    }
+
+    CollapseType collapseType = dialog.getCollapseType();
+
+    int[] indices1 = null;
+    int[] indices2 = null;
+
+    if (collapseType == CollapseType.MAX_TSTAT) {
+      XYSeries group1 = dialog.getGroup1();
+      XYSeries group2 = dialog.getGroup2();
+
+      if (group1 == null || group2 == null) {
+        ModernMessageDialog.createDialog(mWindow, "You must create some groups.", MessageDialogType.WARNING);
+
+        return;
+      }
+
+      // Match the groups against the sample names with a matrix that has
+      // the columns of the file but none of its rows
+      List<String> names = collapse.getSampleNames();
+
+      DataFrame header = DataFrame.createNumericalMatrix(1, names.size());
+
+      for (int i = 0; i < names.size(); ++i) {
+        header.setColumnName(i, names.get(i));
+      }
+
+      indices1 = IndexUtils.toArray(XYSeries.findColumnIndices(header, group1));
+      indices2 = IndexUtils.toArray(XYSeries.findColumnIndices(header, group2));
+    }
+
+    Path outFile = dialog.getWriteFile() ? file.resolveSibling(PathUtils.getNameNoExt(file) + "_collapsed.txt")
+        : null;
+
+    if (outFile != null && FileUtils.exists(outFile)) {
+      ModernDialogStatus status = ModernMessageDialog.createFileReplaceDialog(mWindow, outFile);
+
+      if (status == ModernDialogStatus.CANCEL) {
+        return;
+      }
+    }
+
+    new CollapseFileWorker(mWindow, collapse, dialog.getKeyCol(), collapseType, indices1, indices2, outFile)
+        .execute();
+  }
 }
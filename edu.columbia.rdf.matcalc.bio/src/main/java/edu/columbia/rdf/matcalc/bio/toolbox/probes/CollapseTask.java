@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.probes;
+
+import java.util.concurrent.RecursiveAction;
+
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.toolbox.core.collapse.CollapseType;
+
+/**
+ * Collapses a contiguous block of groups. Each task writes to its own part of
+ * the shared result array.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class CollapseTask extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  private final CollapseEngine mEngine;
+  private final DataFrame mM;
+  private final CollapseType mType;
+  private final int[] mIndices1;
+  private final int[] mIndices2;
+  private final int mStart;
+  private final int mEnd;
+  private final double[] mValues;
+  private final int[] mBest;
+
+  /**
+   * Instantiates a new collapse task.
+   *
+   * @param engine   the engine.
+   * @param m        the matrix.
+   * @param type     how to collapse each group.
+   * @param indices1 the columns of the first group for a t-statistic, or null.
+   * @param indices2 the columns of the second group for a t-statistic, or
+   *                 null.
+   * @param start    the first group.
+   * @param end      one past the last group.
+   * @param values   receives the collapsed rows, one after another.
+   * @param best     receives the row kept for each group, or -1 if the type
+   *                 combines rows.
+   */
+  public CollapseTask(CollapseEngine engine, DataFrame m, CollapseType type, int[] indices1, int[] indices2,
+      int start, int end, double[] values, int[] best) {
+    mEngine = engine;
+    mM = m;
+    mType = type;
+    mIndices1 = indices1;
+    mIndices2 = indices2;
+    mStart = start;
+    mEnd = end;
+    mValues = values;
+    mBest = best;
+  }
+
+  @Override
+  protected void compute() {
+    int cols = mM.getCols();
+
+    CollapseAccumulator accumulator = new CollapseAccumulator(mType, cols, mIndices1, mIndices2);
+
+    double[] values = new double[cols];
+
+    for (int g = mStart; g < mEnd; ++g) {
+      mEngine.collapse(mM, g, accumulator, values);
+
+      System.arraycopy(accumulator.get(), 0, mValues, g * cols, cols);
+
+      mBest[g] = accumulator.getBest();
+    }
+  }
+}
@@ -0,0 +1,627 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.probes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.jebtk.core.io.FileUtils;
+
+import edu.columbia.rdf.matcalc.toolbox.core.collapse.CollapseType;
+
+/**
+ * Collapses the rows of a GCT or tab delimited expression file that share a
+ * key without loading the file into memory. Rows are read into a buffer of
+ * bounded size, which is sorted by key and spilled to a temporary binary file
+ * whenever it fills. The sorted runs are then merged, so the rows of each key
+ * arrive together and are collapsed with a {@link CollapseAccumulator} as
+ * they stream past. Keys come out in sorted order.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class ExternalCollapse {
+  /** The default number of bytes of rows held in memory before a spill. */
+  public static final long DEFAULT_BUFFER_SIZE = 64L * 1024 * 1024;
+
+  /** The most runs merged at once, which bounds the open files. */
+  private static final int MAX_MERGE = 64;
+
+  private static final int STREAM_BUFFER_SIZE = 65536;
+
+  /**
+   * Receives the collapsed rows and reports progress.
+   */
+  public interface Handler {
+    /**
+     * A collapsed row.
+     *
+     * @param key    the key.
+     * @param values the values, which are overwritten by the next row.
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    void row(String key, double[] values) throws IOException;
+
+    /**
+     * Progress through the file.
+     *
+     * @param percent the percentage done.
+     * @return false to stop.
+     */
+    boolean progress(int percent);
+  }
+
+  /**
+   * A row waiting to be sorted or merged. Rows with equal keys stay in file
+   * order so the first of them wins ties.
+   */
+  private static class Row {
+    private String mKey;
+    private int mIndex;
+    private double[] mValues;
+
+    private Row(String key, int index, double[] values) {
+      mKey = key;
+      mIndex = index;
+      mValues = values;
+    }
+  }
+
+  private static final Comparator<Row> ROW_COMPARATOR = new Comparator<Row>() {
+    @Override
+    public int compare(Row r1, Row r2) {
+      int c = r1.mKey.compareTo(r2.mKey);
+
+      return c != 0 ? c : Integer.compare(r1.mIndex, r2.mIndex);
+    }
+  };
+
+  /**
+   * Reads the rows of a sorted run back from its spill file.
+   */
+  private static class Run {
+    private final Path mFile;
+    private final DataInputStream mIn;
+    private final Row mRow;
+
+    private Run(Path file, int cols) throws IOException {
+      mFile = file;
+      mIn = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), STREAM_BUFFER_SIZE));
+      mRow = new Row(null, 0, new double[cols]);
+    }
+
+    /**
+     * Read the next row into mRow.
+     *
+     * @return false at the end of the run, when the file is closed.
+     */
+    private boolean next() throws IOException {
+      try {
+        mRow.mKey = mIn.readUTF();
+      } catch (EOFException e) {
+        close();
+        return false;
+      }
+
+      mRow.mIndex = mIn.readInt();
+
+      for (int i = 0; i < mRow.mValues.length; ++i) {
+        mRow.mValues[i] = mIn.readDouble();
+      }
+
+      return true;
+    }
+
+    private void close() throws IOException {
+      mIn.close();
+    }
+  }
+
+  private static final Comparator<Run> RUN_COMPARATOR = new Comparator<Run>() {
+    @Override
+    public int compare(Run r1, Run r2) {
+      return ROW_COMPARATOR.compare(r1.mRow, r2.mRow);
+    }
+  };
+
+  private final Path mFile;
+  private final List<String> mNames = new ArrayList<String>();
+  private int mAnnotations;
+  private int mSkip;
+
+  private long mBufferSize = DEFAULT_BUFFER_SIZE;
+
+  /**
+   * Instantiates a new external collapse and reads the header of the file. A
+   * GCT file has two annotation columns. In any other file the annotation
+   * columns are the leading columns of the first row that are not numbers.
+   *
+   * @param file the file.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public ExternalCollapse(Path file) throws IOException {
+    mFile = file;
+
+    BufferedReader reader = FileUtils.newBufferedReader(file);
+
+    try {
+      String line = reader.readLine();
+
+      if (line == null) {
+        throw new IOException(file + " is empty.");
+      }
+
+      if (line.startsWith("#1.2")) {
+        // Skip the dimensions
+        reader.readLine();
+
+        split(reader.readLine(), mNames);
+
+        mAnnotations = 2;
+        mSkip = 3;
+      } else {
+        split(line, mNames);
+
+        mSkip = 1;
+
+        line = reader.readLine();
+
+        List<String> tokens = new ArrayList<String>();
+
+        if (line != null) {
+          split(line, tokens);
+        }
+
+        mAnnotations = 0;
+
+        while (mAnnotations < tokens.size() && !isNumber(tokens.get(mAnnotations))) {
+          ++mAnnotations;
+        }
+
+        // The key must come from an annotation
+        mAnnotations = Math.max(1, mAnnotations);
+      }
+    } finally {
+      reader.close();
+    }
+
+    if (mNames.size() <= mAnnotations) {
+      throw new IOException(file + " has no sample columns.");
+    }
+  }
+
+  public Path getFile() {
+    return mFile;
+  }
+
+  /**
+   * Returns the names of the annotation columns, one of which is the key.
+   *
+   * @return the names.
+   */
+  public List<String> getAnnotationNames() {
+    return mNames.subList(0, mAnnotations);
+  }
+
+  /**
+   * Returns the names of the sample columns.
+   *
+   * @return the names.
+   */
+  public List<String> getSampleNames() {
+    return mNames.subList(mAnnotations, mNames.size());
+  }
+
+  /**
+   * Set how many bytes of rows can be held in memory before they are
+   * spilled to disk.
+   *
+   * @param bytes the size of the buffer.
+   */
+  public void setBufferSize(long bytes) {
+    mBufferSize = bytes;
+  }
+
+  /**
+   * Collapse the file.
+   *
+   * @param keyCol   the annotation column holding the keys.
+   * @param type     how to collapse each group.
+   * @param indices1 the sample columns of the first group for a
+   *                 t-statistic, or null.
+   * @param indices2 the sample columns of the second group for a
+   *                 t-statistic, or null.
+   * @param tmpDir   the directory for the spill files.
+   * @param handler  receives the collapsed rows.
+   * @return false if the handler stopped the collapse.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public boolean collapse(int keyCol, CollapseType type, int[] indices1, int[] indices2, Path tmpDir,
+      Handler handler) throws IOException {
+    int cols = mNames.size() - mAnnotations;
+
+    // Every spill and merge file, so that the finally block removes them all
+    // even if a later merge fails
+    List<Path> tmpFiles = new ArrayList<Path>();
+    List<Path> runs = new ArrayList<Path>();
+
+    try {
+      List<Row> buffer = new ArrayList<Row>();
+      long bytes = 0;
+
+      long size = Math.max(1, Files.size(mFile));
+      long read = 0;
+      int rows = 0;
+
+      BufferedReader reader = FileUtils.newBufferedReader(mFile);
+
+      try {
+        for (int i = 0; i < mSkip; ++i) {
+          read += reader.readLine().length() + 1;
+        }
+
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+          read += line.length() + 1;
+
+          double[] values = new double[cols];
+
+          String key = parse(line, keyCol, values);
+
+          if (key != null) {
+            buffer.add(new Row(key, rows, values));
+
+            // The values plus a rough allowance for the key and objects
+            bytes += 8L * cols + 2L * key.length() + 96;
+          }
+
+          ++rows;
+
+          if (bytes >= mBufferSize) {
+            runs.add(spill(buffer, tmpDir, tmpFiles));
+            buffer.clear();
+            bytes = 0;
+
+            // Reading and sorting is the first half of the work
+            if (!handler.progress((int) (50 * read / size))) {
+              return false;
+            }
+          }
+        }
+      } finally {
+        reader.close();
+      }
+
+      CollapseAccumulator accumulator = new CollapseAccumulator(type, cols, indices1, indices2);
+
+      if (runs.isEmpty()) {
+        // Everything fitted in memory
+        Row[] sorted = buffer.toArray(new Row[buffer.size()]);
+
+        Arrays.parallelSort(sorted, ROW_COMPARATOR);
+
+        buffer.clear();
+
+        collapse(sorted, accumulator, handler);
+
+        return handler.progress(100);
+      }
+
+      if (!buffer.isEmpty()) {
+        runs.add(spill(buffer, tmpDir, tmpFiles));
+        buffer.clear();
+      }
+
+      // Merge groups of runs until few enough are left to merge at once
+      while (runs.size() > MAX_MERGE) {
+        if (!handler.progress(50)) {
+          return false;
+        }
+
+        List<Path> merged = new ArrayList<Path>();
+
+        for (int i = 0; i < runs.size(); i += MAX_MERGE) {
+          List<Path> group = runs.subList(i, Math.min(runs.size(), i + MAX_MERGE));
+
+          merged.add(merge(group, cols, tmpDir, tmpFiles));
+
+          // Free the disk space early rather than waiting for the end
+          delete(group);
+        }
+
+        runs = merged;
+      }
+
+      return collapse(runs, cols, rows, accumulator, handler);
+    } finally {
+      delete(tmpFiles);
+    }
+  }
+
+  /**
+   * Collapse rows already sorted in memory.
+   */
+  private static void collapse(Row[] rows, CollapseAccumulator accumulator, Handler handler) throws IOException {
+    String key = null;
+
+    for (Row row : rows) {
+      if (!row.mKey.equals(key)) {
+        if (key != null) {
+          handler.row(key, accumulator.get());
+        }
+
+        key = row.mKey;
+        accumulator.reset();
+      }
+
+      accumulator.add(row.mIndex, row.mValues);
+    }
+
+    if (key != null) {
+      handler.row(key, accumulator.get());
+    }
+  }
+
+  /**
+   * Merge the final runs and collapse the groups as they stream past.
+   */
+  private static boolean collapse(List<Path> files, int cols, int rows, CollapseAccumulator accumulator,
+      Handler handler) throws IOException {
+    PriorityQueue<Run> queue = open(files, cols);
+
+    String key = null;
+    int done = 0;
+
+    try {
+      while (!queue.isEmpty()) {
+        Run run = queue.poll();
+        Row row = run.mRow;
+
+        if (!row.mKey.equals(key)) {
+          if (key != null) {
+            handler.row(key, accumulator.get());
+          }
+
+          key = row.mKey;
+          accumulator.reset();
+
+          if (!handler.progress(50 + (int) (50L * done / Math.max(1, rows)))) {
+            return false;
+          }
+        }
+
+        accumulator.add(row.mIndex, row.mValues);
+
+        ++done;
+
+        if (run.next()) {
+          queue.add(run);
+        }
+      }
+
+      if (key != null) {
+        handler.row(key, accumulator.get());
+      }
+    } finally {
+      for (Run run : queue) {
+        run.close();
+      }
+    }
+
+    return handler.progress(100);
+  }
+
+  /**
+   * Merge runs into one longer run, which is added to the temporary files.
+   */
+  private static Path merge(List<Path> files, int cols, Path tmpDir, List<Path> tmpFiles) throws IOException {
+    Path file = Files.createTempFile(tmpDir, "collapse", ".run");
+
+    tmpFiles.add(file);
+
+    PriorityQueue<Run> queue = open(files, cols);
+
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file), STREAM_BUFFER_SIZE));
+
+    try {
+      while (!queue.isEmpty()) {
+        Run run = queue.poll();
+
+        write(run.mRow, out);
+
+        if (run.next()) {
+          queue.add(run);
+        }
+      }
+    } finally {
+      out.close();
+
+      for (Run run : queue) {
+        run.close();
+      }
+    }
+
+    return file;
+  }
+
+  private static PriorityQueue<Run> open(List<Path> files, int cols) throws IOException {
+    PriorityQueue<Run> queue = new PriorityQueue<Run>(Math.max(1, files.size()), RUN_COMPARATOR);
+
+    for (Path file : files) {
+      Run run = new Run(file, cols);
+
+      if (run.next()) {
+        queue.add(run);
+      }
+    }
+
+    return queue;
+  }
+
+  /**
+   * Sort a buffer of rows and write it to a new run, which is added to the
+   * temporary files.
+   */
+  private static Path spill(List<Row> buffer, Path tmpDir, List<Path> tmpFiles) throws IOException {
+    Row[] rows = buffer.toArray(new Row[buffer.size()]);
+
+    Arrays.parallelSort(rows, ROW_COMPARATOR);
+
+    Path file = Files.createTempFile(tmpDir, "collapse", ".run");
+
+    tmpFiles.add(file);
+
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file), STREAM_BUFFER_SIZE));
+
+    try {
+      for (Row row : rows) {
+        write(row, out);
+      }
+    } finally {
+      out.close();
+    }
+
+    return file;
+  }
+
+  private static void write(Row row, DataOutputStream out) throws IOException {
+    out.writeUTF(row.mKey);
+    out.writeInt(row.mIndex);
+
+    for (double v : row.mValues) {
+      out.writeDouble(v);
+    }
+  }
+
+  private static void delete(List<Path> files) throws IOException {
+    for (Path file : files) {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Parse a data line.
+   *
+   * @param line   the line.
+   * @param keyCol the key column.
+   * @param values receives the sample values. Missing or non numeric values
+   *               are NaN.
+   * @return the key, or null if the key is empty.
+   */
+  private String parse(String line, int keyCol, double[] values) {
+    String key = null;
+
+    int start = 0;
+    int col = 0;
+    int n = line.length();
+
+    while (start <= n) {
+      int end = line.indexOf('\t', start);
+
+      if (end == -1) {
+        end = n;
+      }
+
+      if (col == keyCol) {
+        key = line.substring(start, end);
+      } else if (col >= mAnnotations) {
+        int i = col - mAnnotations;
+
+        if (i >= values.length) {
+          break;
+        }
+
+        values[i] = parseDouble(line, start, end);
+      }
+
+      ++col;
+      start = end + 1;
+    }
+
+    // Short lines are padded with missing values
+    for (int i = Math.max(0, col - mAnnotations); i < values.length; ++i) {
+      values[i] = Double.NaN;
+    }
+
+    return key != null && !key.isEmpty() ? key : null;
+  }
+
+  private static double parseDouble(String line, int start, int end) {
+    if (start == end) {
+      return Double.NaN;
+    }
+
+    try {
+      return Double.parseDouble(line.substring(start, end));
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  private static boolean isNumber(String s) {
+    try {
+      Double.parseDouble(s);
+
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static void split(String line, List<String> tokens) {
+    int start = 0;
+
+    while (true) {
+      int end = line.indexOf('\t', start);
+
+      if (end == -1) {
+        tokens.add(line.substring(start));
+        break;
+      }
+
+      tokens.add(line.substring(start, end));
+
+      start = end + 1;
+    }
+  }
+}
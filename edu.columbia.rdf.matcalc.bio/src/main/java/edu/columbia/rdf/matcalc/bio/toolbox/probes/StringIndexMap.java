@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.probes;
+
+/**
+ * Assigns each distinct string an index, in the order the strings are first
+ * seen. Keys live in one open addressing table with their hashes and indices
+ * held in parallel int arrays, so there is no entry or boxed Integer per key.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class StringIndexMap {
+  private String[] mKeys;
+
+  /** The hash of the key in each slot, or 0 if the slot is empty. */
+  private int[] mHashes;
+
+  private int[] mIndices;
+
+  /** The keys in index order. */
+  private String[] mOrder;
+
+  private int mMask;
+  private int mSize = 0;
+
+  /**
+   * Instantiates a new string index map.
+   *
+   * @param expected the number of keys expected.
+   */
+  public StringIndexMap(int expected) {
+    int capacity = 16;
+
+    // Keep the table at most half full
+    while (capacity < 2 * expected) {
+      capacity <<= 1;
+    }
+
+    allocate(capacity);
+
+    mOrder = new String[Math.max(16, expected)];
+  }
+
+  private void allocate(int capacity) {
+    mKeys = new String[capacity];
+    mHashes = new int[capacity];
+    mIndices = new int[capacity];
+    mMask = capacity - 1;
+  }
+
+  /**
+   * Returns the index of a key.
+   *
+   * @param key the key.
+   * @return the index, or -1 if the key has not been added.
+   */
+  public int get(String key) {
+    int hash = hash(key);
+
+    int slot = find(key, hash);
+
+    return mHashes[slot] != 0 ? mIndices[slot] : -1;
+  }
+
+  /**
+   * Add a key if it is new.
+   *
+   * @param key the key.
+   * @return the index of the key.
+   */
+  public int add(String key) {
+    int hash = hash(key);
+
+    int slot = find(key, hash);
+
+    if (mHashes[slot] != 0) {
+      return mIndices[slot];
+    }
+
+    int index = mSize++;
+
+    mKeys[slot] = key;
+    mHashes[slot] = hash;
+    mIndices[slot] = index;
+
+    if (index == mOrder.length) {
+      String[] order = new String[2 * mOrder.length];
+      System.arraycopy(mOrder, 0, order, 0, index);
+      mOrder = order;
+    }
+
+    mOrder[index] = key;
+
+    if (mSize > mHashes.length / 2) {
+      grow();
+    }
+
+    return index;
+  }
+
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * Returns the key with a given index.
+   *
+   * @param index the index.
+   * @return the key.
+   */
+  public String getKey(int index) {
+    return mOrder[index];
+  }
+
+  private int find(String key, int hash) {
+    int slot = hash & mMask;
+
+    while (mHashes[slot] != 0) {
+      if (mHashes[slot] == hash && mKeys[slot].equals(key)) {
+        break;
+      }
+
+      slot = (slot + 1) & mMask;
+    }
+
+    return slot;
+  }
+
+  private void grow() {
+    String[] keys = mKeys;
+    int[] hashes = mHashes;
+    int[] indices = mIndices;
+
+    allocate(hashes.length * 2);
+
+    for (int i = 0; i < hashes.length; ++i) {
+      int hash = hashes[i];
+
+      if (hash != 0) {
+        int slot = hash & mMask;
+
+        while (mHashes[slot] != 0) {
+          slot = (slot + 1) & mMask;
+        }
+
+        mKeys[slot] = keys[i];
+        mHashes[slot] = hash;
+        mIndices[slot] = indices[i];
+      }
+    }
+  }
+
+  /**
+   * Spread the bits of the string hash into the low bits used to pick a
+   * slot. Never returns 0, so 0 can mark an empty slot.
+   */
+  private static int hash(String key) {
+    int h = key.hashCode() * 0x9E3779B9;
+
+    h ^= h >>> 16;
+
+    return h != 0 ? h : 1;
+  }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.recurrence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jebtk.bioinformatics.genomic.Chromosome;
+
+import edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.SegmentTable;
+
+/**
+ * Scores how often each region of the genome is gained or lost across
+ * samples. Rather than expanding segments to marker resolution, the segment
+ * boundaries of each chromosome are sorted once and swept in order whilst
+ * keeping running counts of the samples covering the current position. Each
+ * interval between consecutive boundaries is a minimal common region.
+ * 
+ * Segments of the same sample may overlap, so each sample keeps a count of
+ * its segments covering the current position and the sample totals only
+ * change when that count goes from zero to one or back. A sample is gained or
+ * lost in a region if any of its covering segments is, and the mean of a
+ * region averages the samples covering it rather than their segments.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class Recurrence {
+  public static final double DEFAULT_GAIN = 0.1;
+
+  public static final double DEFAULT_LOSS = -0.1;
+
+  private Recurrence() {
+    // Do nothing
+  }
+
+  /**
+   * Find the minimal common regions of a set of segments.
+   *
+   * @param segments the segments of all samples.
+   * @param gain     segments with a mean above this are gained.
+   * @param loss     segments with a mean below this are lost.
+   * @return the regions ordered by chromosome and position.
+   */
+  public static List<RecurrentRegion> score(SegmentTable segments, double gain, double loss) {
+    int chrs = segments.getChrs().size();
+
+    // Bucket the segments by chromosome
+
+    int[] offsets = new int[chrs + 1];
+
+    for (int i = 0; i < segments.size(); ++i) {
+      ++offsets[segments.getChrId(i) + 1];
+    }
+
+    for (int c = 0; c < chrs; ++c) {
+      offsets[c + 1] += offsets[c];
+    }
+
+    int[] indices = new int[segments.size()];
+    int[] next = Arrays.copyOf(offsets, chrs);
+
+    for (int i = 0; i < segments.size(); ++i) {
+      indices[next[segments.getChrId(i)]++] = i;
+    }
+
+    Map<Chromosome, Integer> chrMap = new TreeMap<Chromosome, Integer>();
+
+    for (int c = 0; c < chrs; ++c) {
+      chrMap.put(segments.getChrs().get(c), c);
+    }
+
+    // Every boundary of a chromosome is applied, so the coverage returns to
+    // zero before the next chromosome and can be reused
+    Coverage coverage = new Coverage(segments.getSampleNames().size());
+
+    List<RecurrentRegion> ret = new ArrayList<RecurrentRegion>();
+
+    for (Chromosome chr : chrMap.keySet()) {
+      int c = chrMap.get(chr);
+
+      sweep(segments, chr, indices, offsets[c], offsets[c + 1], gain, loss, coverage, ret);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Sweep the segments of one chromosome.
+   */
+  private static void sweep(SegmentTable segments, Chromosome chr, int[] indices, int from, int to, double gain,
+      double loss, Coverage coverage, List<RecurrentRegion> regions) {
+    int n = to - from;
+
+    // Each boundary is packed into a long as position and segment so that
+    // they can be ordered with a primitive sort. Segments are inclusive so
+    // they stop covering the position after their end.
+
+    long[] starts = new long[n];
+    long[] ends = new long[n];
+
+    for (int k = 0; k < n; ++k) {
+      int i = indices[from + k];
+
+      starts[k] = ((long) segments.getStart(i) << 32) | i;
+      ends[k] = ((long) (segments.getEnd(i) + 1) << 32) | i;
+    }
+
+    Arrays.sort(starts);
+    Arrays.sort(ends);
+
+    int s = 0;
+    int e = 0;
+    int previous = 0;
+
+    while (e < n) {
+      int position = (int) (ends[e] >>> 32);
+
+      if (s < n) {
+        position = Math.min(position, (int) (starts[s] >>> 32));
+      }
+
+      if (coverage.samples > 0 && position > previous) {
+        RecurrentRegion region = new RecurrentRegion();
+
+        region.chr = chr;
+        region.start = previous;
+        region.end = position - 1;
+        region.samples = coverage.samples;
+        region.gains = coverage.gains;
+        region.losses = coverage.losses;
+        region.mean = coverage.sum / coverage.samples;
+
+        regions.add(region);
+      }
+
+      // Apply every boundary at this position before the next region
+
+      while (e < n && (int) (ends[e] >>> 32) == position) {
+        int i = (int) ends[e];
+        double mean = segments.getMean(i);
+
+        coverage.remove(segments.getSampleId(i), mean, mean > gain, mean < loss);
+
+        ++e;
+      }
+
+      while (s < n && (int) (starts[s] >>> 32) == position) {
+        int i = (int) starts[s];
+        double mean = segments.getMean(i);
+
+        coverage.add(segments.getSampleId(i), mean, mean > gain, mean < loss);
+
+        ++s;
+      }
+
+      previous = position;
+    }
+  }
+
+  /**
+   * The number of segments of each sample covering the current position and
+   * the number of samples covered, gained and lost. The mean of each covered
+   * sample is the mean of its covering segments and sum totals those means.
+   */
+  private static class Coverage {
+    private final int[] mSegments;
+    private final double[] mSums;
+    private final int[] mGains;
+    private final int[] mLosses;
+
+    public int samples = 0;
+    public int gains = 0;
+    public int losses = 0;
+    public double sum = 0;
+
+    public Coverage(int samples) {
+      mSegments = new int[samples];
+      mSums = new double[samples];
+      mGains = new int[samples];
+      mLosses = new int[samples];
+    }
+
+    public void add(int sample, double mean, boolean gained, boolean lost) {
+      if (mSegments[sample] == 0) {
+        ++samples;
+      } else {
+        sum -= mSums[sample] / mSegments[sample];
+      }
+
+      ++mSegments[sample];
+      mSums[sample] += mean;
+
+      sum += mSums[sample] / mSegments[sample];
+
+      if (gained && mGains[sample]++ == 0) {
+        ++gains;
+      }
+
+      if (lost && mLosses[sample]++ == 0) {
+        ++losses;
+      }
+    }
+
+    public void remove(int sample, double mean, boolean gained, boolean lost) {
+      sum -= mSums[sample] / mSegments[sample];
+
+      --mSegments[sample];
+      mSums[sample] -= mean;
+
+      if (mSegments[sample] == 0) {
+        --samples;
+
+        // Avoid the running sums drifting once nothing is covered
+        mSums[sample] = 0;
+
+        if (samples == 0) {
+          sum = 0;
+        }
+      } else {
+        sum += mSums[sample] / mSegments[sample];
+      }
+
+      if (gained && --mGains[sample] == 0) {
+        --gains;
+      }
+
+      if (lost && --mLosses[sample] == 0) {
+        --losses;
+      }
+    }
+  }
+}
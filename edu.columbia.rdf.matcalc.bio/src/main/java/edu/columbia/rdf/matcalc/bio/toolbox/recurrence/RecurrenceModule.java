@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.recurrence;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.modern.AssetService;
+import org.jebtk.modern.button.ModernButton;
+import org.jebtk.modern.dialog.ModernDialogStatus;
+import org.jebtk.modern.event.ModernClickEvent;
+import org.jebtk.modern.event.ModernClickListener;
+import org.jebtk.modern.ribbon.RibbonLargeButton;
+import org.jebtk.modern.tooltip.ModernToolTip;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.toolbox.Module;
+
+/**
+ * Finds the minimal common regions of the segments in the current matrix and
+ * scores how often each is gained or lost across samples.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class RecurrenceModule extends Module implements ModernClickListener {
+
+  private ModernButton mRecurrenceButton = new RibbonLargeButton("Recurrence",
+      AssetService.getInstance().loadIcon("recurrence", 32), AssetService.getInstance().loadIcon("recurrence", 24));
+
+  private MainMatCalcWindow mWindow;
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.NameProperty#getName()
+   */
+  @Override
+  public String getName() {
+    return "Recurrence";
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see edu.columbia.rdf.apps.matcalc.modules.Module#init(edu.columbia.rdf.apps.
+   * matcalc.MainMatCalcWindow)
+   */
+  @Override
+  public void init(MainMatCalcWindow window) {
+    mWindow = window;
+
+    mRecurrenceButton.setToolTip(new ModernToolTip("Recurrence", "Find recurrently gained and lost regions."));
+    mRecurrenceButton.setClickMessage("Recurrence");
+    mWindow.getRibbon().getToolbar("Bioinformatics").getSection("Fill Gaps").add(mRecurrenceButton);
+
+    mRecurrenceButton.addClickListener(this);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.ui.modern.event.ModernClickListener#clicked(org.abh.lib.ui.
+   * modern .event.ModernClickEvent)
+   */
+  @Override
+  public final void clicked(ModernClickEvent e) {
+    try {
+      recurrence(Genome.HG18);
+    } catch (Exception e1) {
+      e1.printStackTrace();
+    }
+  }
+
+  private void recurrence(Genome genome) throws Exception {
+    DataFrame m = mWindow.getCurrentMatrix();
+
+    if (m == null) {
+      showLoadMatrixError(mWindow);
+
+      return;
+    }
+
+    Map<String, Integer> colMap = findColumns(mWindow, m, "chr", "start", "end", "segment", "mean");
+
+    if (colMap == null) {
+      return;
+    }
+
+    RecurrenceDialog dialog = new RecurrenceDialog(mWindow);
+
+    dialog.setVisible(true);
+
+    if (dialog.getStatus() == ModernDialogStatus.CANCEL) {
+      return;
+    }
+
+    new RecurrenceWorker(mWindow, m, genome, colMap.get("segment"), colMap.get("chr"), colMap.get("start"),
+        colMap.get("end"), colMap.get("mean"), dialog.getGain(), dialog.getLoss()).execute();
+  }
+
+  /**
+   * Convert regions to a matrix.
+   *
+   * @param regions the regions.
+   * @param samples the total number of samples, used to calculate the
+   *                frequencies.
+   * @return the matrix.
+   */
+  public static DataFrame toMatrix(List<RecurrentRegion> regions, int samples) {
+    DataFrame ret = DataFrame.createDataFrame(regions.size(), 9);
+
+    ret.setColumnName(0, "chromosome");
+    ret.setColumnName(1, "start");
+    ret.setColumnName(2, "end");
+    ret.setColumnName(3, "num.samples");
+    ret.setColumnName(4, "gains");
+    ret.setColumnName(5, "gain.frequency");
+    ret.setColumnName(6, "losses");
+    ret.setColumnName(7, "loss.frequency");
+    ret.setColumnName(8, "mean");
+
+    for (int r = 0; r < regions.size(); ++r) {
+      RecurrentRegion region = regions.get(r);
+
+      ret.set(r, 0, region.chr.toString());
+      ret.set(r, 1, region.start);
+      ret.set(r, 2, region.end);
+      ret.set(r, 3, region.samples);
+      ret.set(r, 4, region.gains);
+      ret.set(r, 5, (double) region.gains / samples);
+      ret.set(r, 6, region.losses);
+      ret.set(r, 7, (double) region.losses / samples);
+      ret.set(r, 8, region.mean);
+    }
+
+    return ret;
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package edu.columbia.rdf.matcalc.bio.toolbox.recurrence;
+
+import java.util.List;
+
+import org.jebtk.bioinformatics.genomic.ChromosomeService;
+import org.jebtk.bioinformatics.genomic.Genome;
+import org.jebtk.math.matrix.DataFrame;
+
+import edu.columbia.rdf.matcalc.MainMatCalcWindow;
+import edu.columbia.rdf.matcalc.bio.ProgressWorker;
+import edu.columbia.rdf.matcalc.bio.toolbox.fillgaps.SegmentTable;
+
+/**
+ * Builds a segment table from a SEG matrix and scores its recurrent regions
+ * in the background.
+ *
+ * @author Antony Holmes
+ *
+ */
+public class RecurrenceWorker extends ProgressWorker {
+  private final MainMatCalcWindow mWindow;
+  private final DataFrame mM;
+  private final Genome mGenome;
+  private final int mSampleCol;
+  private final int mChrCol;
+  private final int mStartCol;
+  private final int mEndCol;
+  private final int mMeanCol;
+  private final double mGain;
+  private final double mLoss;
+
+  private DataFrame mResultsM;
+
+  /**
+   * Instantiates a new recurrence worker.
+   *
+   * @param window    the window to add the regions to.
+   * @param m         the SEG matrix.
+   * @param genome    the genome the chromosomes belong to.
+   * @param sampleCol the column of the sample names.
+   * @param chrCol    the column of the chromosomes.
+   * @param startCol  the column of the segment starts.
+   * @param endCol    the column of the segment ends.
+   * @param meanCol   the column of the segment means.
+   * @param gain      segments with a mean above this are gained.
+   * @param loss      segments with a mean below this are lost.
+   */
+  public RecurrenceWorker(MainMatCalcWindow window, DataFrame m, Genome genome, int sampleCol, int chrCol,
+      int startCol, int endCol, int meanCol, double gain, double loss) {
+    super(window, "Finding recurrent regions...");
+
+    mWindow = window;
+    mM = m;
+    mGenome = genome;
+    mSampleCol = sampleCol;
+    mChrCol = chrCol;
+    mStartCol = startCol;
+    mEndCol = endCol;
+    mMeanCol = meanCol;
+    mGain = gain;
+    mLoss = loss;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception {
+    int rows = mM.getRows();
+
+    SegmentTable segments = new SegmentTable(rows);
+
+    for (int r = 0; r < rows; ++r) {
+      if (isCancelled()) {
+        return null;
+      }
+
+      segments.add(mM.getText(r, mSampleCol), ChromosomeService.getInstance().chr(mGenome, mM.getText(r, mChrCol)),
+          (int) mM.getValue(r, mStartCol), (int) mM.getValue(r, mEndCol), 0, mM.getValue(r, mMeanCol));
+
+      // Reading the segments is the first half of the work
+      setProgress((int) (50L * (r + 1) / rows));
+    }
+
+    List<RecurrentRegion> regions = Recurrence.score(segments, mGain, mLoss);
+
+    mResultsM = RecurrenceModule.toMatrix(regions, segments.getSampleNames().size());
+
+    setProgress(100);
+
+    return null;
+  }
+
+  @Override
+  protected void finished() {
+    mWindow.history().addToHistory("Recurrence", mResultsM);
+  }
+}